@@ -0,0 +1,62 @@
+package com.fadams.silver.bars.benchmarks;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every thread the machine has registering and cancelling at one price on one side, the worst case for any
+ * implementation that guards a level or a side with a lock or a CAS loop
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@Threads(Threads.MAX)
+public class ContendedPriceLevelBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SingleLevelBoard {
+        @Param({LiveOrderSystems.IN_MEMORY, LiveOrderSystems.FIXED_POINT, LiveOrderSystems.ARENA, LiveOrderSystems.EVENT_LOOP, LiveOrderSystems.SHARDED})
+        public String implementation;
+
+        LiveOrderSystem liveOrderSystem;
+        final OrderRequest orderRequest = new OrderRequest("user1", new BigDecimal("1.5"), new BigDecimal("303"), PurchaseType.SELL);
+
+        @Setup(Level.Trial)
+        public void create() {
+            liveOrderSystem = LiveOrderSystems.create(implementation);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws Exception {
+            LiveOrderSystems.close(liveOrderSystem);
+        }
+    }
+
+    @Benchmark
+    public OrderDetails registerThenCancel(SingleLevelBoard board) throws OrderNotFoundException {
+        long orderId = board.liveOrderSystem.registerOrderId(board.orderRequest);
+        return board.liveOrderSystem.cancelOrder(orderId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.fadams.silver.bars.benchmarks;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+
+/**
+ * Builds each implementation by the name used in the benchmark parameters
+ */
+final class LiveOrderSystems {
+    static final String IN_MEMORY = "inMemory";
+    static final String FIXED_POINT = "fixedPoint";
+    static final String ARENA = "arena";
+    static final String EVENT_LOOP = "eventLoop";
+    static final String SHARDED = "sharded";
+
+    private LiveOrderSystems() {
+    }
+
+    static LiveOrderSystem create(String implementation) {
+        LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+        switch (implementation) {
+            case IN_MEMORY:
+                return bootstrapper.bootstrap();
+            case FIXED_POINT:
+                return bootstrapper.bootstrapFixedPoint();
+            case ARENA:
+                return bootstrapper.bootstrapArena();
+            case EVENT_LOOP:
+                return bootstrapper.bootstrapEventLoop();
+            case SHARDED:
+                return bootstrapper.bootstrapSharded(Runtime.getRuntime().availableProcessors());
+            default:
+                throw new IllegalArgumentException("unknown implementation " + implementation);
+        }
+    }
+
+    static void close(LiveOrderSystem liveOrderSystem) throws Exception {
+        if (liveOrderSystem instanceof AutoCloseable) {
+            ((AutoCloseable) liveOrderSystem).close();
+        }
+    }
+}
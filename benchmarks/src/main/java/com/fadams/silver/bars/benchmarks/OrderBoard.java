@@ -0,0 +1,64 @@
+package com.fadams.silver.bars.benchmarks;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * A board shared by every benchmark thread, filled with bookDepth resting orders spread over priceLevels prices
+ * before measuring starts. A single price level is the most contended shape the board can be in.
+ */
+@State(Scope.Benchmark)
+public class OrderBoard {
+    private static final long LOWEST_PRICE = 300;
+    private static final int USERS = 1_000;
+
+    @Param({LiveOrderSystems.IN_MEMORY, LiveOrderSystems.FIXED_POINT, LiveOrderSystems.ARENA, LiveOrderSystems.EVENT_LOOP, LiveOrderSystems.SHARDED})
+    public String implementation;
+
+    @Param({"1000", "100000"})
+    public int bookDepth;
+
+    @Param({"1", "100", "10000"})
+    public int priceLevels;
+
+    @Param({"50"})
+    public int buyPercent;
+
+    LiveOrderSystem liveOrderSystem;
+    long[] restingOrderIds;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        liveOrderSystem = LiveOrderSystems.create(implementation);
+        restingOrderIds = new long[bookDepth];
+        Random random = new Random(bookDepth);
+        for (int i = 0; i < bookDepth; i++) {
+            restingOrderIds[i] = liveOrderSystem.registerOrderId(orderRequest(random));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws Exception {
+        LiveOrderSystems.close(liveOrderSystem);
+    }
+
+    /**
+     * An order shaped like the ones already resting, so registering it lands on an existing level
+     */
+    OrderRequest orderRequest(Random random) {
+        return new OrderRequest("user" + random.nextInt(USERS),
+                BigDecimal.valueOf(1 + random.nextInt(100), 1),
+                BigDecimal.valueOf(LOWEST_PRICE + random.nextInt(priceLevels)),
+                random.nextInt(100) < buyPercent ? PurchaseType.BUY : PurchaseType.SELL);
+    }
+}
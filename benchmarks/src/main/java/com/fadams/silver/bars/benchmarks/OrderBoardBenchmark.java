@@ -0,0 +1,88 @@
+package com.fadams.silver.bars.benchmarks;
+
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The board's hot paths against a pre-filled book. Registers are always cancelled again so the book keeps the
+ * depth it was filled to however long the benchmark runs. Run with -t to see how each path scales with threads.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class OrderBoardBenchmark {
+
+    @Benchmark
+    public OrderDetails registerThenCancel(OrderBoard board, ThreadOrders orders) throws OrderNotFoundException {
+        long orderId = board.liveOrderSystem.registerOrderId(orders.nextOrderRequest());
+        return board.liveOrderSystem.cancelOrder(orderId);
+    }
+
+    @Benchmark
+    public OrderDetails orderDetails(OrderBoard board, ThreadOrders orders) throws OrderNotFoundException {
+        return board.liveOrderSystem.orderDetails(orders.nextRestingOrderId(board));
+    }
+
+    /**
+     * Nothing changes the board, so this is the cost of serving an already built summary
+     */
+    @Benchmark
+    public OrdersSummary orderSummary(OrderBoard board, ThreadOrders orders) {
+        return board.liveOrderSystem.orderSummary(orders.nextSide());
+    }
+
+    @Benchmark
+    public Optional<PriceLevel> bestLevel(OrderBoard board, ThreadOrders orders) {
+        return board.liveOrderSystem.bestLevel(orders.nextSide());
+    }
+
+    @Benchmark
+    @Group("summaryWhileWriting")
+    @GroupThreads(1)
+    public OrderDetails writer(OrderBoard board, ThreadOrders orders) throws OrderNotFoundException {
+        return registerThenCancel(board, orders);
+    }
+
+    /**
+     * Every write invalidates the side it touched, so here summaries are mostly rebuilt rather than served
+     */
+    @Benchmark
+    @Group("summaryWhileWriting")
+    @GroupThreads(3)
+    public OrdersSummary reader(OrderBoard board, ThreadOrders orders) {
+        return orderSummary(board, orders);
+    }
+
+    @Benchmark
+    @Group("bestLevelWhileWriting")
+    @GroupThreads(1)
+    public OrderDetails topOfBookWriter(OrderBoard board, ThreadOrders orders) throws OrderNotFoundException {
+        return registerThenCancel(board, orders);
+    }
+
+    /**
+     * Only writes at or ahead of the best price invalidate the cached top, so most reads here should still be served
+     */
+    @Benchmark
+    @Group("bestLevelWhileWriting")
+    @GroupThreads(3)
+    public Optional<PriceLevel> topOfBookReader(OrderBoard board, ThreadOrders orders) {
+        return bestLevel(board, orders);
+    }
+}
@@ -0,0 +1,49 @@
+package com.fadams.silver.bars.benchmarks;
+
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+
+/**
+ * Requests built up front for each benchmark thread, so the allocation the GC profiler reports is the board's own
+ */
+@State(Scope.Thread)
+public class ThreadOrders {
+    private static final int REQUESTS = 1_024;
+
+    private final OrderRequest[] orderRequests = new OrderRequest[REQUESTS];
+    private final int[] restingOrderIndexes = new int[REQUESTS];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void build(OrderBoard board, ThreadParams threadParams) {
+        Random random = new Random(threadParams.getThreadIndex());
+        for (int i = 0; i < REQUESTS; i++) {
+            orderRequests[i] = board.orderRequest(random);
+            restingOrderIndexes[i] = random.nextInt(board.restingOrderIds.length);
+        }
+    }
+
+    OrderRequest nextOrderRequest() {
+        return orderRequests[advance()];
+    }
+
+    long nextRestingOrderId(OrderBoard board) {
+        return board.restingOrderIds[restingOrderIndexes[advance()]];
+    }
+
+    PurchaseType nextSide() {
+        return (advance() & 1) == 0 ? PurchaseType.BUY : PurchaseType.SELL;
+    }
+
+    private int advance() {
+        next = (next + 1) & (REQUESTS - 1);
+        return next;
+    }
+}
@@ -0,0 +1,21 @@
+package com.fadams.silver.bars;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AtomicOrderNumberSequence implements OrderNumberSequence {
+    private final AtomicLong nextOrderNumber;
+
+    public AtomicOrderNumberSequence(long firstOrderNumber) {
+        this.nextOrderNumber = new AtomicLong(firstOrderNumber);
+    }
+
+    @Override
+    public long reserve(int count) {
+        return nextOrderNumber.getAndAdd(count);
+    }
+
+    @Override
+    public void advancePast(long orderNumber) {
+        nextOrderNumber.accumulateAndGet(orderNumber + 1, Math::max);
+    }
+}
@@ -1,30 +1,185 @@
 package com.fadams.silver.bars;
 
+import com.fadams.silver.bars.async.AsyncLiveOrderSystem;
+import com.fadams.silver.bars.eventloop.EventLoopLiveOrderSystem;
+import com.fadams.silver.bars.expiry.ExpiringLiveOrderSystem;
+import com.fadams.silver.bars.expiry.ExpiryListener;
+import com.fadams.silver.bars.fixedpoint.ArenaLiveOrderSystem;
+import com.fadams.silver.bars.fixedpoint.BulkOrders;
+import com.fadams.silver.bars.fixedpoint.FixedPointLiveOrderSystem;
+import com.fadams.silver.bars.history.DepthHistory;
+import com.fadams.silver.bars.history.DepthSource;
 import com.fadams.silver.bars.inmemory.InMemoryLiveOrderSystem;
+import com.fadams.silver.bars.journal.JournalingLiveOrderSystem;
+import com.fadams.silver.bars.journal.SegmentedJournal;
+import com.fadams.silver.bars.ladder.LadderedLiveOrderSystem;
+import com.fadams.silver.bars.metrics.InstrumentedLiveOrderSystem;
+import com.fadams.silver.bars.metrics.JmxMetricsSink;
 import com.fadams.silver.bars.model.LiveOrderSystem;
 import com.fadams.silver.bars.model.OrderDetails;
-import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.replication.ReplicaLiveOrderSystem;
+import com.fadams.silver.bars.replication.ReplicatingLiveOrderSystem;
+import com.fadams.silver.bars.sharded.ShardedLiveOrderSystem;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiFunction;
-import java.util.function.Supplier;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class LiverOrderSystemBootstrapper {
+    private static final int EVENT_LOOP_RING_BUFFER_SIZE = 1024;
+    private static final int ORDER_NUMBER_BLOCK_SIZE = 1024;
+    private static final long EXPIRY_TICK_MILLIS = 10;
+    private static final int EXPIRY_WHEEL_SIZE = 1024;
+    private static final int JOURNAL_INITIAL_CAPACITY_BYTES = 64 * 1024 * 1024;
+    private static final int JOURNAL_SYNC_EVERY_EVENTS = 1_000;
+    private static final long JOURNAL_SYNC_EVERY_MILLIS = 10;
 
     // would usually put these behind services themselves or classes at the very least
-    private final AtomicInteger SEQUENCE_NUMBER = new AtomicInteger(0);
-    private final Supplier<String> nextOrderNumberProvider = () -> "" + SEQUENCE_NUMBER.getAndIncrement();
+    private final OrderNumberSequence nextOrderNumberProvider = new StripedOrderNumberSequence(0, ORDER_NUMBER_BLOCK_SIZE);
 
-    private final BiFunction<String, OrderRequest, OrderDetails> toOrderDetailsAdapter = (orderId, orderRequest) ->
+    private final OrderDetailsAdapter toOrderDetailsAdapter = (orderId, orderRequest) ->
             new OrderDetails(orderId,
             orderRequest.getUserId(), orderRequest.getOrderQuantity(),
             orderRequest.getPricePerKg(), orderRequest.getPurchaseType());
 
     private OrderRequestValidator orderRequestValidator = new OrderRequestValidator();
 
-    public LiveOrderSystem bootstrap() {
+    private ExecutorService asyncExecutor;
+
+    public InMemoryLiveOrderSystem bootstrap() {
         // not returning a singleton at the moment, boostrapper could be changed to initialise only once if required later
         return new InMemoryLiveOrderSystem(orderRequestValidator, nextOrderNumberProvider,
                 toOrderDetailsAdapter);
     }
+
+    /**
+     * Same behaviour as {@link #bootstrap()} except that prices are kept in whole pence and quantities in whole
+     * grams, so unlike the BigDecimal system it rejects a price with more than 2 decimal places or a quantity with
+     * more than 3 with an IllegalArgumentException rather than registering it
+     */
+    public FixedPointLiveOrderSystem bootstrapFixedPoint() {
+        return new FixedPointLiveOrderSystem(orderRequestValidator, nextOrderNumberProvider,
+                toOrderDetailsAdapter);
+    }
+
+    /**
+     * Fixed point system already holding the given orders, see {@link FixedPointLiveOrderSystem#load}
+     */
+    public FixedPointLiveOrderSystem bootstrapFixedPoint(BulkOrders bulkOrders) {
+        FixedPointLiveOrderSystem liveOrderSystem = bootstrapFixedPoint();
+        liveOrderSystem.load(bulkOrders);
+        return liveOrderSystem;
+    }
+
+    /**
+     * Fixed point system that keeps orders in primitive slots rather than objects, for boards of tens of millions.
+     * Like {@link #bootstrapFixedPoint()} it rejects prices finer than a penny and quantities finer than a gram.
+     */
+    public ArenaLiveOrderSystem bootstrapArena() {
+        return new ArenaLiveOrderSystem(orderRequestValidator, nextOrderNumberProvider);
+    }
+
+    /**
+     * Arena system with its order index sized for the expected number of live orders, so a board growing to that
+     * size never stops writers while the index is copied into a bigger table
+     */
+    public ArenaLiveOrderSystem bootstrapArena(int expectedOrders) {
+        return new ArenaLiveOrderSystem(orderRequestValidator, nextOrderNumberProvider, expectedOrders);
+    }
+
+    /**
+     * The writer thread is a daemon, close the returned system to stop it sooner
+     */
+    public EventLoopLiveOrderSystem bootstrapEventLoop() {
+        return new EventLoopLiveOrderSystem(EVENT_LOOP_RING_BUFFER_SIZE, orderRequestValidator,
+                nextOrderNumberProvider, toOrderDetailsAdapter);
+    }
+
+    /**
+     * Orders are spread over in memory shards by user, each shard numbering its orders from its own range
+     */
+    public ShardedLiveOrderSystem bootstrapSharded(int shardCount) {
+        List<InMemoryLiveOrderSystem> shards = new ArrayList<>(shardCount);
+        for (int shard = 0; shard < shardCount; shard++) {
+            shards.add(new InMemoryLiveOrderSystem(orderRequestValidator,
+                    new StripedOrderNumberSequence(ShardedLiveOrderSystem.firstOrderNumber(shard), ORDER_NUMBER_BLOCK_SIZE), toOrderDetailsAdapter));
+        }
+        return new ShardedLiveOrderSystem(shards, orderRequestValidator);
+    }
+
+    /**
+     * In memory system rebuilt from, and then journalling to, the snapshot and journal segments in the given directory
+     */
+    public JournalingLiveOrderSystem bootstrapJournaled(Path journalDirectory) throws IOException {
+        SegmentedJournal journal = SegmentedJournal.open(journalDirectory, JOURNAL_INITIAL_CAPACITY_BYTES, JOURNAL_SYNC_EVERY_EVENTS,
+                JOURNAL_SYNC_EVERY_MILLIS);
+        return JournalingLiveOrderSystem.open(bootstrap(), journal);
+    }
+
+    /**
+     * In memory system that publishes its writes for replicas to follow, see {@link #bootstrapReplica()}
+     */
+    public ReplicatingLiveOrderSystem bootstrapPrimary() {
+        return new ReplicatingLiveOrderSystem(bootstrap());
+    }
+
+    /**
+     * Read only in memory system to connect to a primary through a
+     * {@link com.fadams.silver.bars.replication.ReplicationTransport}. Its board has an order number sequence of its
+     * own, as it only ever restores the numbers the primary handed out.
+     */
+    public ReplicaLiveOrderSystem bootstrapReplica() {
+        return new ReplicaLiveOrderSystem(new InMemoryLiveOrderSystem(orderRequestValidator,
+                new StripedOrderNumberSequence(0, ORDER_NUMBER_BLOCK_SIZE), toOrderDetailsAdapter));
+    }
+
+    /**
+     * Wraps a system so that its latencies, counts and sizes are published over JMX under the given name, until
+     * the returned system is closed
+     */
+    public InstrumentedLiveOrderSystem instrument(LiveOrderSystem liveOrderSystem, String name) {
+        return new InstrumentedLiveOrderSystem(liveOrderSystem, new JmxMetricsSink(name));
+    }
+
+    /**
+     * Non blocking facade for one caller, all facades from this bootstrapper sharing one thread per task executor
+     * (virtual threads where the JDK has them)
+     */
+    public synchronized AsyncLiveOrderSystem async(LiveOrderSystem liveOrderSystem, int maxInFlight, int maxQueued) {
+        if (asyncExecutor == null) {
+            asyncExecutor = AsyncLiveOrderSystem.newThreadPerTaskExecutor();
+        }
+        return new AsyncLiveOrderSystem(liveOrderSystem, asyncExecutor, maxInFlight, maxQueued);
+    }
+
+    /**
+     * Cancels orders registered with an expiry time once it passes, to within ten milliseconds. Wrap outside any
+     * journaling system, expiry times are not journaled.
+     */
+    public ExpiringLiveOrderSystem expiring(LiveOrderSystem liveOrderSystem, ExpiryListener listener) {
+        return new ExpiringLiveOrderSystem(liveOrderSystem, EXPIRY_TICK_MILLIS, EXPIRY_WHEEL_SIZE, listener);
+    }
+
+    /**
+     * Keeps a ladder at each tick size up to date from the levels the system publishes, for summaries by
+     * {@link LiveOrderSystem#orderSummary(com.fadams.silver.bars.model.PurchaseType, BigDecimal)}. Close the returned
+     * system to stop listening.
+     */
+    public LadderedLiveOrderSystem laddered(LiveOrderSystem liveOrderSystem, BigDecimal... tickSizes) {
+        return new LadderedLiveOrderSystem(liveOrderSystem, Arrays.asList(tickSizes));
+    }
+
+    /**
+     * Samples the best levels and total of each side every interval into a ring of fixed size. Fixed point and
+     * arena systems are sampled without allocating, the in memory system from its running totals and best levels,
+     * any other system through its summaries.
+     */
+    public DepthHistory depthHistory(LiveOrderSystem liveOrderSystem, int capacity, int depth, long intervalMillis) {
+        DepthSource source = liveOrderSystem instanceof DepthSource ? (DepthSource) liveOrderSystem : DepthSource.ofSummaries(liveOrderSystem);
+        return new DepthHistory(source, capacity, depth, intervalMillis);
+    }
 }
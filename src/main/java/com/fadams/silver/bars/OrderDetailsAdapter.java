@@ -0,0 +1,14 @@
+package com.fadams.silver.bars;
+
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderRequest;
+
+/**
+ * Turns a registered request into its details. Takes the order id as a number so that its String form need only be
+ * built if somebody asks for it.
+ */
+@FunctionalInterface
+public interface OrderDetailsAdapter {
+
+    OrderDetails toOrderDetails(long orderId, OrderRequest orderRequest);
+}
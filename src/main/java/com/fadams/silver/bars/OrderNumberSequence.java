@@ -0,0 +1,22 @@
+package com.fadams.silver.bars;
+
+/**
+ * Hands out order numbers, either one at a time or as a contiguous block for batches
+ */
+public interface OrderNumberSequence {
+
+    /**
+     * @param count how many order numbers to reserve
+     * @return the first of count contiguous order numbers, all now reserved for the caller
+     */
+    long reserve(int count);
+
+    default long next() {
+        return reserve(1);
+    }
+
+    /**
+     * Makes sure an order number restored from elsewhere (a journal for example) is never handed out again
+     */
+    void advancePast(long orderNumber);
+}
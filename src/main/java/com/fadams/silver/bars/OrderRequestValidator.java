@@ -2,16 +2,35 @@ package com.fadams.silver.bars;
 
 import com.fadams.silver.bars.model.OrderRequest;
 
-import java.util.Objects;
-
 public class OrderRequestValidator {
+    /**
+     * Never throws or allocates, for callers that expect to see bad requests
+     *
+     * @return the first problem with the request, or {@link ValidationResult#VALID}
+     */
+    public ValidationResult check(OrderRequest orderRequest) {
+        if (orderRequest.getUserId() == null) {
+            return ValidationResult.MISSING_USER_ID;
+        }
+        if (orderRequest.getOrderQuantity() == null) {
+            return ValidationResult.MISSING_ORDER_QUANTITY;
+        }
+        if (orderRequest.getPricePerKg() == null) {
+            return ValidationResult.MISSING_PRICE_PER_KG;
+        }
+        if (orderRequest.getPurchaseType() == null) {
+            return ValidationResult.MISSING_PURCHASE_TYPE;
+        }
+        return ValidationResult.VALID;
+    }
+
+    /**
+     * @throws NullPointerException naming the first missing field, as callers of the register methods have always seen
+     */
     public void validate(OrderRequest orderRequest) {
-        // would not usually use Objects.require
-        // would not usually throw validation checks as exceptions as it is not "exceptional".
-        //     would prefer to return a validation success or failure object (if Either was available)
-        Objects.requireNonNull(orderRequest.getUserId(), "userId is mandatory");
-        Objects.requireNonNull(orderRequest.getOrderQuantity(), "orderQuantity is mandatory");
-        Objects.requireNonNull(orderRequest.getPricePerKg(), "pricePerKg is mandatory");
-        Objects.requireNonNull(orderRequest.getPurchaseType(), "purchaseType is mandatory");
+        ValidationResult result = check(orderRequest);
+        if (!result.isValid()) {
+            throw new NullPointerException(result.getMessage());
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.fadams.silver.bars;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands each thread its own block of order numbers, so registering threads only touch the shared counter once per
+ * block rather than once per order. Numbers stay compact non negative longs made of whatever node or shard bits the
+ * first order number carries (see {@link com.fadams.silver.bars.sharded.ShardedLiveOrderSystem#firstOrderNumber})
+ * plus a sequence. They are unique and sort by node, but within a node only by block, as each thread works through
+ * its block at its own pace.
+ */
+public class StripedOrderNumberSequence implements OrderNumberSequence {
+    private final AtomicLong nextBlock;
+    private final AtomicLong restoredUpTo = new AtomicLong(-1);
+    private final int blockSize;
+    private final ThreadLocal<Block> blocks = ThreadLocal.withInitial(Block::new);
+
+    public StripedOrderNumberSequence(long firstOrderNumber, int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive, not " + blockSize);
+        }
+        this.nextBlock = new AtomicLong(firstOrderNumber);
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Counts that fit what is left of the thread's block come from it, counts of a block or more straight from the
+     * shared counter, and anything else starts the thread on a new block
+     */
+    @Override
+    public long reserve(int count) {
+        Block block = blocks.get();
+        long restored = restoredUpTo.get();
+        if (block.next <= restored) {
+            // skip past restored order numbers, anything in the block above them is still this thread's alone
+            block.next = Math.min(restored + 1, block.end);
+        }
+        if (block.end - block.next < count) {
+            if (count >= blockSize) {
+                return nextBlock.getAndAdd(count);
+            }
+            block.next = nextBlock.getAndAdd(blockSize);
+            block.end = block.next + blockSize;
+        }
+        long first = block.next;
+        block.next += count;
+        return first;
+    }
+
+    @Override
+    public void advancePast(long orderNumber) {
+        restoredUpTo.accumulateAndGet(orderNumber, Math::max);
+        nextBlock.accumulateAndGet(orderNumber + 1, Math::max);
+    }
+
+    private static final class Block {
+        private long next;
+        private long end;
+    }
+}
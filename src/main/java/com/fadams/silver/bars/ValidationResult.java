@@ -0,0 +1,29 @@
+package com.fadams.silver.bars;
+
+/**
+ * Outcome of checking an order request, the first problem found or {@link #VALID}
+ */
+public enum ValidationResult {
+    VALID(null),
+    MISSING_USER_ID("userId is mandatory"),
+    MISSING_ORDER_QUANTITY("orderQuantity is mandatory"),
+    MISSING_PRICE_PER_KG("pricePerKg is mandatory"),
+    MISSING_PURCHASE_TYPE("purchaseType is mandatory");
+
+    private final String message;
+
+    ValidationResult(String message) {
+        this.message = message;
+    }
+
+    public boolean isValid() {
+        return this == VALID;
+    }
+
+    /**
+     * @return what is wrong with the request, null when it is valid
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,167 @@
+package com.fadams.silver.bars.async;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.util.ArrayDeque;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Non blocking facade over a {@link LiveOrderSystem}, every call is run on an executor and answered through a
+ * {@link CompletableFuture}. Each facade is meant for one caller and lets at most maxInFlight of its calls run at
+ * once, the next maxQueued wait in arrival order without holding a thread, and anything beyond that fails straight
+ * away with a {@link RejectedExecutionException}. So a burst from one caller queues up predictably rather than
+ * taking every thread, while many facades can share the same executor and system.
+ */
+public class AsyncLiveOrderSystem {
+    private final LiveOrderSystem delegate;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final int maxQueued;
+    // guarded by this
+    private final Queue<Task<?>> waiting = new ArrayDeque<>();
+    private int inFlight;
+
+    public AsyncLiveOrderSystem(LiveOrderSystem delegate, Executor executor, int maxInFlight, int maxQueued) {
+        if (maxInFlight < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("maxInFlight must be positive and maxQueued not negative, not "
+                    + maxInFlight + " and " + maxQueued);
+        }
+        this.delegate = delegate;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+    }
+
+    /**
+     * A thread per task executor, the threads being virtual where the JDK has them (21 onwards) and otherwise pooled
+     * daemon platform threads. Looked up reflectively so that this still builds and runs on Java 8.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "live-order-system-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public CompletableFuture<String> registerOrder(OrderRequest orderRequest) {
+        return submit(() -> delegate.registerOrder(orderRequest));
+    }
+
+    /**
+     * Completes exceptionally with {@link com.fadams.silver.bars.model.OrderNotFoundException} if there is no such
+     * live order
+     */
+    public CompletableFuture<OrderDetails> orderDetails(String orderId) {
+        return submit(() -> delegate.orderDetails(orderId));
+    }
+
+    public CompletableFuture<Optional<OrderDetails>> findOrder(String orderId) {
+        return submit(() -> delegate.findOrder(orderId));
+    }
+
+    /**
+     * Completes exceptionally with {@link com.fadams.silver.bars.model.OrderNotFoundException} if there is no such
+     * live order
+     */
+    public CompletableFuture<OrderDetails> cancelOrder(String orderId) {
+        return submit(() -> delegate.cancelOrder(orderId));
+    }
+
+    public CompletableFuture<Optional<OrderDetails>> tryCancel(String orderId) {
+        return submit(() -> delegate.tryCancel(orderId));
+    }
+
+    public CompletableFuture<OrdersSummary> orderSummary(PurchaseType purchaseType) {
+        return submit(() -> delegate.orderSummary(purchaseType));
+    }
+
+    public CompletableFuture<OrdersSummary> orderSummary(PurchaseType purchaseType, int depth) {
+        return submit(() -> delegate.orderSummary(purchaseType, depth));
+    }
+
+    /**
+     * @return calls of this facade running or waiting to run
+     */
+    public synchronized int pending() {
+        return inFlight + waiting.size();
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> call) {
+        Task<T> task = new Task<>(call);
+        synchronized (this) {
+            if (inFlight == maxInFlight) {
+                if (waiting.size() == maxQueued) {
+                    task.result.completeExceptionally(new RejectedExecutionException(
+                            maxInFlight + " calls already running and " + maxQueued + " waiting"));
+                } else {
+                    waiting.add(task);
+                }
+                return task.result;
+            }
+            inFlight++;
+        }
+        dispatch(task);
+        return task.result;
+    }
+
+    private void dispatch(Task<?> task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.result.completeExceptionally(e);
+            finished();
+        }
+    }
+
+    /**
+     * Hands the finished call's slot straight to the longest waiting one, if there is one
+     */
+    private void finished() {
+        Task<?> next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        if (next != null) {
+            dispatch(next);
+        }
+    }
+
+    private final class Task<T> implements Runnable {
+        private final Callable<T> call;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private Task(Callable<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result.complete(call.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            } finally {
+                finished();
+            }
+        }
+    }
+}
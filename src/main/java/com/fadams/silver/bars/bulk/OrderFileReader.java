@@ -0,0 +1,245 @@
+package com.fadams.silver.bars.bulk;
+
+import com.fadams.silver.bars.codec.OrderRequestFlyweight;
+import com.fadams.silver.bars.fixedpoint.BulkOrders;
+import com.fadams.silver.bars.fixedpoint.FixedPoint;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads order files into {@link BulkOrders} for {@link com.fadams.silver.bars.fixedpoint.FixedPointLiveOrderSystem#load}.
+ * Files are memory mapped a window at a time and parsed in place, with no String per line, no splitting and no
+ * BigDecimal, decimals going straight to pence and grams. User ids are interned, so each user costs one String.
+ * <ul>
+ * <li>CSV files have one userId,purchaseType,orderQuantity,pricePerKg order per line, the purchase type being BUY
+ * or SELL, with an optional header line starting userId. Line endings may be \n or \r\n.</li>
+ * <li>Binary files are {@link OrderRequestFlyweight} records back to back, in big endian byte order.</li>
+ * </ul>
+ */
+public final class OrderFileReader {
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final byte[] HEADER = {'u', 's', 'e', 'r', 'I', 'd'};
+
+    private final Path file;
+    private final long windowBytes;
+    private final BulkOrders bulkOrders = new BulkOrders();
+    private final UserIdTable userIds = new UserIdTable();
+    private final OrderRequestFlyweight orderRequest = new OrderRequestFlyweight();
+    private byte[] userIdBytes = new byte[64];
+    private long lineNumber;
+
+    private OrderFileReader(Path file, long windowBytes) {
+        this.file = file;
+        this.windowBytes = windowBytes;
+    }
+
+    public static BulkOrders readCsv(Path file) throws IOException {
+        return readCsv(file, WINDOW_BYTES);
+    }
+
+    public static BulkOrders readBinary(Path file) throws IOException {
+        return readBinary(file, WINDOW_BYTES);
+    }
+
+    static BulkOrders readCsv(Path file, long windowBytes) throws IOException {
+        OrderFileReader reader = new OrderFileReader(file, windowBytes);
+        reader.read(true);
+        return reader.bulkOrders;
+    }
+
+    static BulkOrders readBinary(Path file, long windowBytes) throws IOException {
+        OrderFileReader reader = new OrderFileReader(file, windowBytes);
+        reader.read(false);
+        return reader.bulkOrders;
+    }
+
+    /**
+     * A window only ever ends on a whole record, the next one is mapped from where the last whole record ended
+     */
+    private void read(boolean csv) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                int length = (int) Math.min(windowBytes, size - position);
+                boolean lastWindow = position + length == size;
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int consumed = csv ? readCsvLines(window, length, lastWindow) : readBinaryRecords(window, length, lastWindow);
+                if (consumed == 0) {
+                    throw new IllegalArgumentException(file + " has a record longer than " + windowBytes + " bytes at byte " + position);
+                }
+                position += consumed;
+            }
+        }
+    }
+
+    private int readCsvLines(MappedByteBuffer window, int length, boolean lastWindow) {
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = indexOf(window, (byte) '\n', lineStart, length);
+            if (lineEnd < 0) {
+                if (!lastWindow) {
+                    return lineStart;
+                }
+                lineEnd = length;
+            }
+            lineNumber++;
+            int contentEnd = lineEnd > lineStart && window.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > lineStart && !(lineNumber == 1 && startsWith(window, lineStart, contentEnd, HEADER))) {
+                readCsvLine(window, lineStart, contentEnd);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return length;
+    }
+
+    private void readCsvLine(MappedByteBuffer window, int start, int end) {
+        int userIdEnd = fieldEnd(window, start, end);
+        int purchaseTypeEnd = fieldEnd(window, userIdEnd + 1, end);
+        int orderQuantityEnd = fieldEnd(window, purchaseTypeEnd + 1, end);
+        if (orderQuantityEnd >= end) {
+            throw invalid("expected userId,purchaseType,orderQuantity,pricePerKg");
+        }
+        if (userIdEnd == start) {
+            throw invalid("userId is mandatory");
+        }
+        String userId = userId(window, start, userIdEnd);
+        PurchaseType purchaseType = purchaseType(window, userIdEnd + 1, purchaseTypeEnd);
+        try {
+            long quantityGrams = decimal(window, purchaseTypeEnd + 1, orderQuantityEnd, true);
+            long pricePence = decimal(window, orderQuantityEnd + 1, end, false);
+            bulkOrders.add(userId, quantityGrams, pricePence, purchaseType);
+        } catch (IllegalArgumentException e) {
+            throw invalid(e.getMessage());
+        }
+    }
+
+    private int readBinaryRecords(MappedByteBuffer window, int length, boolean lastWindow) {
+        int recordStart = 0;
+        while (length - recordStart >= OrderRequestFlyweight.FIXED_LENGTH) {
+            orderRequest.wrap(window, recordStart);
+            int recordLength = orderRequest.encodedLength();
+            if (length - recordStart < recordLength) {
+                break;
+            }
+            lineNumber++;
+            if (userIdBytes.length < orderRequest.userIdLength()) {
+                userIdBytes = new byte[orderRequest.userIdLength()];
+            }
+            orderRequest.userIdBytes(userIdBytes);
+            try {
+                bulkOrders.add(userIds.intern(userIdBytes, orderRequest.userIdLength()),
+                        FixedPoint.toGrams(orderRequest.orderQuantityMantissa(), orderRequest.orderQuantityScale()),
+                        FixedPoint.toPence(orderRequest.pricePerKgMantissa(), orderRequest.pricePerKgScale()),
+                        orderRequest.purchaseType());
+            } catch (IllegalArgumentException e) {
+                throw invalid(e.getMessage());
+            }
+            recordStart += recordLength;
+        }
+        if (lastWindow && recordStart < length) {
+            lineNumber++;
+            throw invalid("truncated record");
+        }
+        return recordStart;
+    }
+
+    private String userId(MappedByteBuffer window, int start, int end) {
+        int length = end - start;
+        if (userIdBytes.length < length) {
+            userIdBytes = new byte[length];
+        }
+        for (int i = 0; i < length; i++) {
+            userIdBytes[i] = window.get(start + i);
+        }
+        return userIds.intern(userIdBytes, length);
+    }
+
+    private PurchaseType purchaseType(MappedByteBuffer window, int start, int end) {
+        for (PurchaseType purchaseType : PurchaseType.values()) {
+            String name = purchaseType.name();
+            if (name.length() == end - start) {
+                boolean matches = true;
+                for (int i = 0; i < name.length() && matches; i++) {
+                    matches = window.get(start + i) == name.charAt(i);
+                }
+                if (matches) {
+                    return purchaseType;
+                }
+            }
+        }
+        throw invalid("purchaseType must be BUY or SELL");
+    }
+
+    /**
+     * Plain decimal notation only, an optional sign, digits and at most one point
+     */
+    private long decimal(MappedByteBuffer window, int start, int end, boolean quantity) {
+        String fieldName = quantity ? "orderQuantity" : "pricePerKg";
+        int index = start;
+        boolean negative = index < end && window.get(index) == '-';
+        if (negative) {
+            index++;
+        }
+        long mantissa = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; index < end; index++) {
+            byte b = window.get(index);
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9') {
+                if (++digits > 18) {
+                    throw new IllegalArgumentException(fieldName + " has too many digits");
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                throw new IllegalArgumentException(fieldName + " is not a decimal number");
+            }
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException(fieldName + " is mandatory");
+        }
+        mantissa = negative ? -mantissa : mantissa;
+        scale = Math.max(scale, 0);
+        return quantity ? FixedPoint.toGrams(mantissa, scale) : FixedPoint.toPence(mantissa, scale);
+    }
+
+    private IllegalArgumentException invalid(String problem) {
+        return new IllegalArgumentException(file + " record " + lineNumber + ": " + problem);
+    }
+
+    private static int fieldEnd(MappedByteBuffer window, int start, int end) {
+        int comma = start > end ? -1 : indexOf(window, (byte) ',', start, end);
+        return comma < 0 ? end : comma;
+    }
+
+    private static int indexOf(MappedByteBuffer window, byte value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (window.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(MappedByteBuffer window, int start, int end, byte[] prefix) {
+        if (end - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (window.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+package com.fadams.silver.bars.bulk;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns user ids straight from their bytes, so a file with millions of orders from a few thousand users builds
+ * a few thousand Strings. ASCII ids are found without decoding, others are decoded first.
+ */
+final class UserIdTable {
+    private String[] userIds = new String[1024];
+    private int[] hashes = new int[1024];
+    private int size;
+    private final Map<String, String> nonAscii = new HashMap<>();
+
+    String intern(byte[] bytes, int length) {
+        int hash = 1;
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + bytes[i];
+            ascii &= bytes[i] >= 0;
+        }
+        if (!ascii) {
+            return nonAscii.computeIfAbsent(new String(bytes, 0, length, StandardCharsets.UTF_8), userId -> userId);
+        }
+        int mask = userIds.length - 1;
+        int slot = mix(hash) & mask;
+        while (userIds[slot] != null) {
+            if (hashes[slot] == hash && matches(userIds[slot], bytes, length)) {
+                return userIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String userId = new String(bytes, 0, length, StandardCharsets.US_ASCII);
+        userIds[slot] = userId;
+        hashes[slot] = hash;
+        if (++size * 2 > userIds.length) {
+            grow();
+        }
+        return userId;
+    }
+
+    private void grow() {
+        String[] oldUserIds = userIds;
+        int[] oldHashes = hashes;
+        userIds = new String[oldUserIds.length * 2];
+        hashes = new int[oldUserIds.length * 2];
+        int mask = userIds.length - 1;
+        for (int oldSlot = 0; oldSlot < oldUserIds.length; oldSlot++) {
+            if (oldUserIds[oldSlot] != null) {
+                int slot = mix(oldHashes[oldSlot]) & mask;
+                while (userIds[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                userIds[slot] = oldUserIds[oldSlot];
+                hashes[slot] = oldHashes[oldSlot];
+            }
+        }
+    }
+
+    private static boolean matches(String userId, byte[] bytes, int length) {
+        if (userId.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (userId.charAt(i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,70 @@
+package com.fadams.silver.bars.codec;
+
+import com.fadams.silver.bars.fixedpoint.FixedPoint;
+import com.fadams.silver.bars.fixedpoint.FixedPointOrderEntry;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Puts a board on the end of binary messages. Orders are registered straight from the bytes: a board that takes
+ * {@link FixedPointOrderEntry} is handed the mantissas converted to pence and grams and the user id's bytes, so
+ * nothing is built per message, any other board gets the one {@link OrderRequest} it needs.
+ * Answers are written back into a caller's buffer. Not thread safe, as the flyweights are reused, so keep one
+ * gateway per thread over a shared board.
+ */
+public class BinaryOrderGateway {
+    private final LiveOrderSystem liveOrderSystem;
+    private final OrderRequestFlyweight orderRequest = new OrderRequestFlyweight();
+    private final OrderDetailsFlyweight orderDetails = new OrderDetailsFlyweight();
+    private final OrdersSummaryFlyweight ordersSummary = new OrdersSummaryFlyweight();
+    // null when the board only takes OrderRequests
+    private final FixedPointOrderEntry orderEntry;
+    private byte[] userId = new byte[64];
+
+    public BinaryOrderGateway(LiveOrderSystem liveOrderSystem) {
+        this.liveOrderSystem = liveOrderSystem;
+        this.orderEntry = liveOrderSystem instanceof FixedPointOrderEntry ? (FixedPointOrderEntry) liveOrderSystem : null;
+    }
+
+    /**
+     * @param buffer holds an {@link OrderRequestFlyweight} encoded order request
+     * @param offset where the request starts
+     * @return numeric order id
+     */
+    public long registerOrder(ByteBuffer buffer, int offset) {
+        OrderRequestFlyweight request = orderRequest.wrap(buffer, offset);
+        if (orderEntry == null) {
+            return liveOrderSystem.registerOrderId(request.toOrderRequest());
+        }
+        int userIdLength = request.userIdLength();
+        if (userIdLength > userId.length) {
+            userId = new byte[Math.max(userIdLength, userId.length * 2)];
+        }
+        request.userIdBytes(userId);
+        int quantityScale = request.orderQuantityScale();
+        int priceScale = request.pricePerKgScale();
+        return orderEntry.registerOrderId(userId, userIdLength,
+                FixedPoint.toGrams(request.orderQuantityMantissa(), quantityScale), quantityScale,
+                FixedPoint.toPence(request.pricePerKgMantissa(), priceScale), priceScale, request.purchaseType());
+    }
+
+    /**
+     * @return bytes of {@link OrderDetailsFlyweight} written, 0 when the order was not found
+     */
+    public int encodeOrderDetails(long orderId, ByteBuffer buffer, int offset) {
+        Optional<OrderDetails> order = liveOrderSystem.findOrder(orderId);
+        return order.isPresent() ? orderDetails.wrap(buffer, offset).encode(order.get()) : 0;
+    }
+
+    /**
+     * @return bytes of {@link OrdersSummaryFlyweight} written
+     */
+    public int encodeOrderSummary(PurchaseType purchaseType, int depth, ByteBuffer buffer, int offset) {
+        return ordersSummary.wrap(buffer, offset).encode(liveOrderSystem.orderSummary(purchaseType, depth));
+    }
+}
@@ -0,0 +1,41 @@
+package com.fadams.silver.bars.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Decimals on the wire are a fixed nine bytes, a long mantissa followed by a one byte scale, like an SBE decimal
+ * composite. That covers every price and quantity the board deals in and is read without any parsing.
+ */
+final class Decimals {
+    static final int LENGTH = Long.BYTES + 1;
+
+    private Decimals() {
+    }
+
+    static void put(ByteBuffer buffer, int index, BigDecimal value, String fieldName) {
+        BigInteger mantissa = value.unscaledValue();
+        if (value.scale() < Byte.MIN_VALUE || value.scale() > Byte.MAX_VALUE || mantissa.bitLength() > 63) {
+            throw new IllegalArgumentException(fieldName + " " + value + " does not fit a long mantissa and byte scale");
+        }
+        put(buffer, index, mantissa.longValue(), value.scale());
+    }
+
+    static void put(ByteBuffer buffer, int index, long mantissa, int scale) {
+        buffer.putLong(index, mantissa);
+        buffer.put(index + Long.BYTES, (byte) scale);
+    }
+
+    static long mantissa(ByteBuffer buffer, int index) {
+        return buffer.getLong(index);
+    }
+
+    static int scale(ByteBuffer buffer, int index) {
+        return buffer.get(index + Long.BYTES);
+    }
+
+    static BigDecimal get(ByteBuffer buffer, int index) {
+        return BigDecimal.valueOf(mantissa(buffer, index), scale(buffer, index));
+    }
+}
@@ -0,0 +1,59 @@
+package com.fadams.silver.bars.codec;
+
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An order as the board holds it, the numeric order id followed by the {@link OrderRequestFlyweight} layout of the
+ * rest of the order. Not thread safe, keep one per thread.
+ */
+public class OrderDetailsFlyweight {
+    private static final int ORDER_ID_OFFSET = 0;
+    private static final int ORDER_REQUEST_OFFSET = ORDER_ID_OFFSET + Long.BYTES;
+
+    private final OrderRequestFlyweight orderRequest = new OrderRequestFlyweight();
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OrderDetailsFlyweight wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        orderRequest.wrap(buffer, offset + ORDER_REQUEST_OFFSET);
+        return this;
+    }
+
+    /**
+     * @return bytes written
+     */
+    public int encode(OrderDetails orderDetails) {
+        long orderId = orderDetails.getOrderNumber();
+        if (orderId == OrderIds.NOT_AN_ORDER_ID) {
+            throw new IllegalArgumentException(orderDetails.getOrderId() + " is not a numeric order id");
+        }
+        buffer.putLong(offset + ORDER_ID_OFFSET, orderId);
+        return ORDER_REQUEST_OFFSET + orderRequest.encode(orderDetails.getUserId(), orderDetails.getOrderQuantity(),
+                orderDetails.getPricePerKg(), orderDetails.getPurchaseType());
+    }
+
+    public long orderId() {
+        return buffer.getLong(offset + ORDER_ID_OFFSET);
+    }
+
+    /**
+     * @return the rest of the order, a view of the same bytes
+     */
+    public OrderRequestFlyweight orderRequest() {
+        return orderRequest;
+    }
+
+    public int encodedLength() {
+        return ORDER_REQUEST_OFFSET + orderRequest.encodedLength();
+    }
+
+    public OrderDetails toOrderDetails() {
+        return new OrderDetails(orderId(), orderRequest.userId(), orderRequest.orderQuantity(),
+                orderRequest.pricePerKg(), orderRequest.purchaseType());
+    }
+}
@@ -0,0 +1,129 @@
+package com.fadams.silver.bars.codec;
+
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes an order request in place in a buffer, in the buffer's byte order, with the fixed layout
+ * [purchase type][quantity][price per kg][user id] where decimals are a long mantissa and byte scale and the user id
+ * comes last as it is the only variable length field. Fields are read straight from the buffer when asked for, so
+ * a flyweight can be wrapped around each message in turn without allocating. Not thread safe, keep one per thread.
+ */
+public class OrderRequestFlyweight {
+    private static final int PURCHASE_TYPE_OFFSET = 0;
+    private static final int ORDER_QUANTITY_OFFSET = PURCHASE_TYPE_OFFSET + 1;
+    private static final int PRICE_PER_KG_OFFSET = ORDER_QUANTITY_OFFSET + Decimals.LENGTH;
+    private static final int USER_ID_OFFSET = PRICE_PER_KG_OFFSET + Decimals.LENGTH;
+    /**
+     * Bytes in a message before the user id's own bytes, so also the length of the shortest possible message
+     */
+    public static final int FIXED_LENGTH = USER_ID_OFFSET + Short.BYTES;
+    private static final PurchaseType[] PURCHASE_TYPES = PurchaseType.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OrderRequestFlyweight wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    /**
+     * @return bytes written
+     */
+    public int encode(OrderRequest orderRequest) {
+        return encode(orderRequest.getUserId(), orderRequest.getOrderQuantity(), orderRequest.getPricePerKg(), orderRequest.getPurchaseType());
+    }
+
+    int encode(String userId, BigDecimal orderQuantity, BigDecimal pricePerKg, PurchaseType purchaseType) {
+        purchaseType(purchaseType);
+        Decimals.put(buffer, offset + ORDER_QUANTITY_OFFSET, orderQuantity, "orderQuantity");
+        Decimals.put(buffer, offset + PRICE_PER_KG_OFFSET, pricePerKg, "pricePerKg");
+        return userId(userId);
+    }
+
+    public OrderRequestFlyweight purchaseType(PurchaseType purchaseType) {
+        buffer.put(offset + PURCHASE_TYPE_OFFSET, (byte) purchaseType.ordinal());
+        return this;
+    }
+
+    public OrderRequestFlyweight orderQuantity(long mantissa, int scale) {
+        Decimals.put(buffer, offset + ORDER_QUANTITY_OFFSET, mantissa, scale);
+        return this;
+    }
+
+    public OrderRequestFlyweight pricePerKg(long mantissa, int scale) {
+        Decimals.put(buffer, offset + PRICE_PER_KG_OFFSET, mantissa, scale);
+        return this;
+    }
+
+    /**
+     * Written last, as the length of the message depends on it
+     *
+     * @return bytes in the whole message
+     */
+    public int userId(String userId) {
+        return USER_ID_OFFSET + UserIds.put(buffer, offset + USER_ID_OFFSET, userId);
+    }
+
+    public PurchaseType purchaseType() {
+        int ordinal = buffer.get(offset + PURCHASE_TYPE_OFFSET);
+        if (ordinal < 0 || ordinal >= PURCHASE_TYPES.length) {
+            throw new IllegalArgumentException("unknown purchase type " + ordinal);
+        }
+        return PURCHASE_TYPES[ordinal];
+    }
+
+    public long orderQuantityMantissa() {
+        return Decimals.mantissa(buffer, offset + ORDER_QUANTITY_OFFSET);
+    }
+
+    public int orderQuantityScale() {
+        return Decimals.scale(buffer, offset + ORDER_QUANTITY_OFFSET);
+    }
+
+    public BigDecimal orderQuantity() {
+        return Decimals.get(buffer, offset + ORDER_QUANTITY_OFFSET);
+    }
+
+    public long pricePerKgMantissa() {
+        return Decimals.mantissa(buffer, offset + PRICE_PER_KG_OFFSET);
+    }
+
+    public int pricePerKgScale() {
+        return Decimals.scale(buffer, offset + PRICE_PER_KG_OFFSET);
+    }
+
+    public BigDecimal pricePerKg() {
+        return Decimals.get(buffer, offset + PRICE_PER_KG_OFFSET);
+    }
+
+    public String userId() {
+        return UserIds.get(buffer, offset + USER_ID_OFFSET);
+    }
+
+    public int userIdLength() {
+        return UserIds.length(buffer, offset + USER_ID_OFFSET);
+    }
+
+    /**
+     * For callers that look user ids up by their bytes rather than build a String for every message
+     *
+     * @param destination receives the UTF-8 bytes of the user id, must hold at least {@link #userIdLength()}
+     */
+    public void userIdBytes(byte[] destination) {
+        UserIds.copy(buffer, offset + USER_ID_OFFSET, destination);
+    }
+
+    public int encodedLength() {
+        return FIXED_LENGTH + userIdLength();
+    }
+
+    public OrderRequest toOrderRequest() {
+        return new OrderRequest(userId(), orderQuantity(), pricePerKg(), purchaseType());
+    }
+}
@@ -0,0 +1,111 @@
+package com.fadams.silver.bars.codec;
+
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * One side of the board in place in a buffer, in the buffer's byte order: a header of
+ * [purchase type][version][level count] followed by that many fixed size [price per kg][total in kg] levels in
+ * display order, so any level can be read directly by its index. Not thread safe, keep one per thread.
+ */
+public class OrdersSummaryFlyweight {
+    private static final int PURCHASE_TYPE_OFFSET = 0;
+    private static final int VERSION_OFFSET = PURCHASE_TYPE_OFFSET + 1;
+    private static final int LEVEL_COUNT_OFFSET = VERSION_OFFSET + Long.BYTES;
+    private static final int LEVELS_OFFSET = LEVEL_COUNT_OFFSET + Integer.BYTES;
+    private static final int LEVEL_LENGTH = 2 * Decimals.LENGTH;
+    private static final PurchaseType[] PURCHASE_TYPES = PurchaseType.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OrdersSummaryFlyweight wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public static int encodedLength(int levelCount) {
+        return LEVELS_OFFSET + levelCount * LEVEL_LENGTH;
+    }
+
+    /**
+     * @return bytes written
+     */
+    public int encode(OrdersSummary summary) {
+        Map<BigDecimal, BigDecimal> levels = summary.getAmountsInKgByPrice();
+        buffer.put(offset + PURCHASE_TYPE_OFFSET, (byte) summary.getPurchaseType().ordinal());
+        buffer.putLong(offset + VERSION_OFFSET, summary.getVersion());
+        buffer.putInt(offset + LEVEL_COUNT_OFFSET, levels.size());
+        int index = offset + LEVELS_OFFSET;
+        for (Map.Entry<BigDecimal, BigDecimal> level : levels.entrySet()) {
+            Decimals.put(buffer, index, level.getKey(), "pricePerKg");
+            Decimals.put(buffer, index + Decimals.LENGTH, level.getValue(), "totalInKg");
+            index += LEVEL_LENGTH;
+        }
+        return index - offset;
+    }
+
+    public PurchaseType purchaseType() {
+        int ordinal = buffer.get(offset + PURCHASE_TYPE_OFFSET);
+        if (ordinal < 0 || ordinal >= PURCHASE_TYPES.length) {
+            throw new IllegalArgumentException("unknown purchase type " + ordinal);
+        }
+        return PURCHASE_TYPES[ordinal];
+    }
+
+    public long version() {
+        return buffer.getLong(offset + VERSION_OFFSET);
+    }
+
+    public int levelCount() {
+        return buffer.getInt(offset + LEVEL_COUNT_OFFSET);
+    }
+
+    public long pricePerKgMantissa(int level) {
+        return Decimals.mantissa(buffer, levelOffset(level));
+    }
+
+    public int pricePerKgScale(int level) {
+        return Decimals.scale(buffer, levelOffset(level));
+    }
+
+    public BigDecimal pricePerKg(int level) {
+        return Decimals.get(buffer, levelOffset(level));
+    }
+
+    public long totalInKgMantissa(int level) {
+        return Decimals.mantissa(buffer, levelOffset(level) + Decimals.LENGTH);
+    }
+
+    public int totalInKgScale(int level) {
+        return Decimals.scale(buffer, levelOffset(level) + Decimals.LENGTH);
+    }
+
+    public BigDecimal totalInKg(int level) {
+        return Decimals.get(buffer, levelOffset(level) + Decimals.LENGTH);
+    }
+
+    public int encodedLength() {
+        return encodedLength(levelCount());
+    }
+
+    public OrdersSummary toOrdersSummary() {
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType()).version(version());
+        for (int level = 0; level < levelCount(); level++) {
+            summary.level(pricePerKg(level), totalInKg(level));
+        }
+        return summary.build();
+    }
+
+    private int levelOffset(int level) {
+        if (level < 0 || level >= levelCount()) {
+            throw new IndexOutOfBoundsException("level " + level + " of " + levelCount());
+        }
+        return offset + LEVELS_OFFSET + level * LEVEL_LENGTH;
+    }
+}
@@ -0,0 +1,75 @@
+package com.fadams.silver.bars.codec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * User ids on the wire are an unsigned short length followed by that many bytes of UTF-8. Ids that are plain ASCII,
+ * as they nearly always are, are written without allocating.
+ */
+final class UserIds {
+    static final int MAX_LENGTH = 0xFFFF;
+
+    private UserIds() {
+    }
+
+    /**
+     * @return bytes written, including the length
+     */
+    static int put(ByteBuffer buffer, int index, String userId) {
+        int length = userId.length();
+        if (isAscii(userId)) {
+            checkLength(length);
+            buffer.putShort(index, (short) length);
+            for (int i = 0; i < length; i++) {
+                buffer.put(index + Short.BYTES + i, (byte) userId.charAt(i));
+            }
+            return Short.BYTES + length;
+        }
+        byte[] utf8 = userId.getBytes(StandardCharsets.UTF_8);
+        checkLength(utf8.length);
+        buffer.putShort(index, (short) utf8.length);
+        for (int i = 0; i < utf8.length; i++) {
+            buffer.put(index + Short.BYTES + i, utf8[i]);
+        }
+        return Short.BYTES + utf8.length;
+    }
+
+    static int length(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & MAX_LENGTH;
+    }
+
+    static void copy(ByteBuffer buffer, int index, byte[] destination) {
+        int length = length(buffer, index);
+        for (int i = 0; i < length; i++) {
+            destination[i] = buffer.get(index + Short.BYTES + i);
+        }
+    }
+
+    static String get(ByteBuffer buffer, int index) {
+        int length = length(buffer, index);
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + index + Short.BYTES, length, StandardCharsets.UTF_8);
+        }
+        byte[] utf8 = new byte[length];
+        for (int i = 0; i < length; i++) {
+            utf8[i] = buffer.get(index + Short.BYTES + i);
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isAscii(String userId) {
+        for (int i = 0; i < userId.length(); i++) {
+            if (userId.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkLength(int length) {
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("userId is longer than " + MAX_LENGTH + " bytes");
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.fadams.silver.bars.collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread safe {@link LongHashIndex}, split into independently locked segments so writers to different
+ * segments do not contend. Reads are optimistic and only take the segment read lock when a write (or a resize)
+ * happened while they were looking.
+ *
+ * @param <V> value type, null values are not supported
+ */
+public class ConcurrentLongHashIndex<V> {
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment<V>[] segments;
+    private final int segmentShift;
+
+    public ConcurrentLongHashIndex() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongHashIndex(int segmentCount) {
+        if (segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("segmentCount must be a positive power of two but was " + segmentCount);
+        }
+        this.segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>();
+        }
+        // segments are picked with the top bits of the hash, the tables inside them use the bottom bits
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(segmentCount);
+    }
+
+    public V get(long key) {
+        Segment<V> segment = segmentFor(key);
+        StampedLock lock = segment.lock;
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            V value = segment.index.get(key);
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return segment.index.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the previous value for the key, or null if there was none
+     */
+    public V put(long key, V value) {
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.index.put(key, value);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the value already held for the key, in which case nothing changed, or null if value was added
+     */
+    public V putIfAbsent(long key, V value) {
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.index.putIfAbsent(key, value);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return the removed value, or null if the key was not present
+     */
+    public V remove(long key) {
+        Segment<V> segment = segmentFor(key);
+        long stamp = segment.lock.writeLock();
+        try {
+            return segment.index.remove(key);
+        } finally {
+            segment.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Weakly consistent, each segment's values are copied out under its read lock and handed to the consumer once
+     * the lock is released, so a slow consumer (writing a snapshot, say) never holds up writers
+     */
+    public void forEachValue(Consumer<? super V> consumer) {
+        List<V> values = new ArrayList<>();
+        for (Segment<V> segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                segment.index.forEachValue(values::add);
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+            values.forEach(consumer);
+            values.clear();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            long stamp = segment.lock.readLock();
+            try {
+                size += segment.index.size();
+            } finally {
+                segment.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    private Segment<V> segmentFor(long key) {
+        return segments.length == 1 ? segments[0] : segments[LongHashIndex.hash(key) >>> segmentShift];
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private final LongHashIndex<V> index = new LongHashIndex<>();
+    }
+}
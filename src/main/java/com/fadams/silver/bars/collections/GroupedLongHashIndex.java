@@ -0,0 +1,61 @@
+package com.fadams.silver.bars.collections;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread safe index of long keyed values split into groups, so everything in one group can be listed or taken out
+ * in time proportional to the size of that group. Each group is a {@link LongHashIndex} only ever touched inside
+ * {@link ConcurrentHashMap#compute}, so changes to different groups rarely contend, and a group is dropped as soon
+ * as it is empty.
+ *
+ * @param <G> group type
+ * @param <V> value type, null values are not supported
+ */
+public class GroupedLongHashIndex<G, V> {
+    private final ConcurrentHashMap<G, LongHashIndex<V>> groups = new ConcurrentHashMap<>();
+
+    public void put(G group, long key, V value) {
+        groups.compute(group, (ignored, index) -> {
+            LongHashIndex<V> groupIndex = index == null ? new LongHashIndex<>() : index;
+            groupIndex.put(key, value);
+            return groupIndex;
+        });
+    }
+
+    public void remove(G group, long key) {
+        groups.computeIfPresent(group, (ignored, index) -> {
+            index.remove(key);
+            return index.size() == 0 ? null : index;
+        });
+    }
+
+    /**
+     * @return a copy of the values in the group, in no particular order
+     */
+    public List<V> values(G group) {
+        List<V> values = new ArrayList<>();
+        groups.computeIfPresent(group, (ignored, index) -> {
+            index.forEachValue(values::add);
+            return index;
+        });
+        return values;
+    }
+
+    /**
+     * Takes the whole group out in one step, anything put into the group afterwards starts a new one
+     *
+     * @return the values that were in the group, in no particular order
+     */
+    public List<V> removeAll(G group) {
+        LongHashIndex<V> index = groups.remove(group);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        List<V> values = new ArrayList<>(index.size());
+        index.forEachValue(values::add);
+        return values;
+    }
+}
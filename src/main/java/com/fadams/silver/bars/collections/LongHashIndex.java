@@ -0,0 +1,187 @@
+package com.fadams.silver.bars.collections;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Open addressing (linear probing) hash map from a primitive long to a value, with no entry object per mapping.
+ * Removal shifts later entries of the same probe run back rather than leaving tombstones, so lookups never
+ * degrade over time. Not thread safe, see {@link ConcurrentLongHashIndex}.
+ *
+ * @param <V> value type, null values are not supported as null marks an empty slot
+ */
+public class LongHashIndex<V> {
+    private static final int MINIMUM_CAPACITY = 16;
+    // the largest power of two an array can hold, kept at most half full
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int resizeThreshold;
+
+    public LongHashIndex() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    public LongHashIndex(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public V get(long key) {
+        long[] keys = this.keys;
+        Object[] values = this.values;
+        // a reader racing a resize (see ConcurrentLongHashIndex) can see one new array and one old one, so stay
+        // within the smaller and bound the probe so that it always ends, the caller then discards the result
+        int mask = Math.min(keys.length, values.length) - 1;
+        for (int probe = 0, index = indexFor(key, mask); probe <= mask; probe++, index = (index + 1) & mask) {
+            Object value = values[index];
+            if (value == null) {
+                return null;
+            }
+            if (keys[index] == key) {
+                return cast(value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the previous value for the key, or null if there was none
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("value is mandatory");
+        }
+        int mask = values.length - 1;
+        int index = indexFor(key, mask);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V previous = cast(values[index]);
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            resize(values.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * @return the value already held for the key, in which case nothing changed, or null if value was added
+     */
+    public V putIfAbsent(long key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    /**
+     * @return the removed value, or null if the key was not present
+     */
+    public V remove(long key) {
+        int mask = values.length - 1;
+        int index = indexFor(key, mask);
+        while (values[index] != null) {
+            if (keys[index] == key) {
+                V removed = cast(values[index]);
+                shiftBack(index, mask);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public void forEachValue(Consumer<? super V> consumer) {
+        for (Object value : values) {
+            if (value != null) {
+                consumer.accept(cast(value));
+            }
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private void shiftBack(int emptied, int mask) {
+        int index = emptied;
+        while (true) {
+            index = (index + 1) & mask;
+            Object value = values[index];
+            if (value == null) {
+                break;
+            }
+            int home = indexFor(keys[index], mask);
+            // move the entry back only if the emptied slot lies on its probe path from home to where it is now
+            boolean reachable = emptied <= index
+                    ? emptied >= home || home > index
+                    : emptied >= home && home > index;
+            if (reachable) {
+                keys[emptied] = keys[index];
+                values[emptied] = value;
+                emptied = index;
+            }
+        }
+        values[emptied] = null;
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexFor(oldKeys[i], mask);
+                while (values[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        resizeThreshold = capacity / 2;
+    }
+
+    static int capacityFor(int expectedSize) {
+        if (expectedSize > MAXIMUM_CAPACITY / 2) {
+            throw new IllegalArgumentException("cannot hold more than " + MAXIMUM_CAPACITY / 2 + " entries, not " + expectedSize);
+        }
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    static int hash(long key) {
+        // fibonacci hashing spreads sequential order numbers across the whole table
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static int indexFor(long key, int mask) {
+        return hash(key) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+}
@@ -0,0 +1,135 @@
+package com.fadams.silver.bars.collections;
+
+import java.util.Arrays;
+
+/**
+ * {@link LongHashIndex} for non negative int values, held in a primitive array so that a mapping costs twelve
+ * bytes of table and no objects at all. Not thread safe.
+ */
+public class LongIntHashIndex {
+    public static final int MISSING = -1;
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int resizeThreshold;
+
+    public LongIntHashIndex() {
+        allocate(MINIMUM_CAPACITY);
+    }
+
+    /**
+     * Sized up front so that the first expectedSize puts never resize, as copying a table of tens of millions of
+     * entries stalls whoever holds the lock around it
+     */
+    public LongIntHashIndex(int expectedSize) {
+        allocate(LongHashIndex.capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the value for the key, or {@link #MISSING}
+     */
+    public int get(long key) {
+        int mask = values.length - 1;
+        for (int index = LongHashIndex.hash(key) & mask; values[index] != MISSING; index = (index + 1) & mask) {
+            if (keys[index] == key) {
+                return values[index];
+            }
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return the previous value for the key, or {@link #MISSING} if there was none
+     */
+    public int put(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative but was " + value);
+        }
+        int mask = values.length - 1;
+        int index = LongHashIndex.hash(key) & mask;
+        while (values[index] != MISSING) {
+            if (keys[index] == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            resize(values.length * 2);
+        }
+        return MISSING;
+    }
+
+    /**
+     * @return the removed value, or {@link #MISSING} if the key was not present
+     */
+    public int remove(long key) {
+        int mask = values.length - 1;
+        int index = LongHashIndex.hash(key) & mask;
+        while (values[index] != MISSING) {
+            if (keys[index] == key) {
+                int removed = values[index];
+                shiftBack(index, mask);
+                size--;
+                return removed;
+            }
+            index = (index + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    private void shiftBack(int emptied, int mask) {
+        int index = emptied;
+        while (true) {
+            index = (index + 1) & mask;
+            int value = values[index];
+            if (value == MISSING) {
+                break;
+            }
+            int home = LongHashIndex.hash(keys[index]) & mask;
+            // as in LongHashIndex, only entries whose probe path crosses the emptied slot may move into it
+            boolean reachable = emptied <= index
+                    ? emptied >= home || home > index
+                    : emptied >= home && home > index;
+            if (reachable) {
+                keys[emptied] = keys[index];
+                values[emptied] = value;
+                emptied = index;
+            }
+        }
+        values[emptied] = MISSING;
+    }
+
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        int mask = newCapacity - 1;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int index = LongHashIndex.hash(oldKeys[i]) & mask;
+                while (values[index] != MISSING) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        resizeThreshold = capacity / 2;
+    }
+}
@@ -0,0 +1,46 @@
+package com.fadams.silver.bars.eventloop;
+
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A pre-allocated, mutable ring buffer slot. Fields are written by the claiming producer before it publishes
+ * the slot and cleared by the writer thread once applied so the slot does not keep requests reachable.
+ */
+final class Command {
+    enum Type {
+        REGISTER,
+        REGISTER_BATCH,
+        RESTORE,
+        CANCEL,
+        CANCEL_BATCH,
+        DETAILS,
+        SUMMARY,
+        ORDERS,
+        USER_ORDERS,
+        CANCEL_USER,
+        COMPACTION_REPORT
+    }
+
+    Type type;
+    OrderRequest orderRequest;
+    List<OrderRequest> orderRequests;
+    Collection<String> orderIds;
+    long orderId;
+    String userId;
+    PurchaseType purchaseType;
+    Completion completion;
+
+    void clear() {
+        type = null;
+        orderRequest = null;
+        orderRequests = null;
+        orderIds = null;
+        userId = null;
+        purchaseType = null;
+        completion = null;
+    }
+}
@@ -0,0 +1,72 @@
+package com.fadams.silver.bars.eventloop;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Multi producer, single consumer ring of pre-allocated {@link Command} slots.
+ * Producers claim a sequence, fill the slot for it and then publish the sequence into that slot's marker; the
+ * consumer only reads a slot once its marker holds the sequence it is waiting for, so publication can happen
+ * out of claim order without the consumer seeing a half written command.
+ */
+final class CommandRingBuffer {
+    private final Command[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimSequence = new AtomicLong();
+    private volatile long consumerSequence;
+
+    CommandRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a positive power of two but was " + capacity);
+        }
+        this.slots = new Command[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Command();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Blocks (spinning then parking briefly) while the ring is full, which is the backpressure on callers.
+     *
+     * @return claimed sequence, the caller must fill {@link #slot(long)} and then {@link #publish(long)} it
+     */
+    long claim() {
+        long sequence = claimSequence.getAndIncrement();
+        for (int spins = 0; sequence - consumerSequence >= slots.length; spins++) {
+            if (spins < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        return sequence;
+    }
+
+    Command slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+    }
+
+    /**
+     * @return the next command for the consumer, or null if it has not been published yet
+     */
+    Command peek() {
+        long sequence = consumerSequence;
+        return published.get((int) sequence & mask) == sequence ? slots[(int) sequence & mask] : null;
+    }
+
+    /**
+     * Hands the slot returned by {@link #peek()} back to producers
+     */
+    void advance() {
+        consumerSequence = consumerSequence + 1;
+    }
+}
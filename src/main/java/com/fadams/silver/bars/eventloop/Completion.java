@@ -0,0 +1,70 @@
+package com.fadams.silver.bars.eventloop;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hand back from the writer thread to a caller blocked on one command. Each caller thread owns one and reuses it
+ * for every call, which is safe because a caller only ever has one command in flight.
+ */
+final class Completion {
+    private static final int SPINS_BEFORE_PARKING = 200;
+
+    private final Thread waiter = Thread.currentThread();
+    private volatile boolean done;
+    private long longResult;
+    private Object result;
+    private Throwable error;
+
+    void reset() {
+        result = null;
+        error = null;
+        done = false;
+    }
+
+    void complete(long longResult) {
+        this.longResult = longResult;
+        finish();
+    }
+
+    void complete(Object result) {
+        this.result = result;
+        finish();
+    }
+
+    void fail(Throwable error) {
+        this.error = error;
+        finish();
+    }
+
+    long awaitLong() {
+        await();
+        return longResult;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T awaitResult() {
+        await();
+        return (T) result;
+    }
+
+    private void finish() {
+        done = true;
+        LockSupport.unpark(waiter);
+    }
+
+    private void await() {
+        for (int spins = 0; !done; spins++) {
+            if (spins < SPINS_BEFORE_PARKING) {
+                Thread.yield();
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.fadams.silver.bars.eventloop;
+
+import com.fadams.silver.bars.OrderDetailsAdapter;
+import com.fadams.silver.bars.OrderNumberSequence;
+import com.fadams.silver.bars.OrderRequestValidator;
+import com.fadams.silver.bars.collections.LongHashIndex;
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.CompactionReport;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+import com.fadams.silver.bars.model.Subscription;
+import com.fadams.silver.bars.summary.PriceLevelPublisher;
+import com.fadams.silver.bars.summary.VersionedSummaryCache;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Every call is turned into a command on a ring buffer and applied by one writer thread, so the order index and
+ * both sides of the book are plain, unsynchronised structures and callers never contend on a hot price level,
+ * only on claiming a ring slot.
+ */
+public class EventLoopLiveOrderSystem implements RestorableLiveOrderSystem, AutoCloseable {
+    private static final int SPINS_BEFORE_SLEEPING = 1_000;
+    private static final long MAX_SLEEP_NANOS = 1_000_000;
+
+    // only ever touched by the writer thread
+    private final LongHashIndex<OrderDetails> orders = new LongHashIndex<>();
+    private final Map<String, LongHashIndex<OrderDetails>> ordersByUser = new HashMap<>();
+    private final TreeMap<BigDecimal, BigDecimal> buyOrdersTotal = new TreeMap<>(lowestFirst().reversed());
+    private final TreeMap<BigDecimal, BigDecimal> sellOrdersTotal = new TreeMap<>(lowestFirst());
+    private final VersionedSummaryCache buySummary = new VersionedSummaryCache();
+    private final VersionedSummaryCache sellSummary = new VersionedSummaryCache();
+    // written by the writer only when a change reaches the top of its side, read by any thread
+    private volatile Optional<PriceLevel> buyBest = Optional.empty();
+    private volatile Optional<PriceLevel> sellBest = Optional.empty();
+    private long buyLevelsRemoved;
+    private long sellLevelsRemoved;
+    private final PriceLevelPublisher priceLevelPublisher = new PriceLevelPublisher();
+
+    private final CommandRingBuffer ringBuffer;
+    private final ThreadLocal<Completion> completions = ThreadLocal.withInitial(Completion::new);
+    private final Thread writer;
+    private volatile boolean running = true;
+    // callers between passing the running check and publishing their slot, the writer outlives close until it is 0
+    private final AtomicInteger claiming = new AtomicInteger();
+    private volatile boolean writerSleeping;
+    // written by the writer after every change so that it can be read without taking a ring slot
+    private volatile long liveOrderCount;
+
+    private final OrderRequestValidator orderRequestValidator;
+    private final OrderNumberSequence nextOrderNumberProvider;
+    private final OrderDetailsAdapter toOrderDetailsAdapter;
+
+    public EventLoopLiveOrderSystem(int ringBufferSize, OrderRequestValidator orderRequestValidator, OrderNumberSequence nextOrderNumberProvider, OrderDetailsAdapter toOrderDetailsAdapter) {
+        this.ringBuffer = new CommandRingBuffer(ringBufferSize);
+        this.orderRequestValidator = orderRequestValidator;
+        this.nextOrderNumberProvider = nextOrderNumberProvider;
+        this.toOrderDetailsAdapter = toOrderDetailsAdapter;
+        this.writer = new Thread(this::runWriter, "live-order-system-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        // validated on the calling thread so that bad requests never take up a ring slot
+        orderRequestValidator.validate(orderRequest);
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        Command command = ringBuffer.slot(sequence);
+        command.type = Command.Type.REGISTER;
+        command.orderRequest = orderRequest;
+        publish(sequence);
+        return completion.awaitLong();
+    }
+
+    @Override
+    public void restoreOrder(long orderId, OrderRequest orderRequest) {
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        Command command = ringBuffer.slot(sequence);
+        command.type = Command.Type.RESTORE;
+        command.orderId = orderId;
+        command.orderRequest = orderRequest;
+        publish(sequence);
+        completion.awaitResult();
+    }
+
+    @Override
+    public long liveOrderCount() {
+        return liveOrderCount;
+    }
+
+    @Override
+    public CompactionReport compactionReport() {
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        ringBuffer.slot(sequence).type = Command.Type.COMPACTION_REPORT;
+        publish(sequence);
+        return completion.awaitResult();
+    }
+
+    @Override
+    public void forEachOrder(Consumer<OrderDetails> action) {
+        // the writer only copies the live orders, the visit itself runs on the calling thread
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        ringBuffer.slot(sequence).type = Command.Type.ORDERS;
+        publish(sequence);
+        List<OrderDetails> liveOrders = completion.awaitResult();
+        liveOrders.forEach(action);
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        return findOrder(orderId).orElseThrow(() -> notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        return Optional.ofNullable(submit(Command.Type.DETAILS, orderId));
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        return tryCancel(orderId).orElseThrow(() -> notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        return Optional.ofNullable(submit(Command.Type.CANCEL, orderId));
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType) {
+        // an unchanged side is served straight from the calling thread without taking a ring slot
+        OrdersSummary current = summaryCache(purchaseType).currentOrNull();
+        if (current != null) {
+            return current;
+        }
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        ringBuffer.slot(sequence).type = Command.Type.SUMMARY;
+        ringBuffer.slot(sequence).purchaseType = purchaseType;
+        publish(sequence);
+        return completion.awaitResult();
+    }
+
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        // like an unchanged summary, served from the calling thread without taking a ring slot
+        return PurchaseType.SELL.equals(purchaseType) ? sellBest : buyBest;
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener) {
+        return priceLevelPublisher.subscribe(listener);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        return priceLevelPublisher.subscribe(listener, conflationInterval, unit);
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        orderRequests.forEach(orderRequestValidator::validate);
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        ringBuffer.slot(sequence).type = Command.Type.REGISTER_BATCH;
+        ringBuffer.slot(sequence).orderRequests = orderRequests;
+        publish(sequence);
+        return completion.awaitResult();
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        ringBuffer.slot(sequence).type = Command.Type.CANCEL_BATCH;
+        ringBuffer.slot(sequence).orderIds = orderIds;
+        publish(sequence);
+        return completion.awaitResult();
+    }
+
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        return submitForUser(Command.Type.USER_ORDERS, userId);
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        return submitForUser(Command.Type.CANCEL_USER, userId);
+    }
+
+    /**
+     * Stops the writer thread once every command already claimed has been published and applied, later calls fail.
+     * If interrupted while waiting for the writer it returns straight away with the interrupt flag set, leaving the
+     * writer to finish in the background.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // only reached with commands left if the writer died, fail them rather than leave their callers parked
+        for (Command command = ringBuffer.peek(); command != null; command = ringBuffer.peek()) {
+            command.completion.fail(closed());
+            command.clear();
+            ringBuffer.advance();
+        }
+    }
+
+    /**
+     * The writer answers a single order command with null when the order is not found rather than failing it
+     */
+    private <T> T submit(Command.Type type, long orderId) {
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        Command command = ringBuffer.slot(sequence);
+        command.type = type;
+        command.orderId = orderId;
+        publish(sequence);
+        return completion.awaitResult();
+    }
+
+    private <T> T submitForUser(Command.Type type, String userId) {
+        Completion completion = completions.get();
+        long sequence = claim(completion);
+        ringBuffer.slot(sequence).type = type;
+        ringBuffer.slot(sequence).userId = userId;
+        publish(sequence);
+        return completion.awaitResult();
+    }
+
+    /**
+     * Counts the caller in before checking running, so a close racing with it keeps the writer (and so room in a
+     * full ring) until the caller has published; the count is only dropped again by {@link #publish(long)}
+     */
+    private long claim(Completion completion) {
+        claiming.incrementAndGet();
+        if (!running) {
+            claiming.decrementAndGet();
+            throw closed();
+        }
+        completion.reset();
+        long sequence = ringBuffer.claim();
+        ringBuffer.slot(sequence).completion = completion;
+        return sequence;
+    }
+
+    private void publish(long sequence) {
+        ringBuffer.publish(sequence);
+        claiming.decrementAndGet();
+        if (writerSleeping) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void runWriter() {
+        int idleSpins = 0;
+        // claiming is read before peeking, a caller that has published by the time it reads 0 is seen by the peek
+        while (running || claiming.get() != 0 || ringBuffer.peek() != null) {
+            Command command = ringBuffer.peek();
+            if (command == null) {
+                idleSpins = idle(idleSpins);
+                continue;
+            }
+            idleSpins = 0;
+            Completion completion = command.completion;
+            try {
+                apply(command, completion);
+            } catch (Throwable e) {
+                completion.fail(e);
+            } finally {
+                if (liveOrderCount != orders.size()) {
+                    liveOrderCount = orders.size();
+                }
+                command.clear();
+                ringBuffer.advance();
+            }
+        }
+    }
+
+    private static IllegalStateException closed() {
+        return new IllegalStateException("live order system has been closed");
+    }
+
+    private int idle(int idleSpins) {
+        if (idleSpins < SPINS_BEFORE_SLEEPING) {
+            Thread.yield();
+            return idleSpins + 1;
+        }
+        // producers only pay for an unpark when the writer has actually gone to sleep
+        writerSleeping = true;
+        if (ringBuffer.peek() == null && running) {
+            LockSupport.parkNanos(this, MAX_SLEEP_NANOS);
+        }
+        writerSleeping = false;
+        return idleSpins;
+    }
+
+    private void apply(Command command, Completion completion) {
+        switch (command.type) {
+            case REGISTER:
+                completion.complete(register(command.orderRequest));
+                break;
+            case REGISTER_BATCH:
+                completion.complete(registerBatch(command.orderRequests));
+                break;
+            case RESTORE:
+                restore(command.orderId, command.orderRequest);
+                completion.complete(null);
+                break;
+            case CANCEL:
+                completion.complete(cancel(command.orderId));
+                break;
+            case CANCEL_BATCH:
+                completion.complete(cancelBatch(command.orderIds));
+                break;
+            case DETAILS:
+                completion.complete(details(command.orderId));
+                break;
+            case SUMMARY:
+                completion.complete(summary(command.purchaseType));
+                break;
+            case ORDERS:
+                List<OrderDetails> liveOrders = new ArrayList<>(orders.size());
+                orders.forEachValue(liveOrders::add);
+                completion.complete(liveOrders);
+                break;
+            case USER_ORDERS:
+                completion.complete(ordersForUserOnWriter(command.userId));
+                break;
+            case CANCEL_USER:
+                completion.complete(cancelAllForUserOnWriter(command.userId));
+                break;
+            case COMPACTION_REPORT:
+                completion.complete(new CompactionReport(buyOrdersTotal.size(), buyLevelsRemoved, sellOrdersTotal.size(), sellLevelsRemoved));
+                break;
+            default:
+                throw new IllegalStateException("unknown command " + command.type);
+        }
+    }
+
+    private long register(OrderRequest orderRequest) {
+        long orderNumber = nextOrderNumberProvider.next();
+        addOrder(orderNumber, toOrderDetailsAdapter.toOrderDetails(orderNumber, orderRequest));
+        updateOrderTotals(orderRequest.getPricePerKg(), orderRequest.getOrderQuantity(), orderRequest.getPurchaseType());
+        return orderNumber;
+    }
+
+    private void restore(long orderId, OrderRequest orderRequest) {
+        nextOrderNumberProvider.advancePast(orderId);
+        if (orders.get(orderId) == null) {
+            addOrder(orderId, toOrderDetailsAdapter.toOrderDetails(orderId, orderRequest));
+            updateOrderTotals(orderRequest.getPricePerKg(), orderRequest.getOrderQuantity(), orderRequest.getPurchaseType());
+        }
+    }
+
+    private List<String> registerBatch(List<OrderRequest> orderRequests) {
+        long firstOrderNumber = nextOrderNumberProvider.reserve(orderRequests.size());
+        Map<BigDecimal, BigDecimal> buyDeltas = new TreeMap<>(lowestFirst());
+        Map<BigDecimal, BigDecimal> sellDeltas = new TreeMap<>(lowestFirst());
+        List<String> orderIds = new ArrayList<>(orderRequests.size());
+        for (int i = 0; i < orderRequests.size(); i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            OrderDetails orderDetails = toOrderDetailsAdapter.toOrderDetails(firstOrderNumber + i, orderRequest);
+            addOrder(firstOrderNumber + i, orderDetails);
+            netDelta(orderRequest.getPricePerKg(), orderRequest.getOrderQuantity(), orderRequest.getPurchaseType(), buyDeltas, sellDeltas);
+            orderIds.add(orderDetails.getOrderId());
+        }
+        applyDeltas(buyDeltas, sellDeltas);
+        return orderIds;
+    }
+
+    private List<CancelResult> cancelBatch(Collection<String> orderIds) {
+        Map<BigDecimal, BigDecimal> buyDeltas = new TreeMap<>(lowestFirst());
+        Map<BigDecimal, BigDecimal> sellDeltas = new TreeMap<>(lowestFirst());
+        List<CancelResult> results = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            long orderNumber = OrderIds.parse(orderId);
+            OrderDetails orderDetails = orderNumber == OrderIds.NOT_AN_ORDER_ID ? null : removeOrder(orderNumber);
+            if (orderDetails == null) {
+                results.add(CancelResult.notFound(orderId));
+            } else {
+                netDelta(orderDetails.getPricePerKg(), orderDetails.getOrderQuantity().negate(), orderDetails.getPurchaseType(), buyDeltas, sellDeltas);
+                results.add(CancelResult.cancelled(orderDetails));
+            }
+        }
+        applyDeltas(buyDeltas, sellDeltas);
+        return results;
+    }
+
+    private OrderDetails cancel(long orderId) {
+        OrderDetails orderDetails = removeOrder(orderId);
+        if (orderDetails == null) {
+            return null;
+        }
+        updateOrderTotals(orderDetails.getPricePerKg(), orderDetails.getOrderQuantity().negate(), orderDetails.getPurchaseType());
+        return orderDetails;
+    }
+
+    private List<OrderDetails> ordersForUserOnWriter(String userId) {
+        List<OrderDetails> userOrders = new ArrayList<>();
+        LongHashIndex<OrderDetails> index = ordersByUser.get(userId);
+        if (index != null) {
+            index.forEachValue(userOrders::add);
+        }
+        return userOrders;
+    }
+
+    private List<OrderDetails> cancelAllForUserOnWriter(String userId) {
+        LongHashIndex<OrderDetails> index = ordersByUser.remove(userId);
+        if (index == null) {
+            return new ArrayList<>();
+        }
+        List<OrderDetails> cancelled = new ArrayList<>(index.size());
+        index.forEachValue(cancelled::add);
+        Map<BigDecimal, BigDecimal> buyDeltas = new TreeMap<>(lowestFirst());
+        Map<BigDecimal, BigDecimal> sellDeltas = new TreeMap<>(lowestFirst());
+        for (OrderDetails orderDetails : cancelled) {
+            orders.remove(orderDetails.getOrderNumber());
+            netDelta(orderDetails.getPricePerKg(), orderDetails.getOrderQuantity().negate(), orderDetails.getPurchaseType(), buyDeltas, sellDeltas);
+        }
+        applyDeltas(buyDeltas, sellDeltas);
+        return cancelled;
+    }
+
+    private void addOrder(long orderId, OrderDetails orderDetails) {
+        orders.put(orderId, orderDetails);
+        ordersByUser.computeIfAbsent(orderDetails.getUserId(), userId -> new LongHashIndex<>()).put(orderId, orderDetails);
+    }
+
+    private OrderDetails removeOrder(long orderId) {
+        OrderDetails orderDetails = orders.remove(orderId);
+        if (orderDetails != null) {
+            LongHashIndex<OrderDetails> index = ordersByUser.get(orderDetails.getUserId());
+            index.remove(orderId);
+            if (index.size() == 0) {
+                ordersByUser.remove(orderDetails.getUserId());
+            }
+        }
+        return orderDetails;
+    }
+
+    private OrderDetails details(long orderId) {
+        return orders.get(orderId);
+    }
+
+    private OrdersSummary summary(PurchaseType purchaseType) {
+        return summaryCache(purchaseType).summary(version -> new OrdersSummary(purchaseType, ordersTotal(purchaseType), version));
+    }
+
+    private VersionedSummaryCache summaryCache(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellSummary : buySummary;
+    }
+
+    private TreeMap<BigDecimal, BigDecimal> ordersTotal(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellOrdersTotal : buyOrdersTotal;
+    }
+
+    private void netDelta(BigDecimal pricePerKg, BigDecimal orderQuantity, PurchaseType purchaseType,
+                          Map<BigDecimal, BigDecimal> buyDeltas, Map<BigDecimal, BigDecimal> sellDeltas) {
+        (PurchaseType.SELL.equals(purchaseType) ? sellDeltas : buyDeltas).merge(pricePerKg, orderQuantity, BigDecimal::add);
+    }
+
+    private void applyDeltas(Map<BigDecimal, BigDecimal> buyDeltas, Map<BigDecimal, BigDecimal> sellDeltas) {
+        // one merge, best level check and published level per distinct price rather than one per order
+        buyDeltas.forEach((pricePerKg, orderQuantity) -> updateOrderTotals(pricePerKg, orderQuantity, PurchaseType.BUY));
+        sellDeltas.forEach((pricePerKg, orderQuantity) -> updateOrderTotals(pricePerKg, orderQuantity, PurchaseType.SELL));
+    }
+
+    private void updateOrderTotals(BigDecimal pricePerKg, BigDecimal orderQuantity, PurchaseType purchaseType) {
+        if (orderQuantity.signum() == 0) {
+            return;
+        }
+        BigDecimal newTotalInKg = ordersTotal(purchaseType).merge(pricePerKg, orderQuantity, (currentTotalInKg, change) -> {
+            BigDecimal totalInKg = currentTotalInKg.add(change);
+            return totalInKg.signum() == 0 ? null : totalInKg;
+        });
+        if (newTotalInKg == null) {
+            if (PurchaseType.SELL.equals(purchaseType)) {
+                sellLevelsRemoved++;
+            } else {
+                buyLevelsRemoved++;
+            }
+        }
+        summaryCache(purchaseType).changed();
+        updateBestLevel(pricePerKg, purchaseType);
+        if (priceLevelPublisher.hasListeners()) {
+            priceLevelPublisher.publish(purchaseType, pricePerKg, newTotalInKg == null ? BigDecimal.ZERO : newTotalInKg);
+        }
+    }
+
+    /**
+     * Only a change at or ahead of the current best price can move the top of the side
+     */
+    private void updateBestLevel(BigDecimal pricePerKg, PurchaseType purchaseType) {
+        TreeMap<BigDecimal, BigDecimal> ordersTotal = ordersTotal(purchaseType);
+        Optional<PriceLevel> best = bestLevel(purchaseType);
+        if (best.isPresent() && ordersTotal.comparator().compare(pricePerKg, best.get().getPricePerKg()) > 0) {
+            return;
+        }
+        Optional<PriceLevel> newBest = Optional.ofNullable(ordersTotal.firstEntry())
+                .map(level -> new PriceLevel(purchaseType, level.getKey(), level.getValue()));
+        if (PurchaseType.SELL.equals(purchaseType)) {
+            sellBest = newBest;
+        } else {
+            buyBest = newBest;
+        }
+    }
+
+    private static Comparator<BigDecimal> lowestFirst() {
+        return BigDecimal::compareTo;
+    }
+
+    private static OrderNotFoundException notFoundException(long orderId) {
+        return new OrderNotFoundException(orderId + " not found");
+    }
+}
@@ -0,0 +1,143 @@
+package com.fadams.silver.bars.expiry;
+
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.ForwardingLiveOrderSystem;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Cancels orders whose request carries an expiry time once that time has passed. Orders are kept in a
+ * {@link HashedTimingWheel}, and every tick whatever has come due is cancelled through one
+ * {@link LiveOrderSystem#cancelOrders} call, so the delegate nets the change to each price level in a single pass
+ * and the {@link ExpiryListener} hears about the whole batch at once. Orders cancelled by hand stay in the wheel
+ * until they come due and are then simply not found. Expiry times are not journaled, so wrap this outside any
+ * journaling system and register orders that should expire after a restart again.
+ */
+public class ExpiringLiveOrderSystem extends ForwardingLiveOrderSystem implements AutoCloseable {
+    private final HashedTimingWheel wheel;
+    private final ExpiryListener listener;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService ticker;
+
+    /**
+     * @param tickMillis how often orders are expired, and so how late an order can be in expiring
+     * @param wheelSize buckets in the wheel, a power of two, ideally enough for most expiries to be less than one
+     * turn of the wheel away
+     * @param listener told about the orders that expired, on the expiry thread
+     */
+    public ExpiringLiveOrderSystem(LiveOrderSystem delegate, long tickMillis, int wheelSize, ExpiryListener listener) {
+        this(delegate, tickMillis, wheelSize, listener, System::currentTimeMillis, true);
+    }
+
+    /**
+     * For tests, the clock is only read when {@link #expireDue()} is called
+     */
+    ExpiringLiveOrderSystem(LiveOrderSystem delegate, long tickMillis, int wheelSize, ExpiryListener listener, LongSupplier clock) {
+        this(delegate, tickMillis, wheelSize, listener, clock, false);
+    }
+
+    private ExpiringLiveOrderSystem(LiveOrderSystem delegate, long tickMillis, int wheelSize, ExpiryListener listener,
+                                    LongSupplier clock, boolean startTicker) {
+        super(delegate);
+        this.wheel = new HashedTimingWheel(tickMillis, wheelSize, clock.getAsLong());
+        this.listener = listener;
+        this.clock = clock;
+        if (startTicker) {
+            this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "live-order-system-expiry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.ticker.scheduleAtFixedRate(this::expireDue, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.ticker = null;
+        }
+    }
+
+    @Override
+    public String registerOrder(OrderRequest orderRequest) {
+        return OrderIds.format(registerOrderId(orderRequest));
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        long orderId = delegate.registerOrderId(orderRequest);
+        scheduleExpiry(orderId, orderRequest);
+        return orderId;
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        List<String> orderIds = delegate.registerOrders(orderRequests);
+        for (int i = 0; i < orderIds.size(); i++) {
+            scheduleExpiry(OrderIds.parse(orderIds.get(i)), orderRequests.get(i));
+        }
+        return orderIds;
+    }
+
+    /**
+     * Cancels everything due by now, in one batch however many ticks have passed since the last call. A failure is
+     * reported to the thread's uncaught exception handler rather than thrown, so it never stops the ticks. If the
+     * cancel itself failed the orders are tried again next tick, but a failing listener does not hear of them again.
+     */
+    synchronized void expireDue() {
+        try {
+            expireDueOrThrow();
+        } catch (RuntimeException e) {
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    private void expireDueOrThrow() {
+        long nowTick = wheel.tickOf(clock.getAsLong());
+        // after a stall every bucket is visited at most once, each taking all it holds that is due by now
+        long firstTick = Math.max(wheel.nextTick(), nowTick - wheel.size() + 1);
+        List<String> due = new ArrayList<>();
+        for (long tick = firstTick; tick <= nowTick; tick++) {
+            wheel.expire(tick, nowTick, orderId -> due.add(OrderIds.format(orderId)));
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        List<CancelResult> results;
+        try {
+            results = delegate.cancelOrders(due);
+        } catch (RuntimeException e) {
+            for (String orderId : due) {
+                wheel.schedule(OrderIds.parse(orderId), nowTick + 1);
+            }
+            throw e;
+        }
+        List<OrderDetails> expired = new ArrayList<>(due.size());
+        for (CancelResult result : results) {
+            result.getCancelledOrder().ifPresent(expired::add);
+        }
+        if (!expired.isEmpty()) {
+            listener.onExpired(expired);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private void scheduleExpiry(long orderId, OrderRequest orderRequest) {
+        if (orderRequest.expires()) {
+            // the first tick that starts at or after the expiry time, so an order is never cancelled early
+            wheel.schedule(orderId, wheel.tickAtOrAfter(orderRequest.getExpiresAtMillis()));
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.fadams.silver.bars.expiry;
+
+import com.fadams.silver.bars.model.OrderDetails;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface ExpiryListener {
+
+    /**
+     * Called on the expiry thread once per tick that expired anything
+     *
+     * @param expired the orders cancelled because they expired, never empty
+     */
+    void onExpired(List<OrderDetails> expired);
+}
@@ -0,0 +1,115 @@
+package com.fadams.silver.bars.expiry;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Hashed timing wheel of order ids: a ring of buckets, one per tick, with each order dropped into the bucket of the
+ * tick it expires in, wrapping round as many times as it takes. Scheduling is an append to a pair of primitive
+ * arrays, with no task or entry object per order, and a tick only looks at its own bucket. Each bucket is locked on
+ * its own, so registering threads rarely contend with each other or with the tick.
+ */
+final class HashedTimingWheel {
+    private final long tickMillis;
+    private final Bucket[] buckets;
+    private final int mask;
+    // only moved on by the one thread expiring, and only while it holds the lock of the bucket it has just emptied
+    private volatile long nextTick;
+
+    HashedTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize a positive power of two, not "
+                    + tickMillis + " and " + wheelSize);
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.nextTick = tickOf(startMillis);
+    }
+
+    long tickOf(long millis) {
+        return Math.floorDiv(millis, tickMillis);
+    }
+
+    /**
+     * @return the first tick starting at or after the time
+     */
+    long tickAtOrAfter(long millis) {
+        return -Math.floorDiv(-millis, tickMillis);
+    }
+
+    long nextTick() {
+        return nextTick;
+    }
+
+    int size() {
+        return buckets.length;
+    }
+
+    /**
+     * An order due in a tick that has already been expired goes into the next one instead
+     */
+    void schedule(long orderId, long tick) {
+        while (true) {
+            long scheduledTick = Math.max(tick, nextTick);
+            Bucket bucket = buckets[(int) (scheduledTick & mask)];
+            synchronized (bucket) {
+                // otherwise the tick was expired between choosing the bucket and locking it
+                if (scheduledTick >= nextTick) {
+                    bucket.add(orderId, scheduledTick);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes every order due by dueTick out of the bucket of tick, leaving those due on a later turn of the wheel, and
+     * passes each one's id to expired while holding the bucket's lock. Only one thread may expire at a time.
+     */
+    void expire(long tick, long dueTick, LongConsumer expired) {
+        Bucket bucket = buckets[(int) (tick & mask)];
+        synchronized (bucket) {
+            bucket.takeDue(dueTick, expired);
+            nextTick = Math.max(nextTick, dueTick + 1);
+        }
+    }
+
+    private static final class Bucket {
+        private long[] orderIds = new long[4];
+        private long[] ticks = new long[4];
+        private int size;
+
+        void add(long orderId, long tick) {
+            if (size == orderIds.length) {
+                orderIds = Arrays.copyOf(orderIds, size * 2);
+                ticks = Arrays.copyOf(ticks, size * 2);
+            }
+            orderIds[size] = orderId;
+            ticks[size] = tick;
+            size++;
+        }
+
+        void takeDue(long tick, LongConsumer expired) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (ticks[i] <= tick) {
+                    expired.accept(orderIds[i]);
+                } else {
+                    orderIds[kept] = orderIds[i];
+                    ticks[kept] = ticks[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            // give back what a burst of orders needed once it has expired
+            if (orderIds.length > 16 && size < orderIds.length / 4) {
+                orderIds = Arrays.copyOf(orderIds, orderIds.length / 2);
+                ticks = Arrays.copyOf(ticks, ticks.length / 2);
+            }
+        }
+    }
+}
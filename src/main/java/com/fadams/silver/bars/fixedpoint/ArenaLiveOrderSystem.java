@@ -0,0 +1,371 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.OrderNumberSequence;
+import com.fadams.silver.bars.OrderRequestValidator;
+import com.fadams.silver.bars.ValidationResult;
+import com.fadams.silver.bars.collections.LongIntHashIndex;
+import com.fadams.silver.bars.history.DepthSink;
+import com.fadams.silver.bars.history.DepthSource;
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.CompactionReport;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+import com.fadams.silver.bars.model.Subscription;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Fixed point system for very large boards. Orders live in an {@link OrderArena} of primitive slots, found through
+ * a primitive order number to slot index, with users interned to ints, so a resting order costs roughly seventy
+ * bytes and no objects however many there are. {@link OrderDetails} are built only when a caller asks for them,
+ * with the price and quantity given back at the scale they were registered with. Details are built directly rather
+ * than through an order details adapter. As in {@link FixedPointLiveOrderSystem}, prices finer than a penny and
+ * quantities finer than a gram are rejected.
+ * The arena, index and dictionary share one read write lock, writes also update the price levels while holding it.
+ */
+public class ArenaLiveOrderSystem implements RestorableLiveOrderSystem, DepthSource, FixedPointOrderEntry {
+    private static final int FOR_EACH_CHUNK_SLOTS = 4096;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    // all guarded by lock
+    private final OrderArena arena = new OrderArena();
+    private final LongIntHashIndex slots;
+    private final UserDictionary users = new UserDictionary();
+    private final FixedPointBook book = new FixedPointBook();
+
+    private final OrderRequestValidator orderRequestValidator;
+    private final OrderNumberSequence nextOrderNumberProvider;
+
+    public ArenaLiveOrderSystem(OrderRequestValidator orderRequestValidator, OrderNumberSequence nextOrderNumberProvider) {
+        this(orderRequestValidator, nextOrderNumberProvider, 0);
+    }
+
+    /**
+     * @param expectedOrders live orders to size the order index for, so that it does not resize under the write
+     *                       lock on the way up to them
+     */
+    public ArenaLiveOrderSystem(OrderRequestValidator orderRequestValidator, OrderNumberSequence nextOrderNumberProvider, int expectedOrders) {
+        this.orderRequestValidator = orderRequestValidator;
+        this.nextOrderNumberProvider = nextOrderNumberProvider;
+        this.slots = new LongIntHashIndex(expectedOrders);
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        orderRequestValidator.validate(orderRequest);
+        long pricePence = FixedPoint.toPence(orderRequest.getPricePerKg());
+        long quantityGrams = FixedPoint.toGrams(orderRequest.getOrderQuantity());
+        long orderNumber = nextOrderNumberProvider.next();
+        writeLock.lock();
+        try {
+            add(orderNumber, orderRequest, pricePence, quantityGrams);
+            book.add(orderRequest.getPurchaseType(), pricePence, quantityGrams);
+        } finally {
+            writeLock.unlock();
+        }
+        return orderNumber;
+    }
+
+    /**
+     * Registers without building an OrderRequest, BigDecimals or, for a user seen before, a user id String
+     */
+    @Override
+    public long registerOrderId(byte[] userId, int userIdLength, long quantityGrams, int quantityScale,
+                                long pricePence, int priceScale, PurchaseType purchaseType) {
+        Objects.requireNonNull(purchaseType, ValidationResult.MISSING_PURCHASE_TYPE.getMessage());
+        long orderNumber = nextOrderNumberProvider.next();
+        writeLock.lock();
+        try {
+            int slot = arena.allocate(orderNumber, pricePence, quantityGrams, users.intern(userId, userIdLength), purchaseType,
+                    scaleOf(priceScale, FixedPoint.PRICE_SCALE), scaleOf(quantityScale, FixedPoint.QUANTITY_SCALE));
+            slots.put(orderNumber, slot);
+            book.add(purchaseType, pricePence, quantityGrams);
+        } finally {
+            writeLock.unlock();
+        }
+        return orderNumber;
+    }
+
+    @Override
+    public void restoreOrder(long orderId, OrderRequest orderRequest) {
+        long pricePence = FixedPoint.toPence(orderRequest.getPricePerKg());
+        long quantityGrams = FixedPoint.toGrams(orderRequest.getOrderQuantity());
+        nextOrderNumberProvider.advancePast(orderId);
+        writeLock.lock();
+        try {
+            if (slots.get(orderId) == LongIntHashIndex.MISSING) {
+                add(orderId, orderRequest, pricePence, quantityGrams);
+                book.add(orderRequest.getPurchaseType(), pricePence, quantityGrams);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public long liveOrderCount() {
+        readLock.lock();
+        try {
+            return arena.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        return book.bestLevel(purchaseType);
+    }
+
+    @Override
+    public CompactionReport compactionReport() {
+        return book.compactionReport();
+    }
+
+    /**
+     * Visits the arena a chunk of slots at a time, so writers only ever wait for one chunk's details to be built
+     */
+    @Override
+    public void forEachOrder(Consumer<OrderDetails> action) {
+        List<OrderDetails> chunk = new ArrayList<>();
+        for (int start = 0; ; start += FOR_EACH_CHUNK_SLOTS) {
+            readLock.lock();
+            try {
+                int end = Math.min(start + FOR_EACH_CHUNK_SLOTS, arena.allocatedSlots());
+                if (start >= end) {
+                    return;
+                }
+                for (int slot = start; slot < end; slot++) {
+                    if (arena.isLive(slot)) {
+                        chunk.add(details(slot));
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+            chunk.forEach(action);
+            chunk.clear();
+        }
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        return findOrder(orderId).orElseThrow(notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        readLock.lock();
+        try {
+            int slot = slots.get(orderId);
+            return slot == LongIntHashIndex.MISSING ? Optional.empty() : Optional.of(details(slot));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        return tryCancel(orderId).orElseThrow(notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        writeLock.lock();
+        try {
+            int slot = slots.remove(orderId);
+            if (slot == LongIntHashIndex.MISSING) {
+                return Optional.empty();
+            }
+            OrderDetails cancelled = details(slot);
+            book.add(arena.purchaseType(slot), arena.pricePence(slot), -arena.quantityGrams(slot));
+            arena.free(slot);
+            return Optional.of(cancelled);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType) {
+        return book.orderSummary(purchaseType);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        return book.orderSummary(purchaseType, depth);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        return book.orderSummary(purchaseType, from, to);
+    }
+
+    @Override
+    public void sampleDepth(PurchaseType purchaseType, int maxLevels, DepthSink sink) {
+        book.sampleDepth(purchaseType, maxLevels, sink);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener) {
+        return book.subscribe(listener);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        return book.subscribe(listener, conflationInterval, unit);
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        int count = orderRequests.size();
+        long[] pricesPence = new long[count];
+        long[] quantitiesGrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            orderRequestValidator.validate(orderRequest);
+            pricesPence[i] = FixedPoint.toPence(orderRequest.getPricePerKg());
+            quantitiesGrams[i] = FixedPoint.toGrams(orderRequest.getOrderQuantity());
+        }
+        long firstOrderNumber = nextOrderNumberProvider.reserve(count);
+        List<String> orderIds = new ArrayList<>(count);
+        writeLock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                add(firstOrderNumber + i, orderRequests.get(i), pricesPence[i], quantitiesGrams[i]);
+                orderIds.add(OrderIds.format(firstOrderNumber + i));
+            }
+            book.addAll(count, i -> orderRequests.get(i).getPurchaseType(), i -> pricesPence[i], i -> quantitiesGrams[i]);
+        } finally {
+            writeLock.unlock();
+        }
+        return orderIds;
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        List<CancelResult> results = new ArrayList<>(orderIds.size());
+        writeLock.lock();
+        try {
+            List<OrderDetails> cancelled = new ArrayList<>(orderIds.size());
+            for (String orderId : orderIds) {
+                long orderNumber = OrderIds.parse(orderId);
+                int slot = orderNumber == OrderIds.NOT_AN_ORDER_ID ? LongIntHashIndex.MISSING : slots.remove(orderNumber);
+                if (slot == LongIntHashIndex.MISSING) {
+                    results.add(CancelResult.notFound(orderId));
+                } else {
+                    OrderDetails orderDetails = details(slot);
+                    arena.free(slot);
+                    cancelled.add(orderDetails);
+                    results.add(CancelResult.cancelled(orderDetails));
+                }
+            }
+            subtract(cancelled);
+        } finally {
+            writeLock.unlock();
+        }
+        return results;
+    }
+
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        List<OrderDetails> orderDetails = new ArrayList<>();
+        readLock.lock();
+        try {
+            int user = users.find(userId);
+            if (user != UserDictionary.UNKNOWN) {
+                for (int slot = arena.firstOfUser(user); slot != OrderArena.NONE; slot = arena.nextOfUser(slot)) {
+                    orderDetails.add(details(slot));
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return orderDetails;
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        List<OrderDetails> cancelled = new ArrayList<>();
+        writeLock.lock();
+        try {
+            int user = users.find(userId);
+            if (user == UserDictionary.UNKNOWN) {
+                return cancelled;
+            }
+            for (int slot = arena.firstOfUser(user); slot != OrderArena.NONE; slot = arena.firstOfUser(user)) {
+                cancelled.add(details(slot));
+                slots.remove(arena.orderNumber(slot));
+                arena.free(slot);
+            }
+            subtract(cancelled);
+        } finally {
+            writeLock.unlock();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Called holding the write lock
+     */
+    private void add(long orderNumber, OrderRequest orderRequest, long pricePence, long quantityGrams) {
+        int slot = arena.allocate(orderNumber, pricePence, quantityGrams, users.intern(orderRequest.getUserId()),
+                orderRequest.getPurchaseType(), scaleOf(orderRequest.getPricePerKg(), FixedPoint.PRICE_SCALE),
+                scaleOf(orderRequest.getOrderQuantity(), FixedPoint.QUANTITY_SCALE));
+        slots.put(orderNumber, slot);
+    }
+
+    /**
+     * Called holding the write lock, with the details of orders already taken out of the arena
+     */
+    private void subtract(List<OrderDetails> cancelled) {
+        book.addAll(cancelled.size(), i -> cancelled.get(i).getPurchaseType(),
+                i -> FixedPoint.toPence(cancelled.get(i).getPricePerKg()),
+                i -> -FixedPoint.toGrams(cancelled.get(i).getOrderQuantity()));
+    }
+
+    /**
+     * Called holding the lock
+     */
+    private OrderDetails details(int slot) {
+        return new OrderDetails(arena.orderNumber(slot), users.userId(arena.user(slot)),
+                FixedPoint.fromGrams(arena.quantityGrams(slot)).setScale(arena.quantityScale(slot)),
+                FixedPoint.fromPence(arena.pricePence(slot)).setScale(arena.priceScale(slot)),
+                arena.purchaseType(slot));
+    }
+
+    /**
+     * A scale that fits in a byte is kept so the value can be given back exactly, the odd one that does not is
+     * given back at the fixed point scale
+     */
+    private static byte scaleOf(BigDecimal value, int fixedPointScale) {
+        return scaleOf(value.scale(), fixedPointScale);
+    }
+
+    private static byte scaleOf(int scale, int fixedPointScale) {
+        return (byte) (scale == (byte) scale ? scale : fixedPointScale);
+    }
+
+    private Supplier<OrderNotFoundException> notFoundException(long orderId) {
+        return () -> new OrderNotFoundException(orderId + " not found");
+    }
+}
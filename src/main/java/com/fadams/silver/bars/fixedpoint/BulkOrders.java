@@ -0,0 +1,152 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.util.Arrays;
+
+/**
+ * Orders collected as parallel primitive arrays, ready to be loaded into an empty
+ * {@link FixedPointLiveOrderSystem} in one go with {@link FixedPointLiveOrderSystem#load(BulkOrders)}.
+ * Not thread safe, fill it from one thread.
+ */
+public class BulkOrders {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final PurchaseType[] PURCHASE_TYPES = PurchaseType.values();
+
+    private String[] userIds = new String[INITIAL_CAPACITY];
+    private long[] quantitiesGrams = new long[INITIAL_CAPACITY];
+    private long[] pricesPence = new long[INITIAL_CAPACITY];
+    private byte[] purchaseTypes = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(String userId, long quantityGrams, long pricePence, PurchaseType purchaseType) {
+        if (userId == null || purchaseType == null) {
+            throw new IllegalArgumentException("userId and purchaseType are mandatory");
+        }
+        if (size == userIds.length) {
+            int capacity = size * 2;
+            userIds = Arrays.copyOf(userIds, capacity);
+            quantitiesGrams = Arrays.copyOf(quantitiesGrams, capacity);
+            pricesPence = Arrays.copyOf(pricesPence, capacity);
+            purchaseTypes = Arrays.copyOf(purchaseTypes, capacity);
+        }
+        userIds[size] = userId;
+        quantitiesGrams[size] = quantityGrams;
+        pricesPence[size] = pricePence;
+        purchaseTypes[size] = (byte) purchaseType.ordinal();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    String userIdAt(int index) {
+        return userIds[index];
+    }
+
+    long quantityGramsAt(int index) {
+        return quantitiesGrams[index];
+    }
+
+    long pricePenceAt(int index) {
+        return pricesPence[index];
+    }
+
+    PurchaseType purchaseTypeAt(int index) {
+        return PURCHASE_TYPES[purchaseTypes[index]];
+    }
+
+    /**
+     * Totals one side's orders by price in a single pass, then sorts just the distinct prices into display order,
+     * rather than inserting into the sorted levels order by order
+     */
+    void loadLevels(PurchaseType purchaseType, PriceLevels levels) {
+        PriceTotals priceTotals = new PriceTotals();
+        byte side = (byte) purchaseType.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (purchaseTypes[i] == side) {
+                priceTotals.add(pricesPence[i], quantitiesGrams[i]);
+            }
+        }
+        long[] prices = priceTotals.nonZeroPrices();
+        Arrays.sort(prices);
+        if (levels.isHighestFirst()) {
+            for (int low = 0, high = prices.length - 1; low < high; low++, high--) {
+                long price = prices[low];
+                prices[low] = prices[high];
+                prices[high] = price;
+            }
+        }
+        long[] totals = new long[prices.length];
+        for (int i = 0; i < prices.length; i++) {
+            totals[i] = priceTotals.get(prices[i]);
+        }
+        levels.load(prices, totals, prices.length);
+    }
+
+    /**
+     * Open addressing map of price to total, a side rarely has more than a few thousand distinct prices
+     */
+    private static final class PriceTotals {
+        private long[] prices = new long[INITIAL_CAPACITY];
+        private long[] totals = new long[INITIAL_CAPACITY];
+        private boolean[] used = new boolean[INITIAL_CAPACITY];
+        private int size;
+
+        void add(long price, long quantity) {
+            int slot = slotOf(prices, used, price);
+            if (!used[slot]) {
+                if ((size + 1) * 2 > prices.length) {
+                    grow();
+                    slot = slotOf(prices, used, price);
+                }
+                used[slot] = true;
+                prices[slot] = price;
+                size++;
+            }
+            totals[slot] += quantity;
+        }
+
+        long get(long price) {
+            return totals[slotOf(prices, used, price)];
+        }
+
+        long[] nonZeroPrices() {
+            long[] nonZero = new long[size];
+            int count = 0;
+            for (int slot = 0; slot < prices.length; slot++) {
+                if (used[slot] && totals[slot] != 0) {
+                    nonZero[count++] = prices[slot];
+                }
+            }
+            return Arrays.copyOf(nonZero, count);
+        }
+
+        private void grow() {
+            long[] oldPrices = prices;
+            long[] oldTotals = totals;
+            boolean[] oldUsed = used;
+            prices = new long[oldPrices.length * 2];
+            totals = new long[oldPrices.length * 2];
+            used = new boolean[oldPrices.length * 2];
+            for (int oldSlot = 0; oldSlot < oldPrices.length; oldSlot++) {
+                if (oldUsed[oldSlot]) {
+                    int slot = slotOf(prices, used, oldPrices[oldSlot]);
+                    used[slot] = true;
+                    prices[slot] = oldPrices[oldSlot];
+                    totals[slot] = oldTotals[oldSlot];
+                }
+            }
+        }
+
+        private static int slotOf(long[] prices, boolean[] used, long price) {
+            int mask = prices.length - 1;
+            int slot = (int) (price * 0x9E3779B97F4A7C15L >>> 40) & mask;
+            while (used[slot] && prices[slot] != price) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Converts between the BigDecimal values used on the API and the longs used inside the fixed point engine.
+ * Prices are held as pence (ticks of a hundredth of a pound) and quantities as grams.
+ */
+public final class FixedPoint {
+    public static final int PRICE_SCALE = 2;
+    public static final int QUANTITY_SCALE = 3;
+
+    private FixedPoint() {
+    }
+
+    public static long toPence(BigDecimal pricePerKg) {
+        return toLong(pricePerKg, PRICE_SCALE, "pricePerKg");
+    }
+
+    public static long toGrams(BigDecimal orderQuantity) {
+        return toLong(orderQuantity, QUANTITY_SCALE, "orderQuantity");
+    }
+
+    /**
+     * For price bands rather than prices, so a bound in fractions of a penny is rounded inwards instead of rejected
+     *
+     * @param roundingMode CEILING for the lower bound of a band, FLOOR for the upper
+     */
+    public static long toPence(BigDecimal pricePerKg, RoundingMode roundingMode) {
+        return pricePerKg.setScale(PRICE_SCALE, roundingMode).movePointRight(PRICE_SCALE).longValueExact();
+    }
+
+    /**
+     * For quantities worked out elsewhere that may be finer than a gram, rounded rather than rejected
+     */
+    public static long toGrams(BigDecimal orderQuantity, RoundingMode roundingMode) {
+        return orderQuantity.setScale(QUANTITY_SCALE, roundingMode).movePointRight(QUANTITY_SCALE).longValueExact();
+    }
+
+    /**
+     * For a price already split into a mantissa and scale, as read from a file or the wire, so no BigDecimal is built
+     */
+    public static long toPence(long mantissa, int scale) {
+        return toLong(mantissa, scale, PRICE_SCALE, "pricePerKg");
+    }
+
+    /**
+     * For a quantity already split into a mantissa and scale, as read from a file or the wire
+     */
+    public static long toGrams(long mantissa, int scale) {
+        return toLong(mantissa, scale, QUANTITY_SCALE, "orderQuantity");
+    }
+
+    public static BigDecimal fromPence(long pence) {
+        return toBigDecimal(pence, PRICE_SCALE);
+    }
+
+    public static BigDecimal fromGrams(long grams) {
+        return toBigDecimal(grams, QUANTITY_SCALE);
+    }
+
+    private static long toLong(BigDecimal value, int scale, String fieldName) {
+        try {
+            return value.movePointRight(scale).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(fieldName + " " + value + " has more than " + scale + " decimal places", e);
+        }
+    }
+
+    private static long toLong(long mantissa, int scale, int targetScale, String fieldName) {
+        long value = mantissa;
+        for (int digits = scale; digits > targetScale; digits--) {
+            if (value % 10 != 0) {
+                throw new IllegalArgumentException(fieldName + " " + BigDecimal.valueOf(mantissa, scale) + " has more than " + targetScale + " decimal places");
+            }
+            value /= 10;
+        }
+        try {
+            for (int digits = scale; digits < targetScale; digits++) {
+                value = Math.multiplyExact(value, 10);
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(fieldName + " " + BigDecimal.valueOf(mantissa, scale) + " is too large", e);
+        }
+        return value;
+    }
+
+    private static BigDecimal toBigDecimal(long unscaled, int scale) {
+        // normalised so that 5.500kg comes back out as 5.5kg and 306.00 as 306, like the BigDecimal engine does
+        BigDecimal value = BigDecimal.valueOf(unscaled, scale).stripTrailingZeros();
+        return value.scale() < 0 ? value.setScale(0) : value;
+    }
+}
@@ -0,0 +1,212 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.collections.LongIntHashIndex;
+import com.fadams.silver.bars.history.DepthSink;
+import com.fadams.silver.bars.model.CompactionReport;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.Subscription;
+import com.fadams.silver.bars.summary.PriceLevelPublisher;
+import com.fadams.silver.bars.summary.VersionedSummaryCache;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Both sides' price levels in pence and grams, with the cached summaries, top of book and listeners that go with
+ * them, whatever the orders themselves are kept in. Each side is guarded by its own lock.
+ */
+final class FixedPointBook {
+    private final PriceLevels buyLevels = new PriceLevels(true);
+    private final PriceLevels sellLevels = new PriceLevels(false);
+    private final VersionedSummaryCache buySummary = new VersionedSummaryCache();
+    private final VersionedSummaryCache sellSummary = new VersionedSummaryCache();
+    // replaced under the side's lock whenever its top changes, read without it
+    private volatile Optional<PriceLevel> buyBest = Optional.empty();
+    private volatile Optional<PriceLevel> sellBest = Optional.empty();
+    private final PriceLevelPublisher priceLevelPublisher = new PriceLevelPublisher();
+
+    void add(PurchaseType purchaseType, long pricePence, long quantityGrams) {
+        PriceLevels levels = levels(purchaseType);
+        synchronized (levels) {
+            addToLevel(purchaseType, levels, pricePence, quantityGrams);
+        }
+    }
+
+    /**
+     * Applies a batch of changes taking each side's lock only once. Changes at the same price are netted first, so
+     * each distinct level is updated, checked for the top of book and published once however many orders hit it.
+     */
+    void addAll(int count, IntFunction<PurchaseType> purchaseTypes, IntToLongFunction pricesPence, IntToLongFunction quantitiesGrams) {
+        long[] netPricesPence = new long[count];
+        long[] netQuantitiesGrams = new long[count];
+        for (PurchaseType purchaseType : PurchaseType.values()) {
+            // price to its position in the net arrays, in order of first appearance
+            LongIntHashIndex positions = new LongIntHashIndex(count);
+            int distinct = 0;
+            for (int i = 0; i < count; i++) {
+                if (purchaseType.equals(purchaseTypes.apply(i))) {
+                    long pricePence = pricesPence.applyAsLong(i);
+                    int position = positions.get(pricePence);
+                    if (position == LongIntHashIndex.MISSING) {
+                        position = distinct++;
+                        positions.put(pricePence, position);
+                        netPricesPence[position] = pricePence;
+                        netQuantitiesGrams[position] = 0;
+                    }
+                    netQuantitiesGrams[position] += quantitiesGrams.applyAsLong(i);
+                }
+            }
+            if (distinct == 0) {
+                continue;
+            }
+            PriceLevels levels = levels(purchaseType);
+            synchronized (levels) {
+                for (int position = 0; position < distinct; position++) {
+                    if (netQuantitiesGrams[position] != 0) {
+                        addToLevel(purchaseType, levels, netPricesPence[position], netQuantitiesGrams[position]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the levels of both (empty) sides from bulk orders, without telling listeners
+     */
+    void load(BulkOrders bulkOrders) {
+        for (PurchaseType purchaseType : PurchaseType.values()) {
+            PriceLevels levels = levels(purchaseType);
+            synchronized (levels) {
+                bulkOrders.loadLevels(purchaseType, levels);
+                summaryCache(purchaseType).changed();
+                updateBestLevel(purchaseType, levels);
+            }
+        }
+    }
+
+    Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellBest : buyBest;
+    }
+
+    CompactionReport compactionReport() {
+        long buyLiveLevels;
+        long buyRemovedLevels;
+        synchronized (buyLevels) {
+            buyLiveLevels = buyLevels.size();
+            buyRemovedLevels = buyLevels.removedLevels();
+        }
+        synchronized (sellLevels) {
+            return new CompactionReport(buyLiveLevels, buyRemovedLevels, sellLevels.size(), sellLevels.removedLevels());
+        }
+    }
+
+    OrdersSummary orderSummary(PurchaseType purchaseType) {
+        PriceLevels levels = levels(purchaseType);
+        return summaryCache(purchaseType).summary(version -> {
+            OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(version);
+            synchronized (levels) {
+                for (int i = 0; i < levels.size(); i++) {
+                    summary.level(FixedPoint.fromPence(levels.priceAt(i)), FixedPoint.fromGrams(levels.totalAt(i)));
+                }
+            }
+            return summary.build();
+        });
+    }
+
+    OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative but was " + depth);
+        }
+        PriceLevels levels = levels(purchaseType);
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(summaryCache(purchaseType).version());
+        synchronized (levels) {
+            for (int i = 0; i < Math.min(depth, levels.size()); i++) {
+                summary.level(FixedPoint.fromPence(levels.priceAt(i)), FixedPoint.fromGrams(levels.totalAt(i)));
+            }
+        }
+        return summary.build();
+    }
+
+    OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        long lowestPence = FixedPoint.toPence(from.min(to), RoundingMode.CEILING);
+        long highestPence = FixedPoint.toPence(from.max(to), RoundingMode.FLOOR);
+        PriceLevels levels = levels(purchaseType);
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(summaryCache(purchaseType).version());
+        synchronized (levels) {
+            // binary search to the end of the band the side starts from, then walk only the levels inside it
+            int start = levels.positionOf(levels.isHighestFirst() ? highestPence : lowestPence);
+            for (int i = start; i < levels.size(); i++) {
+                long pricePence = levels.priceAt(i);
+                if (pricePence < lowestPence || pricePence > highestPence) {
+                    break;
+                }
+                summary.level(FixedPoint.fromPence(pricePence), FixedPoint.fromGrams(levels.totalAt(i)));
+            }
+        }
+        return summary.build();
+    }
+
+    /**
+     * Writes the side's total and best levels to the sink under the side's lock, without allocating
+     */
+    void sampleDepth(PurchaseType purchaseType, int maxLevels, DepthSink sink) {
+        PriceLevels levels = levels(purchaseType);
+        synchronized (levels) {
+            sink.total(levels.totalQuantity());
+            for (int i = 0; i < Math.min(maxLevels, levels.size()); i++) {
+                sink.level(levels.priceAt(i), levels.totalAt(i));
+            }
+        }
+    }
+
+    Subscription subscribe(PriceLevelListener listener) {
+        return priceLevelPublisher.subscribe(listener);
+    }
+
+    Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        return priceLevelPublisher.subscribe(listener, conflationInterval, unit);
+    }
+
+    private VersionedSummaryCache summaryCache(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellSummary : buySummary;
+    }
+
+    private PriceLevels levels(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellLevels : buyLevels;
+    }
+
+    /**
+     * Called holding the side's lock
+     */
+    private void updateBestLevel(PurchaseType purchaseType, PriceLevels levels) {
+        Optional<PriceLevel> best = levels.size() == 0 ? Optional.empty() : Optional.of(new PriceLevel(purchaseType,
+                FixedPoint.fromPence(levels.priceAt(0)), FixedPoint.fromGrams(levels.totalAt(0))));
+        if (PurchaseType.SELL.equals(purchaseType)) {
+            sellBest = best;
+        } else {
+            buyBest = best;
+        }
+    }
+
+    /**
+     * Called holding the side's lock, so listeners see the changes to a level in the order they were made
+     */
+    private void addToLevel(PurchaseType purchaseType, PriceLevels levels, long pricePence, long quantityGrams) {
+        long topChanges = levels.topChanges();
+        long newTotalGrams = levels.add(pricePence, quantityGrams);
+        summaryCache(purchaseType).changed();
+        if (levels.topChanges() != topChanges) {
+            updateBestLevel(purchaseType, levels);
+        }
+        if (priceLevelPublisher.hasListeners()) {
+            priceLevelPublisher.publish(purchaseType, FixedPoint.fromPence(pricePence), FixedPoint.fromGrams(newTotalGrams));
+        }
+    }
+}
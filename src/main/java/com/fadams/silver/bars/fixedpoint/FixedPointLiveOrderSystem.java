@@ -0,0 +1,274 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.OrderDetailsAdapter;
+import com.fadams.silver.bars.OrderNumberSequence;
+import com.fadams.silver.bars.OrderRequestValidator;
+import com.fadams.silver.bars.collections.ConcurrentLongHashIndex;
+import com.fadams.silver.bars.collections.GroupedLongHashIndex;
+import com.fadams.silver.bars.collections.LongHashIndex;
+import com.fadams.silver.bars.history.DepthSink;
+import com.fadams.silver.bars.history.DepthSource;
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.CompactionReport;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+import com.fadams.silver.bars.model.Subscription;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Same behaviour as the BigDecimal based in memory system but aggregates prices and quantities as longs
+ * (pence and grams) so that registering and cancelling does not allocate new totals or box price keys.
+ * BigDecimals only exist at the edges, on the way in and when a summary is asked for.
+ * Unlike the BigDecimal system, a price with more than {@link FixedPoint#PRICE_SCALE} decimal places or a quantity
+ * with more than {@link FixedPoint#QUANTITY_SCALE} cannot be held exactly, so it is rejected with an
+ * IllegalArgumentException before anything is registered.
+ */
+public class FixedPointLiveOrderSystem implements RestorableLiveOrderSystem, DepthSource {
+    private final ConcurrentLongHashIndex<FixedPointOrder> orders = new ConcurrentLongHashIndex<>();
+    private final GroupedLongHashIndex<String, FixedPointOrder> ordersByUser = new GroupedLongHashIndex<>();
+    private final FixedPointBook book = new FixedPointBook();
+
+    private final OrderRequestValidator orderRequestValidator;
+    private final OrderNumberSequence nextOrderNumberProvider;
+    private final OrderDetailsAdapter toOrderDetailsAdapter;
+
+    public FixedPointLiveOrderSystem(OrderRequestValidator orderRequestValidator, OrderNumberSequence nextOrderNumberProvider, OrderDetailsAdapter toOrderDetailsAdapter) {
+        this.orderRequestValidator = orderRequestValidator;
+        this.nextOrderNumberProvider = nextOrderNumberProvider;
+        this.toOrderDetailsAdapter = toOrderDetailsAdapter;
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        orderRequestValidator.validate(orderRequest);
+        // converted before taking an order number so that a price in fractions of a penny is rejected up front
+        long pricePence = FixedPoint.toPence(orderRequest.getPricePerKg());
+        long quantityGrams = FixedPoint.toGrams(orderRequest.getOrderQuantity());
+        long orderNumber = nextOrderNumberProvider.next();
+        OrderDetails orderDetails = toOrderDetailsAdapter.toOrderDetails(orderNumber, orderRequest);
+        FixedPointOrder order = new FixedPointOrder(orderDetails, pricePence, quantityGrams);
+        orders.put(orderNumber, order);
+        ordersByUser.put(orderDetails.getUserId(), orderNumber, order);
+        book.add(orderRequest.getPurchaseType(), pricePence, quantityGrams);
+        return orderNumber;
+    }
+
+    /**
+     * Loads orders into an empty system far faster than registering them one at a time. Each side is totalled in
+     * one pass and only its distinct prices are sorted, then set as the side's levels in one step. Details are
+     * built directly rather than through the order details adapter, prices share one BigDecimal each, and no
+     * listener is told, so load before the system is shared.
+     *
+     * @return order id of the first order, the rest follow on contiguously in the order they were added
+     */
+    public long load(BulkOrders bulkOrders) {
+        if (orders.size() != 0) {
+            throw new IllegalStateException("orders can only be loaded into an empty system");
+        }
+        long firstOrderNumber = nextOrderNumberProvider.reserve(bulkOrders.size());
+        LongHashIndex<BigDecimal> pricesPerKg = new LongHashIndex<>();
+        for (int i = 0; i < bulkOrders.size(); i++) {
+            long orderNumber = firstOrderNumber + i;
+            long pricePence = bulkOrders.pricePenceAt(i);
+            BigDecimal pricePerKg = pricesPerKg.get(pricePence);
+            if (pricePerKg == null) {
+                pricePerKg = FixedPoint.fromPence(pricePence);
+                pricesPerKg.put(pricePence, pricePerKg);
+            }
+            OrderDetails orderDetails = new OrderDetails(orderNumber, bulkOrders.userIdAt(i),
+                    FixedPoint.fromGrams(bulkOrders.quantityGramsAt(i)), pricePerKg, bulkOrders.purchaseTypeAt(i));
+            FixedPointOrder order = new FixedPointOrder(orderDetails, pricePence, bulkOrders.quantityGramsAt(i));
+            orders.put(orderNumber, order);
+            ordersByUser.put(orderDetails.getUserId(), orderNumber, order);
+        }
+        book.load(bulkOrders);
+        return firstOrderNumber;
+    }
+
+    @Override
+    public void restoreOrder(long orderId, OrderRequest orderRequest) {
+        long pricePence = FixedPoint.toPence(orderRequest.getPricePerKg());
+        long quantityGrams = FixedPoint.toGrams(orderRequest.getOrderQuantity());
+        nextOrderNumberProvider.advancePast(orderId);
+        OrderDetails orderDetails = toOrderDetailsAdapter.toOrderDetails(orderId, orderRequest);
+        FixedPointOrder order = new FixedPointOrder(orderDetails, pricePence, quantityGrams);
+        if (orders.putIfAbsent(orderId, order) == null) {
+            ordersByUser.put(orderDetails.getUserId(), orderId, order);
+            book.add(orderRequest.getPurchaseType(), pricePence, quantityGrams);
+        }
+    }
+
+    @Override
+    public long liveOrderCount() {
+        return orders.size();
+    }
+
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        return book.bestLevel(purchaseType);
+    }
+
+    @Override
+    public CompactionReport compactionReport() {
+        return book.compactionReport();
+    }
+
+    @Override
+    public void forEachOrder(Consumer<OrderDetails> action) {
+        orders.forEachValue(order -> action.accept(order.getDetails()));
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        return findOrder(orderId).orElseThrow(notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        FixedPointOrder order = orders.get(orderId);
+        return order == null ? Optional.empty() : Optional.of(order.getDetails());
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        return tryCancel(orderId).orElseThrow(notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        FixedPointOrder order = orders.remove(orderId);
+        if (order == null) {
+            return Optional.empty();
+        }
+        ordersByUser.remove(order.getDetails().getUserId(), orderId);
+        book.add(order.getDetails().getPurchaseType(), order.getPricePence(), -order.getQuantityGrams());
+        return Optional.of(order.getDetails());
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType) {
+        return book.orderSummary(purchaseType);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        return book.orderSummary(purchaseType, depth);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        return book.orderSummary(purchaseType, from, to);
+    }
+
+    @Override
+    public void sampleDepth(PurchaseType purchaseType, int maxLevels, DepthSink sink) {
+        book.sampleDepth(purchaseType, maxLevels, sink);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener) {
+        return book.subscribe(listener);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        return book.subscribe(listener, conflationInterval, unit);
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        int count = orderRequests.size();
+        long[] pricesPence = new long[count];
+        long[] quantitiesGrams = new long[count];
+        for (int i = 0; i < count; i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            orderRequestValidator.validate(orderRequest);
+            pricesPence[i] = FixedPoint.toPence(orderRequest.getPricePerKg());
+            quantitiesGrams[i] = FixedPoint.toGrams(orderRequest.getOrderQuantity());
+        }
+        long firstOrderNumber = nextOrderNumberProvider.reserve(count);
+        FixedPointOrder[] registered = new FixedPointOrder[count];
+        List<String> orderIds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long orderNumber = firstOrderNumber + i;
+            registered[i] = new FixedPointOrder(toOrderDetailsAdapter.toOrderDetails(orderNumber, orderRequests.get(i)), pricesPence[i], quantitiesGrams[i]);
+            orders.put(orderNumber, registered[i]);
+            ordersByUser.put(registered[i].getDetails().getUserId(), orderNumber, registered[i]);
+            orderIds.add(registered[i].getDetails().getOrderId());
+        }
+        applyDeltas(registered, count, 1);
+        return orderIds;
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        FixedPointOrder[] cancelled = new FixedPointOrder[orderIds.size()];
+        int cancelledCount = 0;
+        List<CancelResult> results = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            long orderNumber = OrderIds.parse(orderId);
+            FixedPointOrder order = orderNumber == OrderIds.NOT_AN_ORDER_ID ? null : orders.remove(orderNumber);
+            if (order == null) {
+                results.add(CancelResult.notFound(orderId));
+            } else {
+                ordersByUser.remove(order.getDetails().getUserId(), orderNumber);
+                cancelled[cancelledCount++] = order;
+                results.add(CancelResult.cancelled(order.getDetails()));
+            }
+        }
+        applyDeltas(cancelled, cancelledCount, -1);
+        return results;
+    }
+
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        List<FixedPointOrder> userOrders = ordersByUser.values(userId);
+        List<OrderDetails> orderDetails = new ArrayList<>(userOrders.size());
+        for (FixedPointOrder order : userOrders) {
+            orderDetails.add(order.getDetails());
+        }
+        return orderDetails;
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        List<FixedPointOrder> userOrders = ordersByUser.removeAll(userId);
+        FixedPointOrder[] cancelled = new FixedPointOrder[userOrders.size()];
+        int cancelledCount = 0;
+        List<OrderDetails> cancelledDetails = new ArrayList<>(userOrders.size());
+        for (FixedPointOrder userOrder : userOrders) {
+            // an order cancelled on its own in the meantime is already gone from the index
+            FixedPointOrder order = orders.remove(userOrder.getDetails().getOrderNumber());
+            if (order != null) {
+                cancelled[cancelledCount++] = order;
+                cancelledDetails.add(order.getDetails());
+            }
+        }
+        applyDeltas(cancelled, cancelledCount, -1);
+        return cancelledDetails;
+    }
+
+    private void applyDeltas(FixedPointOrder[] changed, int count, int sign) {
+        book.addAll(count, i -> changed[i].getDetails().getPurchaseType(), i -> changed[i].getPricePence(),
+                i -> sign * changed[i].getQuantityGrams());
+    }
+
+    private Supplier<OrderNotFoundException> notFoundException(long orderId) {
+        return () -> new OrderNotFoundException(orderId + " not found");
+    }
+}
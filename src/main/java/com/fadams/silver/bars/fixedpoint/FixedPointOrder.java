@@ -0,0 +1,30 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.model.OrderDetails;
+
+/**
+ * Keeps the already converted price and quantity next to the order so cancelling does not convert again.
+ */
+final class FixedPointOrder {
+    private final OrderDetails details;
+    private final long pricePence;
+    private final long quantityGrams;
+
+    FixedPointOrder(OrderDetails details, long pricePence, long quantityGrams) {
+        this.details = details;
+        this.pricePence = pricePence;
+        this.quantityGrams = quantityGrams;
+    }
+
+    OrderDetails getDetails() {
+        return details;
+    }
+
+    long getPricePence() {
+        return pricePence;
+    }
+
+    long getQuantityGrams() {
+        return quantityGrams;
+    }
+}
@@ -0,0 +1,21 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.model.PurchaseType;
+
+/**
+ * Registers an order already in pence and grams, for callers that read orders off the wire and would otherwise
+ * build an {@link com.fadams.silver.bars.model.OrderRequest}, its BigDecimals and a user id String per order only
+ * for the system to take them apart again.
+ */
+public interface FixedPointOrderEntry {
+
+    /**
+     * @param userId UTF-8 bytes of the user id, looked up without building a String once the user has been seen
+     * @param userIdLength bytes of userId that make up the id
+     * @param quantityScale scale the quantity was given at, so that the order's details give it back the same way
+     * @param priceScale scale the price was given at, likewise
+     * @return numeric order id
+     */
+    long registerOrderId(byte[] userId, int userIdLength, long quantityGrams, int quantityScale,
+                         long pricePence, int priceScale, PurchaseType purchaseType);
+}
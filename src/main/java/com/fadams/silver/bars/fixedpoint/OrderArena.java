@@ -0,0 +1,159 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.util.Arrays;
+
+/**
+ * Resting orders as fixed width slots of five longs in pages of a large primitive array, so holding an order costs
+ * forty bytes and no objects, and the collector only ever sees a handful of big arrays. A slot holds
+ * [order number][price pence][quantity grams][user | purchase type | price scale | quantity scale][next | previous],
+ * the last being the order's links in a doubly linked list of its user's orders. Freed slots are reused before the
+ * arena grows. Not thread safe.
+ */
+final class OrderArena {
+    static final int NONE = -1;
+
+    private static final int PAGE_SHIFT = 16;
+    private static final int SLOTS_PER_PAGE = 1 << PAGE_SHIFT;
+    private static final int SLOT_LONGS = 5;
+    private static final int ORDER_NUMBER = 0;
+    private static final int PRICE_PENCE = 1;
+    private static final int QUANTITY_GRAMS = 2;
+    private static final int META = 3;
+    private static final int LINKS = 4;
+    private static final long FREE = Long.MIN_VALUE;
+    private static final PurchaseType[] PURCHASE_TYPES = PurchaseType.values();
+
+    private long[][] pages = new long[0][];
+    private int[] firstOfUser = new int[0];
+    private int allocatedSlots;
+    private int freeSlot = NONE;
+    private int size;
+
+    /**
+     * @param priceScale scale the price was given with, so it can be given back exactly
+     * @param quantityScale scale the quantity was given with
+     * @return the order's slot
+     */
+    int allocate(long orderNumber, long pricePence, long quantityGrams, int user, PurchaseType purchaseType,
+                 byte priceScale, byte quantityScale) {
+        int slot = freeSlot;
+        if (slot == NONE) {
+            slot = allocatedSlots++;
+            int page = slot >>> PAGE_SHIFT;
+            if (page == pages.length) {
+                pages = Arrays.copyOf(pages, page + 1);
+                pages[page] = new long[SLOTS_PER_PAGE * SLOT_LONGS];
+            }
+        } else {
+            freeSlot = next(slot);
+        }
+        set(slot, ORDER_NUMBER, orderNumber);
+        set(slot, PRICE_PENCE, pricePence);
+        set(slot, QUANTITY_GRAMS, quantityGrams);
+        set(slot, META, (user & 0xFFFFFFFFL) | (long) purchaseType.ordinal() << 32
+                | (priceScale & 0xFFL) << 40 | (quantityScale & 0xFFL) << 48);
+        if (user >= firstOfUser.length) {
+            int length = firstOfUser.length;
+            firstOfUser = Arrays.copyOf(firstOfUser, Math.max(16, Math.max(user + 1, length * 2)));
+            Arrays.fill(firstOfUser, length, firstOfUser.length, NONE);
+        }
+        int first = firstOfUser[user];
+        setLinks(slot, first, NONE);
+        if (first != NONE) {
+            setLinks(first, next(first), slot);
+        }
+        firstOfUser[user] = slot;
+        size++;
+        return slot;
+    }
+
+    void free(int slot) {
+        int next = next(slot);
+        int previous = previous(slot);
+        if (previous == NONE) {
+            firstOfUser[user(slot)] = next;
+        } else {
+            setLinks(previous, next, previous(previous));
+        }
+        if (next != NONE) {
+            setLinks(next, next(next), previous);
+        }
+        set(slot, ORDER_NUMBER, FREE);
+        setLinks(slot, freeSlot, NONE);
+        freeSlot = slot;
+        size--;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return one past the highest slot ever allocated, slots below it that are not live are free
+     */
+    int allocatedSlots() {
+        return allocatedSlots;
+    }
+
+    boolean isLive(int slot) {
+        return get(slot, ORDER_NUMBER) != FREE;
+    }
+
+    long orderNumber(int slot) {
+        return get(slot, ORDER_NUMBER);
+    }
+
+    long pricePence(int slot) {
+        return get(slot, PRICE_PENCE);
+    }
+
+    long quantityGrams(int slot) {
+        return get(slot, QUANTITY_GRAMS);
+    }
+
+    int user(int slot) {
+        return (int) get(slot, META);
+    }
+
+    PurchaseType purchaseType(int slot) {
+        return PURCHASE_TYPES[(int) (get(slot, META) >>> 32) & 0xFF];
+    }
+
+    byte priceScale(int slot) {
+        return (byte) (get(slot, META) >>> 40);
+    }
+
+    byte quantityScale(int slot) {
+        return (byte) (get(slot, META) >>> 48);
+    }
+
+    int firstOfUser(int user) {
+        return user < firstOfUser.length ? firstOfUser[user] : NONE;
+    }
+
+    int nextOfUser(int slot) {
+        return next(slot);
+    }
+
+    private int next(int slot) {
+        return (int) (get(slot, LINKS) >> 32);
+    }
+
+    private int previous(int slot) {
+        return (int) get(slot, LINKS);
+    }
+
+    private void setLinks(int slot, int next, int previous) {
+        set(slot, LINKS, (long) next << 32 | (previous & 0xFFFFFFFFL));
+    }
+
+    private long get(int slot, int field) {
+        return pages[slot >>> PAGE_SHIFT][(slot & (SLOTS_PER_PAGE - 1)) * SLOT_LONGS + field];
+    }
+
+    private void set(int slot, int field, long value) {
+        pages[slot >>> PAGE_SHIFT][(slot & (SLOTS_PER_PAGE - 1)) * SLOT_LONGS + field] = value;
+    }
+}
@@ -0,0 +1,153 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import java.util.Arrays;
+
+/**
+ * One side of the book as two parallel primitive arrays kept in display order (best price first).
+ * Not thread safe, callers are expected to guard each side themselves.
+ */
+final class PriceLevels {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final boolean highestFirst;
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] totals = new long[INITIAL_CAPACITY];
+    private int size;
+    private long totalQuantity;
+    private long removedLevels;
+    private long topChanges;
+
+    PriceLevels(boolean highestFirst) {
+        this.highestFirst = highestFirst;
+    }
+
+    /**
+     * @return the new total for the level, a level whose total reaches zero is removed
+     */
+    long add(long price, long quantity) {
+        int index = indexOf(price);
+        if (index == 0 || index == -1) {
+            topChanges++;
+        }
+        totalQuantity += quantity;
+        if (index >= 0) {
+            long total = totals[index] + quantity;
+            if (total == 0) {
+                remove(index);
+                removedLevels++;
+            } else {
+                totals[index] = total;
+            }
+            return total;
+        }
+        if (quantity != 0) {
+            insert(-(index + 1), price, quantity);
+        }
+        return quantity;
+    }
+
+    /**
+     * Replaces an empty side with levels already aggregated and sorted into display order
+     */
+    void load(long[] sortedPrices, long[] sortedTotals, int count) {
+        if (size != 0) {
+            throw new IllegalStateException("levels can only be loaded into an empty side");
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, count);
+        prices = Arrays.copyOf(sortedPrices, capacity);
+        totals = Arrays.copyOf(sortedTotals, capacity);
+        size = count;
+        for (int i = 0; i < count; i++) {
+            totalQuantity += sortedTotals[i];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the sum of every level's total, kept as levels change rather than added up
+     */
+    long totalQuantity() {
+        return totalQuantity;
+    }
+
+    /**
+     * @return how many levels have been removed on reaching zero since the side was created
+     */
+    long removedLevels() {
+        return removedLevels;
+    }
+
+    /**
+     * @return a count that moves whenever the best level is changed, removed or displaced
+     */
+    long topChanges() {
+        return topChanges;
+    }
+
+    long priceAt(int index) {
+        return prices[index];
+    }
+
+    long totalAt(int index) {
+        return totals[index];
+    }
+
+    /**
+     * Binary search in display order.
+     *
+     * @return index of the price, or (-(insertion point) - 1) when not present
+     */
+    int indexOf(long price) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int comparison = compare(prices[mid], price);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return index of the price, or of where it would be inserted, in display order
+     */
+    int positionOf(long price) {
+        int index = indexOf(price);
+        return index >= 0 ? index : -(index + 1);
+    }
+
+    boolean isHighestFirst() {
+        return highestFirst;
+    }
+
+    private int compare(long left, long right) {
+        return highestFirst ? Long.compare(right, left) : Long.compare(left, right);
+    }
+
+    private void insert(int index, long price, long quantity) {
+        if (size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            totals = Arrays.copyOf(totals, size * 2);
+        }
+        System.arraycopy(prices, index, prices, index + 1, size - index);
+        System.arraycopy(totals, index, totals, index + 1, size - index);
+        prices[index] = price;
+        totals[index] = quantity;
+        size++;
+    }
+
+    private void remove(int index) {
+        System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+        System.arraycopy(totals, index + 1, totals, index, size - index - 1);
+        size--;
+    }
+}
@@ -0,0 +1,108 @@
+package com.fadams.silver.bars.fixedpoint;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gives each distinct user id a small int, so orders refer to their user with four bytes rather than a String.
+ * Users are never forgotten, the dictionary only grows with the number of distinct users ever seen. Not thread safe.
+ */
+final class UserDictionary {
+    static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> users = new HashMap<>();
+    private String[] userIds = new String[16];
+    // open addressed over the UTF-8 bytes of users looked up by bytes, each entry the user plus one so 0 is empty
+    private int[] usersByBytes = new int[16];
+    private byte[][] userBytes = new byte[16][];
+    private int usersWithBytes;
+
+    int intern(String userId) {
+        Integer user = users.get(userId);
+        if (user != null) {
+            return user;
+        }
+        int newUser = users.size();
+        if (newUser == userIds.length) {
+            userIds = Arrays.copyOf(userIds, newUser * 2);
+            userBytes = Arrays.copyOf(userBytes, newUser * 2);
+        }
+        userIds[newUser] = userId;
+        users.put(userId, newUser);
+        return newUser;
+    }
+
+    /**
+     * Same as {@link #intern(String)} for a user id given as UTF-8 bytes, only building a String the first time the
+     * bytes are seen
+     */
+    int intern(byte[] utf8, int length) {
+        int hash = hash(utf8, length);
+        int mask = usersByBytes.length - 1;
+        int index = hash & mask;
+        for (int entry = usersByBytes[index]; entry != 0; entry = usersByBytes[index]) {
+            if (sameBytes(userBytes[entry - 1], utf8, length)) {
+                return entry - 1;
+            }
+            index = (index + 1) & mask;
+        }
+        int user = intern(new String(utf8, 0, length, StandardCharsets.UTF_8));
+        userBytes[user] = Arrays.copyOf(utf8, length);
+        usersByBytes[index] = user + 1;
+        if (++usersWithBytes > usersByBytes.length / 2) {
+            rehashUsersByBytes(usersByBytes.length * 2);
+        }
+        return user;
+    }
+
+    /**
+     * @return the user's int, or {@link #UNKNOWN} if the user has never been seen
+     */
+    int find(String userId) {
+        Integer user = users.get(userId);
+        return user == null ? UNKNOWN : user;
+    }
+
+    String userId(int user) {
+        return userIds[user];
+    }
+
+    private void rehashUsersByBytes(int capacity) {
+        int[] rehashed = new int[capacity];
+        int mask = capacity - 1;
+        for (int entry : usersByBytes) {
+            if (entry != 0) {
+                byte[] utf8 = userBytes[entry - 1];
+                int index = hash(utf8, utf8.length) & mask;
+                while (rehashed[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                rehashed[index] = entry;
+            }
+        }
+        usersByBytes = rehashed;
+    }
+
+    private static boolean sameBytes(byte[] userBytes, byte[] utf8, int length) {
+        if (userBytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (userBytes[i] != utf8[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] utf8, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + utf8[i];
+        }
+        // spread the high bits down as the table is indexed by the low ones
+        return hash ^ (hash >>> 16);
+    }
+}
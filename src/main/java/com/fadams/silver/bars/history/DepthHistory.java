@@ -0,0 +1,218 @@
+package com.fadams.silver.bars.history;
+
+import com.fadams.silver.bars.fixedpoint.FixedPoint;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Ring of the most recent depth samples of both sides, taken every interval. Every array is allocated up front, see
+ * {@link #footprintBytes}, and a sample overwrites the oldest in place, so once a {@link DepthSource} that does not
+ * allocate has been sampled a few times sampling allocates nothing. Queries copy samples out of the ring, never the
+ * live board, and briefly hold up the next sample while they do.
+ */
+public class DepthHistory implements AutoCloseable {
+    private static final int BYTES_PER_LEVEL = 2 * Long.BYTES;
+    private static final int BYTES_PER_SIDE_SAMPLE = Long.BYTES + Integer.BYTES;
+
+    private final DepthSource source;
+    private final int capacity;
+    private final int depth;
+    private final long[] sampledAtMillis;
+    private final Side buySide;
+    private final Side sellSide;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService sampler;
+    // guarded by this, sample n is in slot n % capacity and samples oldest to samples - 1 are held
+    private long samples;
+    private long oldest;
+
+    /**
+     * @param capacity samples kept, the oldest is overwritten once full
+     * @param depth best levels kept per side in each sample
+     * @param intervalMillis how often to sample
+     */
+    public DepthHistory(DepthSource source, int capacity, int depth, long intervalMillis) {
+        this(source, capacity, depth, System::currentTimeMillis, requirePositive(intervalMillis));
+    }
+
+    /**
+     * For tests, samples are only taken when {@link #sample()} is called
+     */
+    DepthHistory(DepthSource source, int capacity, int depth, LongSupplier clock) {
+        this(source, capacity, depth, clock, 0);
+    }
+
+    private DepthHistory(DepthSource source, int capacity, int depth, LongSupplier clock, long intervalMillis) {
+        if (capacity <= 0 || depth < 0 || (long) capacity * depth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacity must be positive and depth not negative, with no more than "
+                    + Integer.MAX_VALUE + " levels in all, not " + capacity + " and " + depth);
+        }
+        this.source = source;
+        this.capacity = capacity;
+        this.depth = depth;
+        this.sampledAtMillis = new long[capacity];
+        this.buySide = new Side(PurchaseType.BUY, capacity, depth);
+        this.sellSide = new Side(PurchaseType.SELL, capacity, depth);
+        this.clock = clock;
+        if (intervalMillis > 0) {
+            this.sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "depth-history");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sampler.scheduleAtFixedRate(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.sampler = null;
+        }
+    }
+
+    /**
+     * @return bytes held by the ring, fixed from construction
+     */
+    public static long footprintBytes(int capacity, int depth) {
+        return (long) capacity * (Long.BYTES + 2 * (BYTES_PER_SIDE_SAMPLE + (long) depth * BYTES_PER_LEVEL));
+    }
+
+    public long footprintBytes() {
+        return footprintBytes(capacity, depth);
+    }
+
+    /**
+     * Samples both sides into the oldest slot. Times never go backwards, a clock that does is held at the last
+     * sample's time. A source that fails is reported to the thread's uncaught exception handler rather than
+     * thrown, so it never stops the timer. The slot is left for the next sample, and if it held the oldest sample
+     * that sample is dropped.
+     */
+    public synchronized void sample() {
+        int slot = (int) (samples % capacity);
+        long now = clock.getAsLong();
+        try {
+            sampledAtMillis[slot] = samples == 0 ? now : Math.max(now, sampledAtMillis[(int) ((samples - 1) % capacity)]);
+            buySide.startSample(slot);
+            source.sampleDepth(PurchaseType.BUY, depth, buySide);
+            sellSide.startSample(slot);
+            source.sampleDepth(PurchaseType.SELL, depth, sellSide);
+            samples++;
+            oldest = Math.max(oldest, samples - capacity);
+        } catch (RuntimeException e) {
+            oldest = Math.max(oldest, samples - capacity + 1);
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * @param fromMillis start of the window, inclusive
+     * @param toMillis end of the window, inclusive
+     * @return the samples of the side taken within the window that are still held, oldest first
+     */
+    public synchronized List<DepthSample> samples(PurchaseType purchaseType, long fromMillis, long toMillis) {
+        Side side = PurchaseType.SELL.equals(purchaseType) ? sellSide : buySide;
+        List<DepthSample> window = new ArrayList<>();
+        for (long sample = firstSampleAtOrAfter(oldest, fromMillis); sample < samples; sample++) {
+            int slot = (int) (sample % capacity);
+            if (sampledAtMillis[slot] > toMillis) {
+                break;
+            }
+            window.add(side.read(slot, sampledAtMillis[slot]));
+        }
+        return window;
+    }
+
+    /**
+     * @return samples held, at most the capacity
+     */
+    public synchronized int size() {
+        return (int) (samples - oldest);
+    }
+
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    private static long requirePositive(long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("intervalMillis must be positive but was " + intervalMillis);
+        }
+        return intervalMillis;
+    }
+
+    /**
+     * Binary search, sample times only ever increase around the ring from the oldest
+     */
+    private long firstSampleAtOrAfter(long oldest, long millis) {
+        long low = oldest;
+        long high = samples;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (sampledAtMillis[(int) (mid % capacity)] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * One side's samples as flat primitive arrays, the levels of slot n at n * depth onwards
+     */
+    private static final class Side implements DepthSink {
+        private final PurchaseType purchaseType;
+        private final int depth;
+        private final long[] totalsGrams;
+        private final int[] levelCounts;
+        private final long[] pricesPence;
+        private final long[] amountsGrams;
+        private int slot;
+
+        Side(PurchaseType purchaseType, int capacity, int depth) {
+            this.purchaseType = purchaseType;
+            this.depth = depth;
+            this.totalsGrams = new long[capacity];
+            this.levelCounts = new int[capacity];
+            this.pricesPence = new long[capacity * depth];
+            this.amountsGrams = new long[capacity * depth];
+        }
+
+        void startSample(int sampleSlot) {
+            slot = sampleSlot;
+            totalsGrams[slot] = 0;
+            levelCounts[slot] = 0;
+        }
+
+        @Override
+        public void total(long totalGrams) {
+            totalsGrams[slot] = totalGrams;
+        }
+
+        @Override
+        public void level(long pricePence, long amountGrams) {
+            // a source that writes more levels than asked for only has the best kept
+            if (levelCounts[slot] < depth) {
+                int index = slot * depth + levelCounts[slot]++;
+                pricesPence[index] = pricePence;
+                amountsGrams[index] = amountGrams;
+            }
+        }
+
+        DepthSample read(int readSlot, long sampledAtMillis) {
+            List<PriceLevel> levels = new ArrayList<>(levelCounts[readSlot]);
+            for (int i = 0; i < levelCounts[readSlot]; i++) {
+                int index = readSlot * depth + i;
+                levels.add(new PriceLevel(purchaseType, FixedPoint.fromPence(pricesPence[index]), FixedPoint.fromGrams(amountsGrams[index])));
+            }
+            return new DepthSample(purchaseType, sampledAtMillis, FixedPoint.fromGrams(totalsGrams[readSlot]), levels);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.fadams.silver.bars.history;
+
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * One side of the board as it was sampled, read back out of a {@link DepthHistory}
+ */
+public class DepthSample {
+    private final PurchaseType purchaseType;
+    private final long sampledAtMillis;
+    private final BigDecimal totalInKg;
+    private final List<PriceLevel> levels;
+
+    public DepthSample(PurchaseType purchaseType, long sampledAtMillis, BigDecimal totalInKg, List<PriceLevel> levels) {
+        this.purchaseType = purchaseType;
+        this.sampledAtMillis = sampledAtMillis;
+        this.totalInKg = totalInKg;
+        this.levels = levels;
+    }
+
+    public PurchaseType getPurchaseType() {
+        return purchaseType;
+    }
+
+    public long getSampledAtMillis() {
+        return sampledAtMillis;
+    }
+
+    /**
+     * @return quantity across the whole side, not just the levels sampled
+     */
+    public BigDecimal getTotalInKg() {
+        return totalInKg;
+    }
+
+    /**
+     * @return the best levels, best price first, at most the history's depth
+     */
+    public List<PriceLevel> getLevels() {
+        return levels;
+    }
+
+    @Override
+    public String toString() {
+        return "DepthSample{" +
+                "purchaseType=" + purchaseType +
+                ", sampledAtMillis=" + sampledAtMillis +
+                ", totalInKg=" + totalInKg +
+                ", levels=" + levels +
+                '}';
+    }
+}
@@ -0,0 +1,17 @@
+package com.fadams.silver.bars.history;
+
+/**
+ * Receives one side's depth in pence and grams, see {@link DepthSource}
+ */
+public interface DepthSink {
+
+    /**
+     * @param totalGrams quantity across every level of the side, called once before the levels
+     */
+    void total(long totalGrams);
+
+    /**
+     * Called for each level best price first
+     */
+    void level(long pricePence, long amountGrams);
+}
@@ -0,0 +1,49 @@
+package com.fadams.silver.bars.history;
+
+import com.fadams.silver.bars.fixedpoint.FixedPoint;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+
+/**
+ * A side of the board that can be sampled into a {@link DepthHistory}
+ */
+@FunctionalInterface
+public interface DepthSource {
+
+    /**
+     * Implementations should write a consistent view of the side and allocate nothing, as samples are taken on a
+     * timer for as long as the history lives
+     *
+     * @param purchaseType side of the board
+     * @param maxLevels most levels to write
+     * @param sink where to write the side's total and then its best levels
+     */
+    void sampleDepth(PurchaseType purchaseType, int maxLevels, DepthSink sink);
+
+    /**
+     * For systems without primitive levels to read. Each sample builds a summary of the side, so it allocates, and
+     * the total and levels may come from either side of a concurrent change. Amounts are rounded to the penny and
+     * gram.
+     */
+    static DepthSource ofSummaries(LiveOrderSystem liveOrderSystem) {
+        return (purchaseType, maxLevels, sink) -> {
+            Map<BigDecimal, BigDecimal> levels = liveOrderSystem.orderSummary(purchaseType).getAmountsInKgByPrice();
+            BigDecimal total = BigDecimal.ZERO;
+            for (BigDecimal amountInKg : levels.values()) {
+                total = total.add(amountInKg);
+            }
+            sink.total(FixedPoint.toGrams(total, RoundingMode.HALF_UP));
+            int written = 0;
+            for (Map.Entry<BigDecimal, BigDecimal> level : levels.entrySet()) {
+                if (written++ == maxLevels) {
+                    break;
+                }
+                sink.level(FixedPoint.toPence(level.getKey(), RoundingMode.HALF_UP), FixedPoint.toGrams(level.getValue(), RoundingMode.HALF_UP));
+            }
+        };
+    }
+}
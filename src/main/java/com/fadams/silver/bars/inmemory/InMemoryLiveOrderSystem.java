@@ -1,96 +1,362 @@
 package com.fadams.silver.bars.inmemory;
 
+import com.fadams.silver.bars.OrderDetailsAdapter;
+import com.fadams.silver.bars.OrderNumberSequence;
 import com.fadams.silver.bars.OrderRequestValidator;
-import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.collections.ConcurrentLongHashIndex;
+import com.fadams.silver.bars.collections.GroupedLongHashIndex;
+import com.fadams.silver.bars.fixedpoint.FixedPoint;
+import com.fadams.silver.bars.history.DepthSink;
+import com.fadams.silver.bars.history.DepthSource;
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.CompactionReport;
 import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
 import com.fadams.silver.bars.model.OrderNotFoundException;
 import com.fadams.silver.bars.model.OrderRequest;
 import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
 import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+import com.fadams.silver.bars.model.Subscription;
+import com.fadams.silver.bars.summary.PriceLevelPublisher;
+import com.fadams.silver.bars.summary.TopOfBookCache;
+import com.fadams.silver.bars.summary.VersionedSummaryCache;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.function.BiFunction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
-public class InMemoryLiveOrderSystem implements LiveOrderSystem {
-    private final Map<String, OrderDetails> orders = new ConcurrentSkipListMap <>();
-    private final SortedMap<BigDecimal, BigDecimal> buyOrdersTotal = new ConcurrentSkipListMap <>(lowestFirst().reversed());
-    private final SortedMap<BigDecimal, BigDecimal> sellOrdersTotal = new ConcurrentSkipListMap<>(lowestFirst());
+public class InMemoryLiveOrderSystem implements RestorableLiveOrderSystem, DepthSource {
+    private static final int LEVEL_LOCK_STRIPES = 64;
+
+    private final ConcurrentLongHashIndex<OrderDetails> orders = new ConcurrentLongHashIndex<>();
+    private final GroupedLongHashIndex<String, OrderDetails> ordersByUser = new GroupedLongHashIndex<>();
+    private final ConcurrentNavigableMap<BigDecimal, BigDecimal> buyOrdersTotal = new ConcurrentSkipListMap <>(lowestFirst().reversed());
+    private final ConcurrentNavigableMap<BigDecimal, BigDecimal> sellOrdersTotal = new ConcurrentSkipListMap<>(lowestFirst());
+    private final VersionedSummaryCache buySummary = new VersionedSummaryCache();
+    private final VersionedSummaryCache sellSummary = new VersionedSummaryCache();
+    private final TopOfBookCache buyTopOfBook = new TopOfBookCache(PurchaseType.BUY);
+    private final TopOfBookCache sellTopOfBook = new TopOfBookCache(PurchaseType.SELL);
+    // the sum of every level's total rounded to the gram, so it always agrees with the levels a depth sample writes
+    private final LongAdder buyTotalGrams = new LongAdder();
+    private final LongAdder sellTotalGrams = new LongAdder();
+    private final LongAdder buyLevelsRemoved = new LongAdder();
+    private final LongAdder sellLevelsRemoved = new LongAdder();
+    private final PriceLevelPublisher priceLevelPublisher = new PriceLevelPublisher();
+    // a level's change and its publication happen under the level's stripe, so listeners see its totals in order
+    private final Object[] levelLocks = newLevelLocks();
 
     private final OrderRequestValidator orderRequestValidator;
-    private final Supplier<String> nextOrderNumberProvider;
-    private final BiFunction<String, OrderRequest, OrderDetails> toOrderDetailsAdapter;
+    private final OrderNumberSequence nextOrderNumberProvider;
+    private final OrderDetailsAdapter toOrderDetailsAdapter;
 
-    public InMemoryLiveOrderSystem(OrderRequestValidator orderRequestValidator, Supplier<String> nextOrderNumberProvider, BiFunction<String, OrderRequest, OrderDetails> toOrderDetailsAdapter) {
+    public InMemoryLiveOrderSystem(OrderRequestValidator orderRequestValidator, OrderNumberSequence nextOrderNumberProvider, OrderDetailsAdapter toOrderDetailsAdapter) {
         this.orderRequestValidator = orderRequestValidator;
         this.nextOrderNumberProvider = nextOrderNumberProvider;
         this.toOrderDetailsAdapter = toOrderDetailsAdapter;
     }
 
     @Override
-    public String registerOrder(OrderRequest orderRequest) {
-        // would prefer to return Either<String, RejectionReason> rather than throw validation as an exception
+    public long registerOrderId(OrderRequest orderRequest) {
+        // throws to keep the register contract, callers that expect bad requests can check them first without throwing
         orderRequestValidator.validate(orderRequest);
-        String orderNumber = nextOrderNumberProvider.get();
+        long orderNumber = nextOrderNumberProvider.next();
         // decided to keep the summary in memory so that it is faster to access the summaries
-        orders.put(orderNumber, toOrderDetailsAdapter.apply(orderNumber, orderRequest));
+        OrderDetails orderDetails = toOrderDetailsAdapter.toOrderDetails(orderNumber, orderRequest);
+        orders.put(orderNumber, orderDetails);
+        ordersByUser.put(orderDetails.getUserId(), orderNumber, orderDetails);
         updateOrderTotals(orderRequest);
         return orderNumber;
     }
 
     @Override
-    public OrderDetails orderDetails(String orderId) throws OrderNotFoundException {
-        // TODO should validate input is not null + add a test for it
-        return Optional.ofNullable(orders.get(orderId)).orElseThrow(notFoundException(orderId));
+    public void restoreOrder(long orderId, OrderRequest orderRequest) {
+        nextOrderNumberProvider.advancePast(orderId);
+        OrderDetails orderDetails = toOrderDetailsAdapter.toOrderDetails(orderId, orderRequest);
+        if (orders.putIfAbsent(orderId, orderDetails) == null) {
+            ordersByUser.put(orderDetails.getUserId(), orderId, orderDetails);
+            updateOrderTotals(orderRequest);
+        }
     }
 
     @Override
-    public OrderDetails cancelOrder(String orderId) throws OrderNotFoundException {
-        // TODO should validate input is not null + add a test for it
-        OrderDetails orderDetails = Optional.ofNullable(orders.remove(orderId)).orElseThrow(notFoundException(orderId));
+    public long liveOrderCount() {
+        return orders.size();
+    }
+
+    @Override
+    public CompactionReport compactionReport() {
+        return new CompactionReport(buyOrdersTotal.size(), buyLevelsRemoved.sum(), sellOrdersTotal.size(), sellLevelsRemoved.sum());
+    }
+
+    @Override
+    public void forEachOrder(Consumer<OrderDetails> action) {
+        orders.forEachValue(action);
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        return findOrder(orderId).orElseThrow(notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        return Optional.ofNullable(orders.get(orderId));
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        return tryCancel(orderId).orElseThrow(notFoundException(orderId));
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        OrderDetails orderDetails = orders.remove(orderId);
+        if (orderDetails == null) {
+            return Optional.empty();
+        }
+        ordersByUser.remove(orderDetails.getUserId(), orderId);
         updateOrderTotals(orderDetails.getPricePerKg(), orderDetails.getOrderQuantity().negate(), orderDetails.getPurchaseType());
-        return orderDetails;
+        return Optional.of(orderDetails);
     }
 
     @Override
     public OrdersSummary orderSummary(PurchaseType purchaseType) {
         // TODO should validate input is not null + add a test for it
+        // only copied when the side has changed since the last summary, OrdersSummary makes its own copy
         if (PurchaseType.SELL.equals(purchaseType)) {
-            return new OrdersSummary(purchaseType, new TreeMap<>(sellOrdersTotal));
+            return sellSummary.summary(version -> new OrdersSummary(purchaseType, sellOrdersTotal, version));
         } else {
-            return new OrdersSummary(purchaseType, new TreeMap<>(buyOrdersTotal));
+            return buySummary.summary(version -> new OrdersSummary(purchaseType, buyOrdersTotal, version));
         }
     }
 
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        TopOfBookCache topOfBook = PurchaseType.SELL.equals(purchaseType) ? sellTopOfBook : buyTopOfBook;
+        return topOfBook.best(() -> Optional.ofNullable(ordersTotal(purchaseType).firstEntry())
+                .map(level -> new PriceLevel(purchaseType, level.getKey(), level.getValue())));
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative but was " + depth);
+        }
+        VersionedSummaryCache summaryCache = PurchaseType.SELL.equals(purchaseType) ? sellSummary : buySummary;
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(summaryCache.version());
+        int levels = 0;
+        // the skip list is already in display order, so the best levels are simply the first ones
+        for (Map.Entry<BigDecimal, BigDecimal> level : ordersTotal(purchaseType).entrySet()) {
+            if (levels++ == depth) {
+                break;
+            }
+            summary.level(level.getKey(), level.getValue());
+        }
+        return summary.build();
+    }
+
+    /**
+     * Reads the side's running total and only its best levels, so a sample costs the same however deep the side is,
+     * though unlike the fixed point systems it allocates a summary of those levels. The total and levels may come
+     * from either side of a concurrent change. Amounts are rounded to the penny and gram.
+     */
+    @Override
+    public void sampleDepth(PurchaseType purchaseType, int maxLevels, DepthSink sink) {
+        sink.total((PurchaseType.SELL.equals(purchaseType) ? sellTotalGrams : buyTotalGrams).sum());
+        orderSummary(purchaseType, maxLevels).getAmountsInKgByPrice().forEach((pricePerKg, amountInKg) ->
+                sink.level(FixedPoint.toPence(pricePerKg, RoundingMode.HALF_UP), FixedPoint.toGrams(amountInKg, RoundingMode.HALF_UP)));
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        BigDecimal lowest = from.min(to);
+        BigDecimal highest = from.max(to);
+        VersionedSummaryCache summaryCache = PurchaseType.SELL.equals(purchaseType) ? sellSummary : buySummary;
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(summaryCache.version());
+        // the BUY side is ordered highest first, so its band starts at the highest price
+        ConcurrentNavigableMap<BigDecimal, BigDecimal> band = PurchaseType.SELL.equals(purchaseType)
+                ? sellOrdersTotal.subMap(lowest, true, highest, true)
+                : buyOrdersTotal.subMap(highest, true, lowest, true);
+        band.forEach(summary::level);
+        return summary.build();
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener) {
+        return priceLevelPublisher.subscribe(listener);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        return priceLevelPublisher.subscribe(listener, conflationInterval, unit);
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        orderRequests.forEach(orderRequestValidator::validate);
+        long firstOrderNumber = nextOrderNumberProvider.reserve(orderRequests.size());
+        Map<BigDecimal, BigDecimal> buyDeltas = new TreeMap<>(lowestFirst());
+        Map<BigDecimal, BigDecimal> sellDeltas = new TreeMap<>(lowestFirst());
+        List<String> orderIds = new ArrayList<>(orderRequests.size());
+        for (int i = 0; i < orderRequests.size(); i++) {
+            OrderRequest orderRequest = orderRequests.get(i);
+            long orderNumber = firstOrderNumber + i;
+            OrderDetails orderDetails = toOrderDetailsAdapter.toOrderDetails(orderNumber, orderRequest);
+            orders.put(orderNumber, orderDetails);
+            ordersByUser.put(orderDetails.getUserId(), orderNumber, orderDetails);
+            netDelta(orderRequest.getPricePerKg(), orderRequest.getOrderQuantity(), orderRequest.getPurchaseType(), buyDeltas, sellDeltas);
+            orderIds.add(orderDetails.getOrderId());
+        }
+        applyDeltas(buyDeltas, sellDeltas);
+        return orderIds;
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        Map<BigDecimal, BigDecimal> buyDeltas = new TreeMap<>(lowestFirst());
+        Map<BigDecimal, BigDecimal> sellDeltas = new TreeMap<>(lowestFirst());
+        List<CancelResult> results = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            long orderNumber = OrderIds.parse(orderId);
+            OrderDetails orderDetails = orderNumber == OrderIds.NOT_AN_ORDER_ID ? null : orders.remove(orderNumber);
+            if (orderDetails == null) {
+                results.add(CancelResult.notFound(orderId));
+            } else {
+                ordersByUser.remove(orderDetails.getUserId(), orderNumber);
+                netDelta(orderDetails.getPricePerKg(), orderDetails.getOrderQuantity().negate(), orderDetails.getPurchaseType(), buyDeltas, sellDeltas);
+                results.add(CancelResult.cancelled(orderDetails));
+            }
+        }
+        applyDeltas(buyDeltas, sellDeltas);
+        return results;
+    }
+
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        return ordersByUser.values(userId);
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        Map<BigDecimal, BigDecimal> buyDeltas = new TreeMap<>(lowestFirst());
+        Map<BigDecimal, BigDecimal> sellDeltas = new TreeMap<>(lowestFirst());
+        List<OrderDetails> cancelled = new ArrayList<>();
+        for (OrderDetails userOrder : ordersByUser.removeAll(userId)) {
+            // an order cancelled on its own in the meantime is already gone from the index
+            OrderDetails orderDetails = orders.remove(userOrder.getOrderNumber());
+            if (orderDetails != null) {
+                netDelta(orderDetails.getPricePerKg(), orderDetails.getOrderQuantity().negate(), orderDetails.getPurchaseType(), buyDeltas, sellDeltas);
+                cancelled.add(orderDetails);
+            }
+        }
+        applyDeltas(buyDeltas, sellDeltas);
+        return cancelled;
+    }
+
+    private ConcurrentNavigableMap<BigDecimal, BigDecimal> ordersTotal(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellOrdersTotal : buyOrdersTotal;
+    }
+
     private Comparator<BigDecimal> lowestFirst() {
         return BigDecimal::compareTo;
     }
 
-    private Supplier<OrderNotFoundException> notFoundException(String orderId) {
+    private Supplier<OrderNotFoundException> notFoundException(long orderId) {
         return () -> new OrderNotFoundException(orderId + " not found");
     }
 
     private void updateOrderTotals(BigDecimal pricePerKgInput, BigDecimal orderQuantity, PurchaseType purchaseType) {
         if (purchaseType.equals(PurchaseType.SELL)) {
-            updateOrderTotal(pricePerKgInput, orderQuantity, sellOrdersTotal);
+            updateOrderTotal(pricePerKgInput, orderQuantity, PurchaseType.SELL, sellOrdersTotal, sellSummary, sellTopOfBook, sellTotalGrams, sellLevelsRemoved);
         } else {
-            updateOrderTotal(pricePerKgInput, orderQuantity, buyOrdersTotal);
+            updateOrderTotal(pricePerKgInput, orderQuantity, PurchaseType.BUY, buyOrdersTotal, buySummary, buyTopOfBook, buyTotalGrams, buyLevelsRemoved);
         }
     }
 
+    private void netDelta(BigDecimal pricePerKg, BigDecimal orderQuantity, PurchaseType purchaseType,
+                          Map<BigDecimal, BigDecimal> buyDeltas, Map<BigDecimal, BigDecimal> sellDeltas) {
+        (PurchaseType.SELL.equals(purchaseType) ? sellDeltas : buyDeltas).merge(pricePerKg, orderQuantity, BigDecimal::add);
+    }
+
+    private void applyDeltas(Map<BigDecimal, BigDecimal> buyDeltas, Map<BigDecimal, BigDecimal> sellDeltas) {
+        // one update per distinct price rather than one per order
+        buyDeltas.forEach((pricePerKg, orderQuantity) -> updateOrderTotal(pricePerKg, orderQuantity, PurchaseType.BUY, buyOrdersTotal, buySummary, buyTopOfBook, buyTotalGrams, buyLevelsRemoved));
+        sellDeltas.forEach((pricePerKg, orderQuantity) -> updateOrderTotal(pricePerKg, orderQuantity, PurchaseType.SELL, sellOrdersTotal, sellSummary, sellTopOfBook, sellTotalGrams, sellLevelsRemoved));
+    }
+
     private void updateOrderTotals(OrderRequest orderRequest) {
         updateOrderTotals(orderRequest.getPricePerKg(), orderRequest.getOrderQuantity(), orderRequest.getPurchaseType());
     }
 
-    private void updateOrderTotal(BigDecimal pricePerKgInput, BigDecimal orderQuantity, Map<BigDecimal, BigDecimal> sellOrdersTotal) {
-        sellOrdersTotal.putIfAbsent(pricePerKgInput, BigDecimal.ZERO);
-        sellOrdersTotal.computeIfPresent(pricePerKgInput, (pricePerKg, currentTotalInKg) -> currentTotalInKg.add(orderQuantity));
+    private void updateOrderTotal(BigDecimal pricePerKgInput, BigDecimal orderQuantity, PurchaseType purchaseType, Map<BigDecimal, BigDecimal> ordersTotal, VersionedSummaryCache summary, TopOfBookCache topOfBook, LongAdder totalGrams, LongAdder levelsRemoved) {
+        if (orderQuantity.signum() == 0) {
+            // would only ever create an empty level
+            return;
+        }
+        if (!priceLevelPublisher.hasListeners()) {
+            // the stripe only orders what listeners are told, with nobody listening the merge alone is enough
+            applyToLevel(pricePerKgInput, orderQuantity, ordersTotal, summary, topOfBook, totalGrams, levelsRemoved);
+            return;
+        }
+        // a listener that subscribes while a change is between the check and its merge may not be told of that one
+        synchronized (levelLocks[levelStripe(pricePerKgInput)]) {
+            BigDecimal newTotalInKg = applyToLevel(pricePerKgInput, orderQuantity, ordersTotal, summary, topOfBook, totalGrams, levelsRemoved);
+            priceLevelPublisher.publish(purchaseType, pricePerKgInput, newTotalInKg == null ? BigDecimal.ZERO : newTotalInKg);
+        }
+    }
+
+    /**
+     * @return the level's new total, or null if it emptied
+     */
+    private static BigDecimal applyToLevel(BigDecimal pricePerKgInput, BigDecimal orderQuantity, Map<BigDecimal, BigDecimal> ordersTotal, VersionedSummaryCache summary, TopOfBookCache topOfBook, LongAdder totalGrams, LongAdder levelsRemoved) {
+        // one atomic merge both applies the change and removes the level when it empties, so a concurrent add
+        // either lands before the removal (and the total is not zero) or after it and starts the level again
+        BigDecimal newTotalInKg = ordersTotal.merge(pricePerKgInput, orderQuantity, (currentTotalInKg, change) -> {
+            BigDecimal totalInKg = currentTotalInKg.add(change);
+            return totalInKg.signum() == 0 ? null : totalInKg;
+        });
+        if (newTotalInKg == null) {
+            levelsRemoved.increment();
+        }
+        // moved by the change in the level's rounded total rather than the change rounded on its own, so orders
+        // finer than a gram netted in a batch and cancelled one by one still leave the side's total where it was
+        BigDecimal levelTotalInKg = newTotalInKg == null ? BigDecimal.ZERO : newTotalInKg;
+        totalGrams.add(FixedPoint.toGrams(levelTotalInKg, RoundingMode.HALF_UP)
+                - FixedPoint.toGrams(levelTotalInKg.subtract(orderQuantity), RoundingMode.HALF_UP));
+        summary.changed();
+        topOfBook.changed(pricePerKgInput);
+        return newTotalInKg;
+    }
+
+    private static Object[] newLevelLocks() {
+        Object[] locks = new Object[LEVEL_LOCK_STRIPES];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        return locks;
+    }
+
+    /**
+     * Prices equal by compareTo but not by scale, 306 and 306.00, are the same level so must share a stripe
+     */
+    private static int levelStripe(BigDecimal pricePerKg) {
+        int hash = Double.hashCode(pricePerKg.doubleValue());
+        return (hash ^ (hash >>> 16)) & (LEVEL_LOCK_STRIPES - 1);
     }
 
 }
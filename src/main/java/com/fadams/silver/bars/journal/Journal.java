@@ -0,0 +1,218 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.model.OrderRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append only, memory mapped log of order events.
+ * The file is a header followed by records of [length][event][crc32 of event]. The length is written last, so a
+ * record is either complete or reads as the end of the log, and the checksum catches a record torn by the
+ * operating system writing its pages out of order. Appends land in the page cache; {@link #sync()} forces them to
+ * disk, which the journal does itself every so many events and/or milliseconds.
+ */
+public class Journal implements Closeable {
+    private static final int MAGIC = 0x53424A31;
+    private static final int HEADER_LENGTH = 8;
+    private static final int LENGTH_PREFIX = 4;
+    private static final int CHECKSUM_LENGTH = 4;
+    private static final int MAX_EVENT_LENGTH = 64 * 1024;
+    // one mapped buffer is indexed by int
+    static final int MAX_CAPACITY_BYTES = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final ByteBuffer event = ByteBuffer.allocate(MAX_EVENT_LENGTH);
+    private final CRC32 checksum = new CRC32();
+    private final int syncEveryEvents;
+    private final long maxCapacityBytes;
+    private final ScheduledExecutorService syncScheduler;
+    private volatile MappedByteBuffer mapped;
+    private int writePosition;
+    private int unsyncedEvents;
+    private volatile boolean dirty;
+
+    private Journal(FileChannel channel, MappedByteBuffer mapped, int syncEveryEvents, long syncEveryMillis, long maxCapacityBytes) {
+        this.channel = channel;
+        this.mapped = mapped;
+        this.syncEveryEvents = syncEveryEvents;
+        this.maxCapacityBytes = maxCapacityBytes;
+        if (syncEveryMillis > 0) {
+            this.syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.syncScheduler.scheduleWithFixedDelay(this::syncIfDirty, syncEveryMillis, syncEveryMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.syncScheduler = null;
+        }
+    }
+
+    /**
+     * Opens (or creates) a journal, positioned after the last complete record
+     *
+     * @param file journal file
+     * @param initialCapacityBytes how much of the file to map up front, the mapping doubles whenever it fills, up to
+     *                             {@link #MAX_CAPACITY_BYTES}
+     * @param syncEveryEvents force to disk after this many appends, zero or less to not sync by count
+     * @param syncEveryMillis force to disk this often if anything was appended, zero or less to not sync by time
+     */
+    public static Journal open(Path file, int initialCapacityBytes, int syncEveryEvents, long syncEveryMillis) throws IOException {
+        return open(file, initialCapacityBytes, syncEveryEvents, syncEveryMillis, MAX_CAPACITY_BYTES);
+    }
+
+    /**
+     * @param maxCapacityBytes largest the mapping may grow to, appends that would need more throw
+     *                         {@link BufferOverflowException} without writing anything
+     */
+    static Journal open(Path file, int initialCapacityBytes, int syncEveryEvents, long syncEveryMillis, long maxCapacityBytes) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            long capacity = Math.max(channel.size(), Math.max(initialCapacityBytes, HEADER_LENGTH));
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            if (created) {
+                mapped.putInt(0, MAGIC);
+            } else if (mapped.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a journal");
+            }
+            Journal journal = new Journal(channel, mapped, syncEveryEvents, syncEveryMillis, maxCapacityBytes);
+            journal.writePosition = journal.endOfValidRecords();
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Replays every complete record, in the order they were appended
+     */
+    public synchronized void replay(OrderEventHandler handler) {
+        ByteBuffer records = mapped.duplicate();
+        int position = HEADER_LENGTH;
+        while (position < writePosition) {
+            int length = records.getInt(position);
+            records.limit(position + LENGTH_PREFIX + length).position(position + LENGTH_PREFIX);
+            OrderEventCodec.decode(records.slice(), handler);
+            records.limit(records.capacity());
+            position += LENGTH_PREFIX + length + CHECKSUM_LENGTH;
+        }
+    }
+
+    public synchronized void appendRegister(long orderId, OrderRequest orderRequest) {
+        event.clear();
+        OrderEventCodec.encodeRegister(event, orderId, orderRequest);
+        append();
+    }
+
+    public synchronized void appendCancel(long orderId) {
+        event.clear();
+        OrderEventCodec.encodeCancel(event, orderId);
+        append();
+    }
+
+    /**
+     * Forces everything appended so far to disk
+     */
+    public void sync() {
+        dirty = false;
+        mapped.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        synchronized (this) {
+            sync();
+            channel.close();
+        }
+    }
+
+    private void append() {
+        event.flip();
+        int length = event.remaining();
+        checksum.reset();
+        checksum.update(event.array(), 0, length);
+        int recordLength = LENGTH_PREFIX + length + CHECKSUM_LENGTH;
+        ensureCapacity(recordLength);
+        MappedByteBuffer records = mapped;
+        records.position(writePosition + LENGTH_PREFIX);
+        records.put(event);
+        records.putInt((int) checksum.getValue());
+        // the length goes in last, it is what makes the record visible to a replay
+        records.putInt(writePosition, length);
+        writePosition += recordLength;
+        dirty = true;
+        if (syncEveryEvents > 0 && ++unsyncedEvents >= syncEveryEvents) {
+            unsyncedEvents = 0;
+            sync();
+        }
+    }
+
+    private void ensureCapacity(int recordLength) {
+        // one spare int so that the record after this one always reads as a zero length end of log
+        long required = (long) writePosition + recordLength + LENGTH_PREFIX;
+        if (required <= mapped.capacity()) {
+            return;
+        }
+        if (required > maxCapacityBytes) {
+            throw new BufferOverflowException();
+        }
+        long capacity = mapped.capacity();
+        while (capacity < required) {
+            capacity *= 2;
+        }
+        capacity = Math.min(capacity, maxCapacityBytes);
+        try {
+            mapped.force();
+            mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int endOfValidRecords() {
+        MappedByteBuffer records = mapped;
+        int position = HEADER_LENGTH;
+        while (position + LENGTH_PREFIX <= records.capacity()) {
+            int length = records.getInt(position);
+            if (length <= 0 || (long) position + LENGTH_PREFIX + length + CHECKSUM_LENGTH > records.capacity()) {
+                break;
+            }
+            ByteBuffer recordEvent = records.duplicate();
+            recordEvent.limit(position + LENGTH_PREFIX + length).position(position + LENGTH_PREFIX);
+            checksum.reset();
+            checksum.update(recordEvent);
+            if ((int) checksum.getValue() != records.getInt(position + LENGTH_PREFIX + length)) {
+                break;
+            }
+            position += LENGTH_PREFIX + length + CHECKSUM_LENGTH;
+        }
+        if (position + LENGTH_PREFIX <= records.capacity()) {
+            // whatever follows was torn or never written, clear the length so new records are not confused by it
+            records.putInt(position, 0);
+        }
+        return position;
+    }
+
+    private void syncIfDirty() {
+        if (dirty) {
+            sync();
+        }
+    }
+}
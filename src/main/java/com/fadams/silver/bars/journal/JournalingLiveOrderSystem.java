@@ -0,0 +1,68 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes every successful register and cancel to a {@link Journal} in the same step as the decorated system applies
+ * it, see {@link RecordingLiveOrderSystem}, so anything a caller has been told about survives a restart.
+ * {@link #snapshot()} bounds how much has to be replayed on the next start to the orders live at the time.
+ */
+public class JournalingLiveOrderSystem extends RecordingLiveOrderSystem implements Closeable {
+    private final RestorableLiveOrderSystem restorable;
+    private final SegmentedJournal journal;
+
+    private JournalingLiveOrderSystem(RestorableLiveOrderSystem delegate, SegmentedJournal journal) {
+        super(delegate, new OrderEventHandler() {
+            @Override
+            public void onRegister(long orderId, OrderRequest orderRequest) {
+                journal.appendRegister(orderId, orderRequest);
+            }
+
+            @Override
+            public void onCancel(long orderId) {
+                journal.appendCancel(orderId);
+            }
+        });
+        this.restorable = delegate;
+        this.journal = journal;
+    }
+
+    /**
+     * Replays the latest snapshot and journal into the (empty) delegate, then journals everything done through the
+     * returned system
+     *
+     * @param delegate system to rebuild and then decorate
+     * @param journal journal to replay and append to, closed with the returned system
+     */
+    public static JournalingLiveOrderSystem open(RestorableLiveOrderSystem delegate, SegmentedJournal journal) throws IOException {
+        journal.replay(new OrderEventHandler() {
+            @Override
+            public void onRegister(long orderId, OrderRequest orderRequest) {
+                delegate.restoreOrder(orderId, orderRequest);
+            }
+
+            @Override
+            public void onCancel(long orderId) {
+                // a cancel is only ever journaled after its register, so this is only empty if the journal was edited
+                delegate.tryCancel(orderId);
+            }
+        });
+        return new JournalingLiveOrderSystem(delegate, journal);
+    }
+
+    /**
+     * Snapshots the live orders and drops the journal history they replace, without stopping writers
+     */
+    public void snapshot() throws IOException {
+        journal.snapshot(restorable);
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+}
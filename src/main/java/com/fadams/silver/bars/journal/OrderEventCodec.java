@@ -0,0 +1,85 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of register and cancel events.
+ * A register is [type][order id][purchase type][quantity][price][user id] and a cancel is [type][order id].
+ * Decimals are written exactly, as [scale][length][unscaled two's complement bytes], so a replayed order is equal
+ * to the original rather than just numerically the same.
+ */
+public final class OrderEventCodec {
+    static final byte REGISTER = 1;
+    static final byte CANCEL = 2;
+
+    private static final PurchaseType[] PURCHASE_TYPES = PurchaseType.values();
+
+    private OrderEventCodec() {
+    }
+
+    public static void encodeRegister(ByteBuffer buffer, long orderId, OrderRequest orderRequest) {
+        buffer.put(REGISTER);
+        buffer.putLong(orderId);
+        buffer.put((byte) orderRequest.getPurchaseType().ordinal());
+        putDecimal(buffer, orderRequest.getOrderQuantity());
+        putDecimal(buffer, orderRequest.getPricePerKg());
+        byte[] userId = orderRequest.getUserId().getBytes(StandardCharsets.UTF_8);
+        if (userId.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("userId is too long to journal");
+        }
+        buffer.putShort((short) userId.length);
+        buffer.put(userId);
+    }
+
+    public static void encodeCancel(ByteBuffer buffer, long orderId) {
+        buffer.put(CANCEL);
+        buffer.putLong(orderId);
+    }
+
+    /**
+     * Reads exactly one event from the buffer's position
+     */
+    public static void decode(ByteBuffer buffer, OrderEventHandler handler) {
+        byte type = buffer.get();
+        long orderId = buffer.getLong();
+        switch (type) {
+            case REGISTER:
+                PurchaseType purchaseType = PURCHASE_TYPES[buffer.get()];
+                BigDecimal orderQuantity = getDecimal(buffer);
+                BigDecimal pricePerKg = getDecimal(buffer);
+                byte[] userId = new byte[buffer.getShort()];
+                buffer.get(userId);
+                handler.onRegister(orderId, new OrderRequest(new String(userId, StandardCharsets.UTF_8),
+                        orderQuantity, pricePerKg, purchaseType));
+                break;
+            case CANCEL:
+                handler.onCancel(orderId);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown order event type " + type);
+        }
+    }
+
+    private static void putDecimal(ByteBuffer buffer, BigDecimal value) {
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        if (unscaled.length > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException(value + " is too large to journal");
+        }
+        buffer.putInt(value.scale());
+        buffer.put((byte) unscaled.length);
+        buffer.put(unscaled);
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        int scale = buffer.getInt();
+        byte[] unscaled = new byte[buffer.get()];
+        buffer.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
@@ -0,0 +1,13 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.model.OrderRequest;
+
+/**
+ * Receives order events as they are decoded, see {@link OrderEventCodec}
+ */
+public interface OrderEventHandler {
+
+    void onRegister(long orderId, OrderRequest orderRequest);
+
+    void onCancel(long orderId);
+}
@@ -0,0 +1,185 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.ForwardingLiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Base for decorators that pass every successful register and cancel on as an order event, applying it to the
+ * decorated system and recording it as one step. Registers share a lock and cancels take it exclusively, so a
+ * cancel cannot see an order until its register has been recorded and the events always replay to the same board.
+ * Registers run side by side, while cancels run one at a time and wait for registers in flight.
+ * <p>
+ * If recording fails, whatever was applied but not recorded is undone before the failure is rethrown, so the board
+ * never holds anything the recorder missed. A batch that fails part way is left with the part already recorded.
+ */
+public abstract class RecordingLiveOrderSystem extends ForwardingLiveOrderSystem {
+    private final RestorableLiveOrderSystem restorable;
+    private final OrderEventHandler recorder;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock registerLock = lock.readLock();
+    private final Lock cancelLock = lock.writeLock();
+
+    protected RecordingLiveOrderSystem(RestorableLiveOrderSystem delegate, OrderEventHandler recorder) {
+        super(delegate);
+        this.restorable = delegate;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public String registerOrder(OrderRequest orderRequest) {
+        return OrderIds.format(registerOrderId(orderRequest));
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        registerLock.lock();
+        try {
+            long orderId = delegate.registerOrderId(orderRequest);
+            recordRegister(orderId, orderRequest);
+            return orderId;
+        } finally {
+            registerLock.unlock();
+        }
+    }
+
+    @Override
+    public OrderDetails cancelOrder(String orderId) throws OrderNotFoundException {
+        long parsedOrderId = OrderIds.parse(orderId);
+        if (parsedOrderId == OrderIds.NOT_AN_ORDER_ID) {
+            throw new OrderNotFoundException(orderId + " not found");
+        }
+        return cancelOrder(parsedOrderId);
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        cancelLock.lock();
+        try {
+            OrderDetails cancelled = delegate.cancelOrder(orderId);
+            recordCancel(cancelled);
+            return cancelled;
+        } finally {
+            cancelLock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(String orderId) {
+        long parsedOrderId = OrderIds.parse(orderId);
+        return parsedOrderId == OrderIds.NOT_AN_ORDER_ID ? Optional.empty() : tryCancel(parsedOrderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        cancelLock.lock();
+        try {
+            Optional<OrderDetails> cancelled = delegate.tryCancel(orderId);
+            if (cancelled.isPresent()) {
+                recordCancel(cancelled.get());
+            }
+            return cancelled;
+        } finally {
+            cancelLock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        registerLock.lock();
+        try {
+            List<String> orderIds = delegate.registerOrders(orderRequests);
+            for (int i = 0; i < orderIds.size(); i++) {
+                try {
+                    recorder.onRegister(OrderIds.parse(orderIds.get(i)), orderRequests.get(i));
+                } catch (RuntimeException | Error e) {
+                    for (int unrecorded = i; unrecorded < orderIds.size(); unrecorded++) {
+                        delegate.tryCancel(orderIds.get(unrecorded));
+                    }
+                    throw e;
+                }
+            }
+            return orderIds;
+        } finally {
+            registerLock.unlock();
+        }
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        cancelLock.lock();
+        try {
+            List<CancelResult> results = delegate.cancelOrders(orderIds);
+            for (int i = 0; i < results.size(); i++) {
+                Optional<OrderDetails> cancelled = results.get(i).getCancelledOrder();
+                if (cancelled.isPresent()) {
+                    try {
+                        recorder.onCancel(cancelled.get().getOrderNumber());
+                    } catch (RuntimeException | Error e) {
+                        for (int unrecorded = i; unrecorded < results.size(); unrecorded++) {
+                            results.get(unrecorded).getCancelledOrder().ifPresent(this::restore);
+                        }
+                        throw e;
+                    }
+                }
+            }
+            return results;
+        } finally {
+            cancelLock.unlock();
+        }
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        cancelLock.lock();
+        try {
+            List<OrderDetails> cancelled = delegate.cancelAllForUser(userId);
+            for (int i = 0; i < cancelled.size(); i++) {
+                try {
+                    recorder.onCancel(cancelled.get(i).getOrderNumber());
+                } catch (RuntimeException | Error e) {
+                    for (int unrecorded = i; unrecorded < cancelled.size(); unrecorded++) {
+                        restore(cancelled.get(unrecorded));
+                    }
+                    throw e;
+                }
+            }
+            return cancelled;
+        } finally {
+            cancelLock.unlock();
+        }
+    }
+
+    private void recordRegister(long orderId, OrderRequest orderRequest) {
+        try {
+            recorder.onRegister(orderId, orderRequest);
+        } catch (RuntimeException | Error e) {
+            delegate.tryCancel(orderId);
+            throw e;
+        }
+    }
+
+    private void recordCancel(OrderDetails cancelled) {
+        try {
+            recorder.onCancel(cancelled.getOrderNumber());
+        } catch (RuntimeException | Error e) {
+            restore(cancelled);
+            throw e;
+        }
+    }
+
+    private void restore(OrderDetails cancelled) {
+        restorable.restoreOrder(cancelled.getOrderNumber(), new OrderRequest(cancelled.getUserId(),
+                cancelled.getOrderQuantity(), cancelled.getPricePerKg(), cancelled.getPurchaseType()));
+    }
+}
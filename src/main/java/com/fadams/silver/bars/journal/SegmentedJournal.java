@@ -0,0 +1,222 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A directory of numbered journal segments and snapshots. Taking a snapshot first rolls appends over to a new
+ * segment, which is the cut: the snapshot of generation n plus segments n onwards hold everything. Live orders are
+ * then written out while writers carry on into the new segment, and once the snapshot is safely on disk every older
+ * segment and snapshot is deleted. An order that changes while the snapshot is being written is also in segment n,
+ * and replaying it over the snapshot is harmless as restores are idempotent and cancels of missing orders ignored.
+ * A segment that fills up also rolls appends over to the next one, so a journal that is rarely snapshotted keeps
+ * growing in segments rather than failing once one mapping is as large as it can be.
+ */
+public class SegmentedJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SUFFIX = ".log";
+    private static final String IN_PROGRESS_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final int segmentCapacityBytes;
+    private final int syncEveryEvents;
+    private final long syncEveryMillis;
+    private final long maxSegmentBytes;
+    private final Object snapshotLock = new Object();
+    private Journal segment;
+    private long generation;
+
+    private SegmentedJournal(Path directory, int segmentCapacityBytes, int syncEveryEvents, long syncEveryMillis, long maxSegmentBytes) {
+        this.directory = directory;
+        this.segmentCapacityBytes = segmentCapacityBytes;
+        this.syncEveryEvents = syncEveryEvents;
+        this.syncEveryMillis = syncEveryMillis;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /**
+     * Opens (or creates) the journal in a directory, appending to its latest segment
+     *
+     * @param directory where segments and snapshots live, created if missing
+     * @param segmentCapacityBytes initial mapping of each segment and snapshot, see {@link Journal#open}
+     * @param syncEveryEvents see {@link Journal#open}
+     * @param syncEveryMillis see {@link Journal#open}
+     */
+    public static SegmentedJournal open(Path directory, int segmentCapacityBytes, int syncEveryEvents, long syncEveryMillis) throws IOException {
+        return open(directory, segmentCapacityBytes, syncEveryEvents, syncEveryMillis, Journal.MAX_CAPACITY_BYTES);
+    }
+
+    /**
+     * @param maxSegmentBytes largest a segment may grow to before appends roll over to the next one
+     */
+    static SegmentedJournal open(Path directory, int segmentCapacityBytes, int syncEveryEvents, long syncEveryMillis, long maxSegmentBytes) throws IOException {
+        Files.createDirectories(directory);
+        SegmentedJournal journal = new SegmentedJournal(directory, segmentCapacityBytes, syncEveryEvents, syncEveryMillis, maxSegmentBytes);
+        // a snapshot that never got renamed into place is incomplete, the segments it would have replaced are all still here
+        for (Path inProgress : journal.files(SNAPSHOT_PREFIX, SUFFIX + IN_PROGRESS_SUFFIX)) {
+            Files.delete(inProgress);
+        }
+        journal.generation = Math.max(1, Math.max(journal.latestGeneration(SEGMENT_PREFIX), journal.latestGeneration(SNAPSHOT_PREFIX)));
+        journal.segment = journal.openSegment(journal.generation);
+        return journal;
+    }
+
+    /**
+     * Replays the latest snapshot, as register events, followed by every segment written since, oldest first
+     */
+    public synchronized void replay(OrderEventHandler handler) throws IOException {
+        long snapshotGeneration = latestGeneration(SNAPSHOT_PREFIX);
+        if (snapshotGeneration > 0) {
+            replayFile(path(SNAPSHOT_PREFIX, snapshotGeneration), handler);
+        }
+        for (Path file : files(SEGMENT_PREFIX, SUFFIX)) {
+            long segmentGeneration = generationOf(file, SEGMENT_PREFIX);
+            if (segmentGeneration == generation) {
+                segment.replay(handler);
+            } else if (segmentGeneration >= snapshotGeneration) {
+                replayFile(file, handler);
+            }
+        }
+    }
+
+    public synchronized void appendRegister(long orderId, OrderRequest orderRequest) {
+        try {
+            segment.appendRegister(orderId, orderRequest);
+        } catch (BufferOverflowException full) {
+            rollWhenFull();
+            segment.appendRegister(orderId, orderRequest);
+        }
+    }
+
+    public synchronized void appendCancel(long orderId) {
+        try {
+            segment.appendCancel(orderId);
+        } catch (BufferOverflowException full) {
+            rollWhenFull();
+            segment.appendCancel(orderId);
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk
+     */
+    public synchronized void sync() {
+        segment.sync();
+    }
+
+    /**
+     * Writes the live orders of a system this journal records out as a snapshot and deletes the history it replaces.
+     * Writers are only held up for as long as it takes to open the next segment.
+     */
+    public void snapshot(RestorableLiveOrderSystem liveOrderSystem) throws IOException {
+        synchronized (snapshotLock) {
+            long snapshotGeneration = roll();
+            Path inProgress = directory.resolve(SNAPSHOT_PREFIX + snapshotGeneration + SUFFIX + IN_PROGRESS_SUFFIX);
+            try (Journal snapshot = Journal.open(inProgress, segmentCapacityBytes, 0, 0)) {
+                liveOrderSystem.forEachOrder(order -> snapshot.appendRegister(order.getOrderNumber(), toOrderRequest(order)));
+            }
+            Files.move(inProgress, path(SNAPSHOT_PREFIX, snapshotGeneration), StandardCopyOption.ATOMIC_MOVE);
+            deleteOlderThan(SNAPSHOT_PREFIX, snapshotGeneration);
+            deleteOlderThan(SEGMENT_PREFIX, snapshotGeneration);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        segment.close();
+    }
+
+    /**
+     * A full segment writes nothing, so the append is retried on a fresh one, failing only if that cannot be opened
+     */
+    private void rollWhenFull() {
+        try {
+            roll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long roll() throws IOException {
+        Journal previous;
+        long nextGeneration;
+        synchronized (this) {
+            nextGeneration = generation + 1;
+            previous = segment;
+            segment = openSegment(nextGeneration);
+            generation = nextGeneration;
+        }
+        // syncing the old segment does not need to hold up appends to the new one
+        previous.close();
+        return nextGeneration;
+    }
+
+    private Journal openSegment(long segmentGeneration) throws IOException {
+        return Journal.open(path(SEGMENT_PREFIX, segmentGeneration), segmentCapacityBytes, syncEveryEvents, syncEveryMillis, maxSegmentBytes);
+    }
+
+    private void replayFile(Path file, OrderEventHandler handler) throws IOException {
+        try (Journal journal = Journal.open(file, 0, 0, 0)) {
+            journal.replay(handler);
+        }
+    }
+
+    private void deleteOlderThan(String prefix, long oldestKept) throws IOException {
+        for (Path file : files(prefix, SUFFIX)) {
+            if (generationOf(file, prefix) < oldestKept) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private long latestGeneration(String prefix) throws IOException {
+        List<Path> files = files(prefix, SUFFIX);
+        return files.isEmpty() ? 0 : generationOf(files.get(files.size() - 1), prefix);
+    }
+
+    /**
+     * Files with a generation number between the prefix and suffix, oldest first
+     */
+    private List<Path> files(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> isGenerationFile(file.getFileName().toString(), prefix, suffix))
+                    .sorted((left, right) -> Long.compare(generationOf(left, prefix), generationOf(right, prefix)))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path path(String prefix, long fileGeneration) {
+        return directory.resolve(prefix + fileGeneration + SUFFIX);
+    }
+
+    private static boolean isGenerationFile(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return false;
+        }
+        String digits = name.substring(prefix.length(), name.length() - suffix.length());
+        return !digits.isEmpty() && digits.length() < 19 && digits.chars().allMatch(c -> c >= '0' && c <= '9');
+    }
+
+    private static long generationOf(Path file, String prefix) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(prefix.length(), name.indexOf('.')));
+    }
+
+    private static OrderRequest toOrderRequest(OrderDetails order) {
+        return new OrderRequest(order.getUserId(), order.getOrderQuantity(), order.getPricePerKg(), order.getPurchaseType());
+    }
+}
@@ -0,0 +1,96 @@
+package com.fadams.silver.bars.ladder;
+
+import com.fadams.silver.bars.model.ForwardingLiveOrderSystem;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.Subscription;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps price ladders at a fixed set of tick sizes up to date as orders are registered and cancelled, so
+ * {@link #orderSummary(PurchaseType, BigDecimal)} at one of those tick sizes walks its bands rather than every
+ * price level. Any other tick size is bucketed from the full side as usual. The ladders follow the price levels the
+ * wrapped board publishes, so they see every write however it reaches the board, not only those made through
+ * this wrapper, and may be slightly behind writes in flight.
+ */
+public class LadderedLiveOrderSystem extends ForwardingLiveOrderSystem implements AutoCloseable {
+    // keyed by compareTo, so a tick size asked for as 5.00 finds the ladder registered as 5
+    private final TreeMap<BigDecimal, PriceLadder> ladders = new TreeMap<>();
+    private final PriceLadder[] allLadders;
+    // last total heard for each level, to turn the totals the board publishes into deltas
+    private final Map<BigDecimal, BigDecimal> buyLevels = new ConcurrentHashMap<>();
+    private final Map<BigDecimal, BigDecimal> sellLevels = new ConcurrentHashMap<>();
+    private final Subscription subscription;
+    private volatile boolean seeded;
+
+    /**
+     * @param tickSizes widths of the bands to keep, each positive
+     */
+    public LadderedLiveOrderSystem(LiveOrderSystem delegate, Collection<BigDecimal> tickSizes) {
+        super(delegate);
+        for (BigDecimal tickSize : tickSizes) {
+            OrdersSummary.checkTickSize(tickSize);
+            ladders.putIfAbsent(tickSize, new PriceLadder(tickSize));
+        }
+        this.allLadders = ladders.values().toArray(new PriceLadder[0]);
+        this.subscription = delegate.subscribe(this::onPriceLevelChanged);
+        // seeded after subscribing and only where no change has been heard yet, as a change is always newer
+        for (PurchaseType purchaseType : PurchaseType.values()) {
+            delegate.orderSummary(purchaseType).getAmountsInKgByPrice().forEach((pricePerKg, amountInKg) ->
+                    levels(purchaseType).computeIfAbsent(pricePerKg.stripTrailingZeros(), price -> {
+                        addToLadders(purchaseType, price, amountInKg);
+                        return amountInKg;
+                    }));
+        }
+        seeded = true;
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal tickSize) {
+        PriceLadder ladder = ladders.get(tickSize);
+        return ladder == null ? delegate.orderSummary(purchaseType, tickSize) : ladder.summary(purchaseType);
+    }
+
+    /**
+     * Stops following the board, the ladders are left as they were
+     */
+    @Override
+    public void close() {
+        subscription.cancel();
+    }
+
+    /**
+     * Turns the new total of a level into a delta for every ladder. Changes to one level are delivered in order, and
+     * the level is held while its delta is applied, so the ladders end up where the board is whatever thread wrote.
+     */
+    private void onPriceLevelChanged(PriceLevel priceLevel) {
+        PurchaseType purchaseType = priceLevel.getPurchaseType();
+        // prices with different scales are the same level, so the key is normalised
+        levels(purchaseType).compute(priceLevel.getPricePerKg().stripTrailingZeros(), (price, previousTotalInKg) -> {
+            BigDecimal totalInKg = priceLevel.getTotalInKg();
+            addToLadders(purchaseType, price, previousTotalInKg == null ? totalInKg : totalInKg.subtract(previousTotalInKg));
+            // an emptied level is remembered until seeding is done, so a stale summary cannot bring it back
+            return totalInKg.signum() == 0 && seeded ? null : totalInKg;
+        });
+    }
+
+    private void addToLadders(PurchaseType purchaseType, BigDecimal pricePerKg, BigDecimal deltaInKg) {
+        if (deltaInKg.signum() == 0) {
+            return;
+        }
+        for (PriceLadder ladder : allLadders) {
+            ladder.add(purchaseType, pricePerKg, deltaInKg);
+        }
+    }
+
+    private Map<BigDecimal, BigDecimal> levels(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellLevels : buyLevels;
+    }
+}
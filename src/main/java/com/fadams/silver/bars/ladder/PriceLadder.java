@@ -0,0 +1,51 @@
+package com.fadams.silver.bars.ladder;
+
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Band totals of both sides at one tick size. Changes are merged into the band as deltas, which add up the same
+ * whatever order racing threads apply them in, and a band is dropped as soon as its total comes back to zero.
+ */
+final class PriceLadder {
+    private final BigDecimal tickSize;
+    private final ConcurrentSkipListMap<BigDecimal, BigDecimal> buyBands = new ConcurrentSkipListMap<>(OrdersSummary.priceOrder(PurchaseType.BUY));
+    private final ConcurrentSkipListMap<BigDecimal, BigDecimal> sellBands = new ConcurrentSkipListMap<>(OrdersSummary.priceOrder(PurchaseType.SELL));
+    private final AtomicLong buyVersion = new AtomicLong();
+    private final AtomicLong sellVersion = new AtomicLong();
+
+    PriceLadder(BigDecimal tickSize) {
+        this.tickSize = tickSize;
+    }
+
+    void add(PurchaseType purchaseType, BigDecimal pricePerKg, BigDecimal quantityInKg) {
+        bands(purchaseType).merge(OrdersSummary.bandOf(pricePerKg, tickSize), quantityInKg, PriceLadder::addToBand);
+        version(purchaseType).incrementAndGet();
+    }
+
+    /**
+     * Walks the bands only, a band changing during the walk may or may not be seen with the change
+     */
+    OrdersSummary summary(PurchaseType purchaseType) {
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(version(purchaseType).get());
+        bands(purchaseType).forEach(summary::level);
+        return summary.build();
+    }
+
+    private ConcurrentSkipListMap<BigDecimal, BigDecimal> bands(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellBands : buyBands;
+    }
+
+    private AtomicLong version(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellVersion : buyVersion;
+    }
+
+    private static BigDecimal addToBand(BigDecimal total, BigDecimal delta) {
+        BigDecimal newTotal = total.add(delta);
+        return newTotal.signum() == 0 ? null : newTotal;
+    }
+}
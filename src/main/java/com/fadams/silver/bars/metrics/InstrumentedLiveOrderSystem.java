@@ -0,0 +1,326 @@
+package com.fadams.silver.bars.metrics;
+
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.ForwardingLiveOrderSystem;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Times every call into a per operation {@link LatencyHistogram} and counts registers, cancels and lookups of
+ * orders that were not found, all without allocating. Live orders, the number of price levels on each side and how
+ * many levels have been removed are read from the decorated system only when the sink asks for them.
+ */
+public class InstrumentedLiveOrderSystem extends ForwardingLiveOrderSystem implements AutoCloseable {
+    private final LatencyHistogram registerLatency = new LatencyHistogram();
+    private final LatencyHistogram orderDetailsLatency = new LatencyHistogram();
+    private final LatencyHistogram cancelLatency = new LatencyHistogram();
+    private final LatencyHistogram orderSummaryLatency = new LatencyHistogram();
+    private final LatencyHistogram topOfBookLatency = new LatencyHistogram();
+    private final LatencyHistogram registerBatchLatency = new LatencyHistogram();
+    private final LatencyHistogram cancelBatchLatency = new LatencyHistogram();
+    private final LatencyHistogram ordersForUserLatency = new LatencyHistogram();
+    private final LatencyHistogram cancelAllForUserLatency = new LatencyHistogram();
+    private final LongAdder registers = new LongAdder();
+    private final LongAdder cancels = new LongAdder();
+    private final LongAdder notFound = new LongAdder();
+    private final MetricsSink metricsSink;
+
+    public InstrumentedLiveOrderSystem(LiveOrderSystem delegate, MetricsSink metricsSink) {
+        super(delegate);
+        this.metricsSink = metricsSink;
+        metricsSink.histogram("registerOrder", registerLatency);
+        metricsSink.histogram("orderDetails", orderDetailsLatency);
+        metricsSink.histogram("cancelOrder", cancelLatency);
+        metricsSink.histogram("orderSummary", orderSummaryLatency);
+        metricsSink.histogram("topOfBook", topOfBookLatency);
+        metricsSink.histogram("registerOrders", registerBatchLatency);
+        metricsSink.histogram("cancelOrders", cancelBatchLatency);
+        metricsSink.histogram("ordersForUser", ordersForUserLatency);
+        metricsSink.histogram("cancelAllForUser", cancelAllForUserLatency);
+        metricsSink.counter("registers", registers::sum);
+        metricsSink.counter("cancels", cancels::sum);
+        metricsSink.counter("notFound", notFound::sum);
+        metricsSink.gauge("liveOrders", delegate::liveOrderCount);
+        metricsSink.gauge("buyPriceLevels", () -> delegate.compactionReport().getLiveLevels(PurchaseType.BUY));
+        metricsSink.gauge("sellPriceLevels", () -> delegate.compactionReport().getLiveLevels(PurchaseType.SELL));
+        metricsSink.counter("buyPriceLevelsRemoved", () -> delegate.compactionReport().getRemovedLevels(PurchaseType.BUY));
+        metricsSink.counter("sellPriceLevelsRemoved", () -> delegate.compactionReport().getRemovedLevels(PurchaseType.SELL));
+    }
+
+    @Override
+    public String registerOrder(OrderRequest orderRequest) {
+        long start = System.nanoTime();
+        try {
+            String orderId = delegate.registerOrder(orderRequest);
+            registers.increment();
+            return orderId;
+        } finally {
+            registerLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        long start = System.nanoTime();
+        try {
+            long orderId = delegate.registerOrderId(orderRequest);
+            registers.increment();
+            return orderId;
+        } finally {
+            registerLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrderDetails orderDetails(String orderId) throws OrderNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return delegate.orderDetails(orderId);
+        } catch (OrderNotFoundException e) {
+            notFound.increment();
+            throw e;
+        } finally {
+            orderDetailsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        long start = System.nanoTime();
+        try {
+            return delegate.orderDetails(orderId);
+        } catch (OrderNotFoundException e) {
+            notFound.increment();
+            throw e;
+        } finally {
+            orderDetailsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(String orderId) {
+        long start = System.nanoTime();
+        try {
+            return countNotFound(delegate.findOrder(orderId));
+        } finally {
+            orderDetailsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        long start = System.nanoTime();
+        try {
+            return countNotFound(delegate.findOrder(orderId));
+        } finally {
+            orderDetailsLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrderDetails cancelOrder(String orderId) throws OrderNotFoundException {
+        long start = System.nanoTime();
+        try {
+            OrderDetails cancelled = delegate.cancelOrder(orderId);
+            cancels.increment();
+            return cancelled;
+        } catch (OrderNotFoundException e) {
+            notFound.increment();
+            throw e;
+        } finally {
+            cancelLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        long start = System.nanoTime();
+        try {
+            OrderDetails cancelled = delegate.cancelOrder(orderId);
+            cancels.increment();
+            return cancelled;
+        } catch (OrderNotFoundException e) {
+            notFound.increment();
+            throw e;
+        } finally {
+            cancelLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(String orderId) {
+        long start = System.nanoTime();
+        try {
+            return countCancel(delegate.tryCancel(orderId));
+        } finally {
+            cancelLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        long start = System.nanoTime();
+        try {
+            return countCancel(delegate.tryCancel(orderId));
+        } finally {
+            cancelLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.orderSummary(purchaseType);
+        } finally {
+            orderSummaryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        long start = System.nanoTime();
+        try {
+            return delegate.orderSummary(purchaseType, depth);
+        } finally {
+            orderSummaryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        long start = System.nanoTime();
+        try {
+            return delegate.orderSummary(purchaseType, from, to);
+        } finally {
+            orderSummaryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal tickSize) {
+        long start = System.nanoTime();
+        try {
+            return delegate.orderSummary(purchaseType, tickSize);
+        } finally {
+            orderSummaryLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.bestLevel(purchaseType);
+        } finally {
+            topOfBookLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<BigDecimal> bestPrice(PurchaseType purchaseType) {
+        long start = System.nanoTime();
+        try {
+            return delegate.bestPrice(purchaseType);
+        } finally {
+            topOfBookLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public Optional<BigDecimal> spread() {
+        long start = System.nanoTime();
+        try {
+            return delegate.spread();
+        } finally {
+            topOfBookLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        long start = System.nanoTime();
+        try {
+            List<String> orderIds = delegate.registerOrders(orderRequests);
+            registers.add(orderIds.size());
+            return orderIds;
+        } finally {
+            registerBatchLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        long start = System.nanoTime();
+        try {
+            List<CancelResult> results = delegate.cancelOrders(orderIds);
+            for (CancelResult result : results) {
+                if (result.isCancelled()) {
+                    cancels.increment();
+                } else {
+                    notFound.increment();
+                }
+            }
+            return results;
+        } finally {
+            cancelBatchLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        long start = System.nanoTime();
+        try {
+            return delegate.ordersForUser(userId);
+        } finally {
+            ordersForUserLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        long start = System.nanoTime();
+        try {
+            List<OrderDetails> cancelled = delegate.cancelAllForUser(userId);
+            cancels.add(cancelled.size());
+            return cancelled;
+        } finally {
+            cancelAllForUserLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private Optional<OrderDetails> countNotFound(Optional<OrderDetails> order) {
+        if (!order.isPresent()) {
+            notFound.increment();
+        }
+        return order;
+    }
+
+    private Optional<OrderDetails> countCancel(Optional<OrderDetails> cancelled) {
+        if (cancelled.isPresent()) {
+            cancels.increment();
+        } else {
+            notFound.increment();
+        }
+        return cancelled;
+    }
+
+    /**
+     * Closes the sink, so the metrics stop being published, the decorated system is left open
+     */
+    @Override
+    public void close() {
+        metricsSink.close();
+    }
+}
@@ -0,0 +1,129 @@
+package com.fadams.silver.bars.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Publishes metrics as read only attributes of one MBean on the platform MBean server, under
+ * com.fadams.silver.bars:type=LiveOrderSystem,name=the given name. Each histogram becomes count, p50, p99,
+ * p999 and max attributes, the latencies in nanoseconds.
+ */
+public class JmxMetricsSink implements MetricsSink, DynamicMBean, Closeable {
+    private final Map<String, LongSupplier> attributes = new ConcurrentSkipListMap<>();
+    private final MBeanServer mBeanServer;
+    private final ObjectName objectName;
+
+    public JmxMetricsSink(String name) {
+        this(ManagementFactory.getPlatformMBeanServer(), name);
+    }
+
+    public JmxMetricsSink(MBeanServer mBeanServer, String name) {
+        this.mBeanServer = mBeanServer;
+        try {
+            this.objectName = new ObjectName("com.fadams.silver.bars:type=LiveOrderSystem,name=" + ObjectName.quote(name));
+            this.mBeanServer.registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register metrics for " + name, e);
+        }
+    }
+
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public void counter(String name, LongSupplier count) {
+        attributes.put(name, count);
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void histogram(String name, LatencyHistogram histogram) {
+        attributes.put(name + ".count", histogram::count);
+        attributes.put(name + ".p50", () -> histogram.valueAtPercentile(50));
+        attributes.put(name + ".p99", () -> histogram.valueAtPercentile(99));
+        attributes.put(name + ".p999", () -> histogram.valueAtPercentile(99.9));
+        attributes.put(name + ".max", histogram::max);
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        LongSupplier value = attributes.get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value.getAsLong();
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            LongSupplier value = attributes.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value.getAsLong()));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException(attribute.getName() + " is read only");
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        // there are no operations, so JMX clients get the exception the server uses for an unknown one
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * Built fresh on every call as metrics can be added after the MBean is registered
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributeInfos = new ArrayList<>(attributes.size());
+        for (String name : attributes.keySet()) {
+            attributeInfos.add(new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "live order system metrics",
+                attributeInfos.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+
+    /**
+     * Unregisters the MBean
+     */
+    @Override
+    public void close() {
+        try {
+            mBeanServer.unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("could not unregister " + objectName, e);
+        }
+    }
+}
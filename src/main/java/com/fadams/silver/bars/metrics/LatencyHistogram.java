@@ -0,0 +1,84 @@
+package com.fadams.silver.bars.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of nanosecond latencies in the style of HdrHistogram. Every power of two is split into 64
+ * linear buckets, so any recorded value is reported to within about 1.6%, from a nanosecond up to about 18 minutes
+ * (longer latencies count as the longest). Recording is one atomic increment into a fixed array and never allocates.
+ * Reading while recording gives a near enough, not an exact, picture.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int HALF_SUB_BUCKET_BITS = SUB_BUCKET_BITS - 1;
+    private static final long HIGHEST_TRACKABLE_NANOS = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(HIGHEST_TRACKABLE_NANOS) + 1);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(indexOf(Math.min(Math.max(nanos, 0), HIGHEST_TRACKABLE_NANOS)));
+    }
+
+    public long count() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest latency, in nanoseconds, that at least that percentage of recordings were at or below,
+     * 0 when nothing has been recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100, not " + percentile);
+        }
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long countAtPercentile = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= countAtPercentile) {
+                return highestValueIn(i);
+            }
+        }
+        return max();
+    }
+
+    /**
+     * @return the longest latency recorded, to within the histogram's precision
+     */
+    public long max() {
+        for (int i = counts.length() - 1; i >= 0; i--) {
+            if (counts.get(i) != 0) {
+                return highestValueIn(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Values below 128 get a bucket each. Above that the magnitude is how far the value has to be shifted right to
+     * leave its top 7 bits, which are always in [64, 128), so magnitude * 64 plus those bits numbers every bucket
+     * without gaps.
+     */
+    private static int indexOf(long nanos) {
+        int magnitude = Math.max(0, Long.SIZE - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS);
+        return (magnitude << HALF_SUB_BUCKET_BITS) + (int) (nanos >>> magnitude);
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < 1 << SUB_BUCKET_BITS) {
+            return index;
+        }
+        int magnitude = (index >>> HALF_SUB_BUCKET_BITS) - 1;
+        long lowestValue = (long) (index - (magnitude << HALF_SUB_BUCKET_BITS)) << magnitude;
+        return lowestValue + (1L << magnitude) - 1;
+    }
+}
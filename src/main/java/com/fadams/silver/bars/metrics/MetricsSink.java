@@ -0,0 +1,29 @@
+package com.fadams.silver.bars.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Somewhere to publish metrics to. Metrics are handed over once, when they are created, and read by the sink
+ * whenever it wants, so recording them never calls into the sink.
+ */
+public interface MetricsSink extends AutoCloseable {
+
+    /**
+     * @param count total that only ever goes up
+     */
+    void counter(String name, LongSupplier count);
+
+    /**
+     * @param value current value, which can go up or down
+     */
+    void gauge(String name, LongSupplier value);
+
+    void histogram(String name, LatencyHistogram histogram);
+
+    /**
+     * Stops publishing the metrics, by default there is nothing to release
+     */
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,55 @@
+package com.fadams.silver.bars.model;
+
+import java.util.Optional;
+
+/**
+ * Outcome of cancelling one order as part of a batch, a missing order does not fail the rest of the batch
+ */
+public class CancelResult {
+    public enum Status {
+        CANCELLED,
+        NOT_FOUND
+    }
+
+    private final String orderId;
+    private final Status status;
+    private final OrderDetails cancelledOrder;
+
+    private CancelResult(String orderId, Status status, OrderDetails cancelledOrder) {
+        this.orderId = orderId;
+        this.status = status;
+        this.cancelledOrder = cancelledOrder;
+    }
+
+    public static CancelResult cancelled(OrderDetails cancelledOrder) {
+        return new CancelResult(cancelledOrder.getOrderId(), Status.CANCELLED, cancelledOrder);
+    }
+
+    public static CancelResult notFound(String orderId) {
+        return new CancelResult(orderId, Status.NOT_FOUND, null);
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isCancelled() {
+        return status == Status.CANCELLED;
+    }
+
+    public Optional<OrderDetails> getCancelledOrder() {
+        return Optional.ofNullable(cancelledOrder);
+    }
+
+    @Override
+    public String toString() {
+        return "CancelResult{" +
+                "orderId='" + orderId + '\'' +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,37 @@
+package com.fadams.silver.bars.model;
+
+/**
+ * How many price levels each side holds now and how many have been removed since the board started. A level is
+ * removed as soon as its total reaches zero, so the live count is what a summary of the side would contain.
+ */
+public class CompactionReport {
+    private final long buyLiveLevels;
+    private final long buyRemovedLevels;
+    private final long sellLiveLevels;
+    private final long sellRemovedLevels;
+
+    public CompactionReport(long buyLiveLevels, long buyRemovedLevels, long sellLiveLevels, long sellRemovedLevels) {
+        this.buyLiveLevels = buyLiveLevels;
+        this.buyRemovedLevels = buyRemovedLevels;
+        this.sellLiveLevels = sellLiveLevels;
+        this.sellRemovedLevels = sellRemovedLevels;
+    }
+
+    public long getLiveLevels(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellLiveLevels : buyLiveLevels;
+    }
+
+    public long getRemovedLevels(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? sellRemovedLevels : buyRemovedLevels;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionReport{" +
+                "buyLiveLevels=" + buyLiveLevels +
+                ", buyRemovedLevels=" + buyRemovedLevels +
+                ", sellLiveLevels=" + sellLiveLevels +
+                ", sellRemovedLevels=" + sellRemovedLevels +
+                '}';
+    }
+}
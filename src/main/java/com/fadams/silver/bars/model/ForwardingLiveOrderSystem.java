@@ -0,0 +1,144 @@
+package com.fadams.silver.bars.model;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base for decorators, forwards every call (including the ones with default implementations) to the decorated
+ * system so a decorator only overrides what it adds to
+ */
+public abstract class ForwardingLiveOrderSystem implements LiveOrderSystem {
+    protected final LiveOrderSystem delegate;
+
+    protected ForwardingLiveOrderSystem(LiveOrderSystem delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String registerOrder(OrderRequest orderRequest) {
+        return delegate.registerOrder(orderRequest);
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        return delegate.registerOrderId(orderRequest);
+    }
+
+    @Override
+    public OrderDetails orderDetails(String orderId) throws OrderNotFoundException {
+        return delegate.orderDetails(orderId);
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        return delegate.orderDetails(orderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(String orderId) {
+        return delegate.findOrder(orderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        return delegate.findOrder(orderId);
+    }
+
+    @Override
+    public OrderDetails cancelOrder(String orderId) throws OrderNotFoundException {
+        return delegate.cancelOrder(orderId);
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        return delegate.cancelOrder(orderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(String orderId) {
+        return delegate.tryCancel(orderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        return delegate.tryCancel(orderId);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType) {
+        return delegate.orderSummary(purchaseType);
+    }
+
+    @Override
+    public long liveOrderCount() {
+        return delegate.liveOrderCount();
+    }
+
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        return delegate.bestLevel(purchaseType);
+    }
+
+    @Override
+    public Optional<BigDecimal> bestPrice(PurchaseType purchaseType) {
+        return delegate.bestPrice(purchaseType);
+    }
+
+    @Override
+    public Optional<BigDecimal> spread() {
+        return delegate.spread();
+    }
+
+    @Override
+    public CompactionReport compactionReport() {
+        return delegate.compactionReport();
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        return delegate.orderSummary(purchaseType, depth);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        return delegate.orderSummary(purchaseType, from, to);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal tickSize) {
+        return delegate.orderSummary(purchaseType, tickSize);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener) {
+        return delegate.subscribe(listener);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        return delegate.subscribe(listener, conflationInterval, unit);
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        return delegate.registerOrders(orderRequests);
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        return delegate.cancelOrders(orderIds);
+    }
+
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        return delegate.ordersForUser(userId);
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        return delegate.cancelAllForUser(userId);
+    }
+}
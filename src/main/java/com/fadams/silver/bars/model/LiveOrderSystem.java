@@ -1,5 +1,16 @@
 package com.fadams.silver.bars.model;
 
+import com.fadams.silver.bars.OrderRequestValidator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
 public interface LiveOrderSystem {
 
     /**
@@ -7,7 +18,30 @@ public interface LiveOrderSystem {
      * @param orderRequest incoming order
      * @return order id to be used for finding order information later and tracking
      */
-    String registerOrder(OrderRequest orderRequest);
+    default String registerOrder(OrderRequest orderRequest) {
+        return OrderIds.format(registerOrderId(orderRequest));
+    }
+
+    /**
+     *
+     * @param orderRequest incoming order
+     * @return numeric order id, the same id {@link #registerOrder(OrderRequest)} would have returned as a String
+     */
+    long registerOrderId(OrderRequest orderRequest);
+
+    /**
+     *
+     * @param orderId order to find
+     * @return found order details
+     * @throws OrderNotFoundException when order not found
+     */
+    default OrderDetails orderDetails(String orderId) throws OrderNotFoundException {
+        long parsedOrderId = OrderIds.parse(orderId);
+        if (parsedOrderId == OrderIds.NOT_AN_ORDER_ID) {
+            throw new OrderNotFoundException(orderId + " not found");
+        }
+        return orderDetails(parsedOrderId);
+    }
 
     /**
      *
@@ -15,7 +49,40 @@ public interface LiveOrderSystem {
      * @return found order details
      * @throws OrderNotFoundException when order not found
      */
-    OrderDetails orderDetails(String orderId) throws OrderNotFoundException;
+    OrderDetails orderDetails(long orderId) throws OrderNotFoundException;
+
+    /**
+     * Like {@link #orderDetails(String)} but for callers that expect to miss, a miss costs no exception
+     *
+     * @param orderId order to find
+     * @return found order details, empty when not found
+     */
+    default Optional<OrderDetails> findOrder(String orderId) {
+        long parsedOrderId = OrderIds.parse(orderId);
+        return parsedOrderId == OrderIds.NOT_AN_ORDER_ID ? Optional.empty() : findOrder(parsedOrderId);
+    }
+
+    /**
+     * Implementations should not allocate when the order is not found
+     *
+     * @param orderId order to find
+     * @return found order details, empty when not found
+     */
+    Optional<OrderDetails> findOrder(long orderId);
+
+    /**
+     *
+     * @param orderId order to find
+     * @return removed order details
+     * @throws OrderNotFoundException when order not found
+     */
+    default OrderDetails cancelOrder(String orderId) throws OrderNotFoundException {
+        long parsedOrderId = OrderIds.parse(orderId);
+        if (parsedOrderId == OrderIds.NOT_AN_ORDER_ID) {
+            throw new OrderNotFoundException(orderId + " not found");
+        }
+        return cancelOrder(parsedOrderId);
+    }
 
     /**
      *
@@ -23,7 +90,198 @@ public interface LiveOrderSystem {
      * @return removed order details
      * @throws OrderNotFoundException when order not found
      */
-    OrderDetails cancelOrder(String orderId) throws OrderNotFoundException;
+    OrderDetails cancelOrder(long orderId) throws OrderNotFoundException;
+
+    /**
+     * Like {@link #cancelOrder(String)} but for callers that race other cancels of the same order, cancelling an
+     * order that is already gone costs no exception
+     *
+     * @param orderId order to cancel
+     * @return removed order details, empty when not found
+     */
+    default Optional<OrderDetails> tryCancel(String orderId) {
+        long parsedOrderId = OrderIds.parse(orderId);
+        return parsedOrderId == OrderIds.NOT_AN_ORDER_ID ? Optional.empty() : tryCancel(parsedOrderId);
+    }
+
+    /**
+     * Implementations should not allocate when the order is not found
+     *
+     * @param orderId order to cancel
+     * @return removed order details, empty when not found
+     */
+    Optional<OrderDetails> tryCancel(long orderId);
 
     OrdersSummary orderSummary(PurchaseType purchaseType);
+
+    /**
+     * Implementations should serve this from a cached top of book kept up to date as levels change, rather than
+     * looking in the side, as it is read far more often than anything else.
+     *
+     * @param purchaseType side of the board
+     * @return the highest priced buy level or lowest priced sell level, empty when the side has no orders
+     */
+    Optional<PriceLevel> bestLevel(PurchaseType purchaseType);
+
+    /**
+     *
+     * @param purchaseType side of the board
+     * @return the highest buy price or lowest sell price, empty when the side has no orders
+     */
+    default Optional<BigDecimal> bestPrice(PurchaseType purchaseType) {
+        return bestLevel(purchaseType).map(PriceLevel::getPricePerKg);
+    }
+
+    /**
+     * The two sides are read one after the other, so the spread may mix a change to one with the state before a
+     * change to the other.
+     *
+     * @return lowest sell price less highest buy price, negative when they cross, empty unless both sides have orders
+     */
+    default Optional<BigDecimal> spread() {
+        Optional<BigDecimal> bestBuy = bestPrice(PurchaseType.BUY);
+        Optional<BigDecimal> bestSell = bestPrice(PurchaseType.SELL);
+        return bestBuy.isPresent() && bestSell.isPresent() ? Optional.of(bestSell.get().subtract(bestBuy.get())) : Optional.empty();
+    }
+
+    /**
+     * Meant for monitoring, so may be slightly behind registers and cancels still in flight
+     *
+     * @return number of orders registered and not yet cancelled
+     */
+    long liveOrderCount();
+
+    /**
+     * Meant for monitoring, may walk both sides
+     *
+     * @return live and removed price levels on each side
+     */
+    CompactionReport compactionReport();
+
+    /**
+     * Implementations should only walk the levels they return rather than copying the whole side.
+     *
+     * @param purchaseType side of the board
+     * @param depth maximum number of levels, best price first
+     * @return summary of at most depth levels
+     */
+    default OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative but was " + depth);
+        }
+        OrdersSummary fullSummary = orderSummary(purchaseType);
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(fullSummary.getVersion());
+        int levels = 0;
+        for (Map.Entry<BigDecimal, BigDecimal> level : fullSummary.getAmountsInKgByPrice().entrySet()) {
+            if (levels++ == depth) {
+                break;
+            }
+            summary.level(level.getKey(), level.getValue());
+        }
+        return summary.build();
+    }
+
+    /**
+     * Implementations should only walk the levels they return rather than copying the whole side.
+     *
+     * @param purchaseType side of the board
+     * @param from one end of the price band, inclusive
+     * @param to other end of the price band, inclusive, may be below from
+     * @return summary of the levels priced within the band
+     */
+    default OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        BigDecimal lowest = from.min(to);
+        BigDecimal highest = from.max(to);
+        OrdersSummary fullSummary = orderSummary(purchaseType);
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(fullSummary.getVersion());
+        fullSummary.getAmountsInKgByPrice().forEach((pricePerKg, amountInKg) -> {
+            if (pricePerKg.compareTo(lowest) >= 0 && pricePerKg.compareTo(highest) <= 0) {
+                summary.level(pricePerKg, amountInKg);
+            }
+        });
+        return summary.build();
+    }
+
+    /**
+     * Coarse view of a side for zoomed out ladders. Implementations should keep the bands of the tick sizes they
+     * are asked for most up to date as orders come and go, so the view costs no more than it has bands.
+     *
+     * @param purchaseType side of the board
+     * @param tickSize width of each band, positive
+     * @return total quantity in each band, keyed by the lowest price in the band, see {@link OrdersSummary#bandOf}
+     */
+    default OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal tickSize) {
+        OrdersSummary.checkTickSize(tickSize);
+        OrdersSummary fullSummary = orderSummary(purchaseType);
+        Map<BigDecimal, BigDecimal> bands = new TreeMap<>();
+        fullSummary.getAmountsInKgByPrice().forEach((pricePerKg, amountInKg) ->
+                bands.merge(OrdersSummary.bandOf(pricePerKg, tickSize), amountInKg, BigDecimal::add));
+        return new OrdersSummary(purchaseType, bands, fullSummary.getVersion());
+    }
+
+    /**
+     * The listener is called on the thread that changed the level, before that call returns, so it must be quick
+     *
+     * @param listener receives every price level change on both sides
+     * @return subscription to cancel delivery with
+     */
+    Subscription subscribe(PriceLevelListener listener);
+
+    /**
+     * Changes to the same level within an interval are coalesced and the listener only receives the latest total,
+     * from a separate thread, so a slow listener never holds up or falls behind the board.
+     *
+     * @param listener receives the latest total of each level that changed during the interval
+     * @param conflationInterval how often to deliver
+     * @param unit unit of the interval
+     * @return subscription to cancel delivery with
+     */
+    Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit);
+
+    /**
+     * Implementations should validate every request before registering any of them, so an invalid request
+     * rejects the whole batch rather than leaving it half registered.
+     *
+     * @param orderRequests incoming orders
+     * @return order ids in the same order as the requests
+     */
+    default List<String> registerOrders(List<OrderRequest> orderRequests) {
+        orderRequests.forEach(new OrderRequestValidator()::validate);
+        List<String> orderIds = new ArrayList<>(orderRequests.size());
+        for (OrderRequest orderRequest : orderRequests) {
+            orderIds.add(registerOrder(orderRequest));
+        }
+        return orderIds;
+    }
+
+    /**
+     *
+     * @param orderIds orders to cancel
+     * @return one result per order id, in iteration order, an unknown order is reported rather than thrown
+     */
+    default List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        List<CancelResult> results = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            Optional<OrderDetails> cancelled = tryCancel(orderId);
+            results.add(cancelled.isPresent() ? CancelResult.cancelled(cancelled.get()) : CancelResult.notFound(orderId));
+        }
+        return results;
+    }
+
+    /**
+     * Implementations should keep the orders indexed by user, so this costs no more than the user has orders.
+     *
+     * @param userId user to list
+     * @return the user's live orders, in no particular order, empty for an unknown user
+     */
+    List<OrderDetails> ordersForUser(String userId);
+
+    /**
+     * Cancels everything the user has on the board at the time of the call, adjusting each price level once
+     * however many of the user's orders were at it. Orders the user registers while this runs may be left live.
+     *
+     * @param userId user whose orders to cancel
+     * @return the cancelled orders, in no particular order, empty for an unknown user
+     */
+    List<OrderDetails> cancelAllForUser(String userId);
 }
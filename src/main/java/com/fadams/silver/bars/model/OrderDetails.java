@@ -6,7 +6,9 @@ import java.math.BigDecimal;
  * Not a fan of all the duplication between these two classes #OrderRequest
  */
 public class OrderDetails {
-    private final String orderId;
+    private final long orderNumber;
+    // built on first use when the details were made from an order number, racing threads just build equal Strings
+    private String orderId;
     private final String userId;
     private final BigDecimal orderQuantity;
     private final BigDecimal pricePerKg;
@@ -14,7 +16,13 @@ public class OrderDetails {
 
     public OrderDetails(String orderId, String userId, BigDecimal orderQuantity,
                         BigDecimal pricePerKg, PurchaseType purchaseType) {
+        this(OrderIds.parse(orderId), userId, orderQuantity, pricePerKg, purchaseType);
         this.orderId = orderId;
+    }
+
+    public OrderDetails(long orderNumber, String userId, BigDecimal orderQuantity,
+                        BigDecimal pricePerKg, PurchaseType purchaseType) {
+        this.orderNumber = orderNumber;
         this.userId = userId;
         this.orderQuantity = orderQuantity;
         this.pricePerKg = pricePerKg;
@@ -22,7 +30,20 @@ public class OrderDetails {
     }
 
     public String getOrderId() {
-        return orderId;
+        String formatted = orderId;
+        if (formatted == null) {
+            formatted = OrderIds.format(orderNumber);
+            orderId = formatted;
+        }
+        return formatted;
+    }
+
+    /**
+     * @return the order id as a number, {@link OrderIds#NOT_AN_ORDER_ID} if these details were made from a String
+     * id that {@link OrderIds#parse} does not accept
+     */
+    public long getOrderNumber() {
+        return orderNumber;
     }
 
     public String getUserId() {
@@ -44,7 +65,7 @@ public class OrderDetails {
     @Override
     public String toString() {
         return "OrderDetails{" +
-                "orderId='" + orderId + '\'' +
+                "orderId='" + getOrderId() + '\'' +
                 ", userId='" + userId + '\'' +
                 ", orderQuantity=" + orderQuantity +
                 ", pricePerKg=" + pricePerKg +
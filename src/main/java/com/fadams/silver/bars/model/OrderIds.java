@@ -0,0 +1,41 @@
+package com.fadams.silver.bars.model;
+
+/**
+ * Order ids are non negative longs internally and their plain decimal form on the String API
+ */
+public final class OrderIds {
+    public static final long NOT_AN_ORDER_ID = -1;
+
+    private OrderIds() {
+    }
+
+    public static String format(long orderId) {
+        return Long.toString(orderId);
+    }
+
+    /**
+     * Parses without throwing, as an unknown order id is an expected input rather than an exceptional one.
+     *
+     * @return the order id, or {@link #NOT_AN_ORDER_ID} if the String could not have come from {@link #format(long)}
+     */
+    public static long parse(String orderId) {
+        if (orderId == null || orderId.isEmpty() || orderId.length() > 19) {
+            return NOT_AN_ORDER_ID;
+        }
+        if (orderId.length() > 1 && orderId.charAt(0) == '0') {
+            return NOT_AN_ORDER_ID;
+        }
+        long value = 0;
+        for (int i = 0; i < orderId.length(); i++) {
+            char digit = orderId.charAt(i);
+            if (digit < '0' || digit > '9') {
+                return NOT_AN_ORDER_ID;
+            }
+            value = value * 10 + (digit - '0');
+            if (value < 0) {
+                return NOT_AN_ORDER_ID;
+            }
+        }
+        return value;
+    }
+}
@@ -6,17 +6,30 @@ import java.math.BigDecimal;
  * Not a fan of all the duplication between these two classes #OrderDetails
  */
 public class OrderRequest {
+    public static final long NEVER_EXPIRES = Long.MAX_VALUE;
+
     private final String userId;
     private final BigDecimal orderQuantity;
     private final BigDecimal pricePerKg;
     private final PurchaseType purchaseType;
+    private final long expiresAtMillis;
 
     public OrderRequest(String userId, BigDecimal orderQuantity,
                         BigDecimal pricePerKg, PurchaseType purchaseType) {
+        this(userId, orderQuantity, pricePerKg, purchaseType, NEVER_EXPIRES);
+    }
+
+    /**
+     * @param expiresAtMillis epoch millis after which the order is cancelled, honoured by systems wrapped in an
+     * {@link com.fadams.silver.bars.expiry.ExpiringLiveOrderSystem}
+     */
+    public OrderRequest(String userId, BigDecimal orderQuantity,
+                        BigDecimal pricePerKg, PurchaseType purchaseType, long expiresAtMillis) {
         this.userId = userId;
         this.orderQuantity = orderQuantity;
         this.pricePerKg = pricePerKg;
         this.purchaseType = purchaseType;
+        this.expiresAtMillis = expiresAtMillis;
     }
 
     public String getUserId() {
@@ -35,6 +48,17 @@ public class OrderRequest {
         return purchaseType;
     }
 
+    /**
+     * @return epoch millis the order expires at, {@link #NEVER_EXPIRES} if it lives until cancelled
+     */
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public boolean expires() {
+        return expiresAtMillis != NEVER_EXPIRES;
+    }
+
     @Override
     public String toString() {
         return "OrderRequest{" +
@@ -42,6 +66,7 @@ public class OrderRequest {
                 ", orderQuantity=" + orderQuantity +
                 ", pricePerKg=" + pricePerKg +
                 ", purchaseType=" + purchaseType +
+                (expires() ? ", expiresAtMillis=" + expiresAtMillis : "") +
                 '}';
     }
 }
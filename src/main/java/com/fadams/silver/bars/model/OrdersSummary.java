@@ -1,16 +1,69 @@
 package com.fadams.silver.bars.model;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
+/**
+ * Immutable, so one instance can be handed to any number of readers. SELL levels are ordered lowest price first
+ * and BUY levels highest price first whatever order the map passed in was in.
+ */
 public class OrdersSummary {
     private final PurchaseType purchaseType;
-    private final Map<BigDecimal, BigDecimal> amountsInKgByPrice;
+    private final SortedMap<BigDecimal, BigDecimal> amountsInKgByPrice;
+    private final long version;
 
     public OrdersSummary(PurchaseType purchaseType, Map<BigDecimal, BigDecimal> amountsInKgByPrice) {
+        this(purchaseType, amountsInKgByPrice, 0);
+    }
+
+    /**
+     *
+     * @param purchaseType side of the board
+     * @param amountsInKgByPrice copied, later changes to it are not seen by the summary
+     * @param version version of the side the levels were read at, see {@link #getVersion()}
+     */
+    public OrdersSummary(PurchaseType purchaseType, Map<BigDecimal, BigDecimal> amountsInKgByPrice, long version) {
         this.purchaseType = purchaseType;
-        // TODO not properly immutable
-        this.amountsInKgByPrice = amountsInKgByPrice;
+        SortedMap<BigDecimal, BigDecimal> copy = new TreeMap<>(priceOrder(purchaseType));
+        copy.putAll(amountsInKgByPrice);
+        this.amountsInKgByPrice = Collections.unmodifiableSortedMap(copy);
+        this.version = version;
+    }
+
+    private OrdersSummary(Builder builder) {
+        this.purchaseType = builder.purchaseType;
+        this.amountsInKgByPrice = Collections.unmodifiableSortedMap(builder.amountsInKgByPrice);
+        this.version = builder.version;
+    }
+
+    public static Builder builder(PurchaseType purchaseType) {
+        return new Builder(purchaseType);
+    }
+
+    /**
+     * @return the order levels are displayed in for a side, lowest price first for SELL and highest first for BUY
+     */
+    public static Comparator<BigDecimal> priceOrder(PurchaseType purchaseType) {
+        Comparator<BigDecimal> lowestFirst = BigDecimal::compareTo;
+        return PurchaseType.SELL.equals(purchaseType) ? lowestFirst : lowestFirst.reversed();
+    }
+
+    /**
+     * @return the lowest price of the band of width tickSize the price falls in, to the scale of the tick size
+     */
+    public static BigDecimal bandOf(BigDecimal pricePerKg, BigDecimal tickSize) {
+        return pricePerKg.divide(tickSize, 0, RoundingMode.FLOOR).multiply(tickSize);
+    }
+
+    public static void checkTickSize(BigDecimal tickSize) {
+        if (tickSize.signum() <= 0) {
+            throw new IllegalArgumentException("tickSize must be positive but was " + tickSize);
+        }
     }
 
     public PurchaseType getPurchaseType() {
@@ -21,11 +74,55 @@ public class OrdersSummary {
         return amountsInKgByPrice;
     }
 
+    /**
+     * Version of the side the summary was taken from, which increases every time the side changes. Summaries of
+     * part of a side (to a depth, within a band or bucketed at a tick size) carry the whole side's version, so two
+     * summaries asked for in the same way with the same version hold the same levels, but a version says nothing
+     * about how much of the side a summary holds. Zero when the summary was not built by a live order system.
+     */
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public String toString() {
         return "OrdersSummary{" +
                 "purchaseType=" + purchaseType +
                 ", amountsInKgByPrice=" + amountsInKgByPrice +
+                ", version=" + version +
                 '}';
     }
+
+    /**
+     * Collects levels straight into the summary's own map, avoiding the copy the constructor makes
+     */
+    public static class Builder {
+        private final PurchaseType purchaseType;
+        private final SortedMap<BigDecimal, BigDecimal> amountsInKgByPrice;
+        private long version;
+        private boolean built;
+
+        private Builder(PurchaseType purchaseType) {
+            this.purchaseType = purchaseType;
+            this.amountsInKgByPrice = new TreeMap<>(priceOrder(purchaseType));
+        }
+
+        public Builder level(BigDecimal pricePerKg, BigDecimal amountInKg) {
+            if (built) {
+                throw new IllegalStateException("summary already built");
+            }
+            amountsInKgByPrice.put(pricePerKg, amountInKg);
+            return this;
+        }
+
+        public Builder version(long version) {
+            this.version = version;
+            return this;
+        }
+
+        public OrdersSummary build() {
+            built = true;
+            return new OrdersSummary(this);
+        }
+    }
 }
@@ -0,0 +1,39 @@
+package com.fadams.silver.bars.model;
+
+import java.math.BigDecimal;
+
+/**
+ * The total quantity resting at one price on one side of the board
+ */
+public class PriceLevel {
+    private final PurchaseType purchaseType;
+    private final BigDecimal pricePerKg;
+    private final BigDecimal totalInKg;
+
+    public PriceLevel(PurchaseType purchaseType, BigDecimal pricePerKg, BigDecimal totalInKg) {
+        this.purchaseType = purchaseType;
+        this.pricePerKg = pricePerKg;
+        this.totalInKg = totalInKg;
+    }
+
+    public PurchaseType getPurchaseType() {
+        return purchaseType;
+    }
+
+    public BigDecimal getPricePerKg() {
+        return pricePerKg;
+    }
+
+    public BigDecimal getTotalInKg() {
+        return totalInKg;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceLevel{" +
+                "purchaseType=" + purchaseType +
+                ", pricePerKg=" + pricePerKg +
+                ", totalInKg=" + totalInKg +
+                '}';
+    }
+}
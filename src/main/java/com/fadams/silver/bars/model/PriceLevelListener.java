@@ -0,0 +1,11 @@
+package com.fadams.silver.bars.model;
+
+@FunctionalInterface
+public interface PriceLevelListener {
+
+    /**
+     *
+     * @param priceLevel the level that changed, with its new total (zero once the last order at the price has gone)
+     */
+    void onPriceLevelChanged(PriceLevel priceLevel);
+}
@@ -0,0 +1,26 @@
+package com.fadams.silver.bars.model;
+
+import java.util.function.Consumer;
+
+/**
+ * A live order system that can be rebuilt from somewhere else (a journal for example) with the order ids its
+ * orders were originally given
+ */
+public interface RestorableLiveOrderSystem extends LiveOrderSystem {
+
+    /**
+     * Registers an order under an id it was already given, without validating it again. Restoring an id that is
+     * already live does nothing, so replaying the same event twice is harmless. The id will not be handed out to a
+     * new order afterwards.
+     *
+     * @param orderId id the order was originally registered with
+     * @param orderRequest the order as originally requested
+     */
+    void restoreOrder(long orderId, OrderRequest orderRequest);
+
+    /**
+     * Visits every live order without stopping writers. Orders registered or cancelled while the visit is under
+     * way may or may not be seen, but every order live for the whole visit is seen exactly once.
+     */
+    void forEachOrder(Consumer<OrderDetails> action);
+}
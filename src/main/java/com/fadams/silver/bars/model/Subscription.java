@@ -0,0 +1,9 @@
+package com.fadams.silver.bars.model;
+
+public interface Subscription {
+
+    /**
+     * Stops delivery to the listener, anything not yet delivered is dropped
+     */
+    void cancel();
+}
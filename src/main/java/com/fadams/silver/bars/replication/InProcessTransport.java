@@ -0,0 +1,47 @@
+package com.fadams.silver.bars.replication;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feeds replicas in the same process as the primary, each from its own daemon thread, which stops when the replica
+ * can no longer follow its stream (see {@link ReplicaLiveOrderSystem#replicationFailure()})
+ */
+public class InProcessTransport implements ReplicationTransport {
+    private static final long POLL_MILLIS = 100;
+
+    private final ReplicatingLiveOrderSystem primary;
+
+    public InProcessTransport(ReplicatingLiveOrderSystem primary) {
+        this.primary = primary;
+    }
+
+    @Override
+    public Closeable connect(ReplicaLiveOrderSystem replica) {
+        ReplicationStream stream = primary.openStream();
+        Thread feeder = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    ReplicationFrame frame = stream.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (frame != null) {
+                        replica.apply(frame);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // closed
+            } catch (RuntimeException e) {
+                replica.failed(e);
+            }
+        }, "replication-in-process");
+        feeder.setDaemon(true);
+        feeder.start();
+        return () -> {
+            feeder.interrupt();
+            try {
+                feeder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+}
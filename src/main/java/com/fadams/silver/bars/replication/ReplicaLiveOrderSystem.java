@@ -0,0 +1,145 @@
+package com.fadams.silver.bars.replication;
+
+import com.fadams.silver.bars.journal.OrderEventCodec;
+import com.fadams.silver.bars.journal.OrderEventHandler;
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.ForwardingLiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Read only copy of a {@link ReplicatingLiveOrderSystem}, kept up to date by applying its stream to a board of its
+ * own, which serves every read. Writes go to the primary, so here they throw {@link UnsupportedOperationException}.
+ * A replica follows one stream from its snapshot onwards, one that has lost its stream should be replaced by a new
+ * one rather than connected again, as the new snapshot would not take out orders cancelled in between. Why it lost
+ * its stream, missed frames or an event it could not apply, is kept in {@link #replicationFailure()}.
+ */
+public class ReplicaLiveOrderSystem extends ForwardingLiveOrderSystem {
+    private final OrderEventHandler applier;
+    private volatile ReplicationLag replicationLag = new ReplicationLag(0, 0, 0);
+    private volatile boolean started;
+    private volatile RuntimeException failure;
+
+    /**
+     * @param board empty system to apply the primary's events to
+     */
+    public ReplicaLiveOrderSystem(RestorableLiveOrderSystem board) {
+        super(board);
+        this.applier = new OrderEventHandler() {
+            @Override
+            public void onRegister(long orderId, OrderRequest orderRequest) {
+                board.restoreOrder(orderId, orderRequest);
+            }
+
+            @Override
+            public void onCancel(long orderId) {
+                // the primary publishes a cancel only after its register, so this is empty only for a cancel the snapshot already reflects
+                board.tryCancel(orderId);
+            }
+        };
+    }
+
+    /**
+     * Applies the next frame of the stream, called by the transport's one delivering thread
+     *
+     * @throws IllegalStateException if frames have been missed, or the replica has already stopped following
+     */
+    public void apply(ReplicationFrame frame) {
+        if (failure != null) {
+            throw new IllegalStateException("replica has stopped following its primary", failure);
+        }
+        long appliedSequence = replicationLag.getAppliedSequence();
+        if (started && frame.getSequence() != appliedSequence && frame.getSequence() != appliedSequence + 1) {
+            throw failed(new IllegalStateException("expected event " + (appliedSequence + 1) + " but got " + frame.getSequence()));
+        }
+        try {
+            if (frame.event().length > 0) {
+                OrderEventCodec.decode(ByteBuffer.wrap(frame.event()), applier);
+            }
+        } catch (RuntimeException e) {
+            throw failed(e);
+        }
+        started = true;
+        replicationLag = new ReplicationLag(frame.getSequence(), frame.getPublishedMillis(), System.currentTimeMillis());
+    }
+
+    public ReplicationLag replicationLag() {
+        return replicationLag;
+    }
+
+    /**
+     * @return why the replica stopped following its primary, empty while it is still following
+     */
+    public Optional<RuntimeException> replicationFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Records that the replica can no longer follow its stream, keeping the first reason given
+     *
+     * @return the reason, for the caller to throw
+     */
+    RuntimeException failed(RuntimeException reason) {
+        synchronized (this) {
+            if (failure == null) {
+                failure = reason;
+            }
+        }
+        return reason;
+    }
+
+    @Override
+    public String registerOrder(OrderRequest orderRequest) {
+        throw readOnly();
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        throw readOnly();
+    }
+
+    @Override
+    public OrderDetails cancelOrder(String orderId) {
+        throw readOnly();
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) {
+        throw readOnly();
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(String orderId) {
+        throw readOnly();
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        throw readOnly();
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("replicas are read only, write to the primary");
+    }
+}
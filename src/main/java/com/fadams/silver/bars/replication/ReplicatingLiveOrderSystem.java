@@ -0,0 +1,68 @@
+package com.fadams.silver.bars.replication;
+
+import com.fadams.silver.bars.journal.OrderEventCodec;
+import com.fadams.silver.bars.journal.RecordingLiveOrderSystem;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The primary: takes every write and publishes each successful register and cancel, in the same step as it is applied
+ * (see {@link RecordingLiveOrderSystem}) so an order's cancel is always published after its register, for any number
+ * of {@link ReplicaLiveOrderSystem}s to apply. Publishing is an encode and an append to an in memory log, however many
+ * replicas are reading, so read traffic can be spread over as many replicas as it needs without slowing writes.
+ */
+public class ReplicatingLiveOrderSystem extends RecordingLiveOrderSystem {
+    private static final int MAX_EVENT_BYTES = 64 * 1024;
+    private static final int DEFAULT_MAX_LAG_EVENTS = 1 << 20;
+
+    private final RestorableLiveOrderSystem restorable;
+    private final ReplicationLog log;
+
+    public ReplicatingLiveOrderSystem(RestorableLiveOrderSystem delegate) {
+        this(delegate, DEFAULT_MAX_LAG_EVENTS);
+    }
+
+    /**
+     * @param maxLagEvents how many events a replica may fall behind, the memory held for them is bounded by this, a
+     * replica further behind has missed frames and stops following its stream
+     */
+    public ReplicatingLiveOrderSystem(RestorableLiveOrderSystem delegate, int maxLagEvents) {
+        this(delegate, new ReplicationLog(maxLagEvents));
+    }
+
+    private ReplicatingLiveOrderSystem(RestorableLiveOrderSystem delegate, ReplicationLog log) {
+        super(delegate, log);
+        this.restorable = delegate;
+        this.log = log;
+    }
+
+    /**
+     * Starts a stream for a new replica, the snapshot it begins with is taken without stopping writers
+     */
+    public ReplicationStream openStream() {
+        long cutSequence = log.publishedSequence();
+        long snapshotMillis = System.currentTimeMillis();
+        ByteBuffer scratch = ByteBuffer.allocate(MAX_EVENT_BYTES);
+        List<ReplicationFrame> snapshot = new ArrayList<>();
+        snapshot.add(new ReplicationFrame(cutSequence, snapshotMillis, new byte[0]));
+        restorable.forEachOrder(order -> {
+            scratch.clear();
+            OrderEventCodec.encodeRegister(scratch, order.getOrderNumber(), new OrderRequest(order.getUserId(),
+                    order.getOrderQuantity(), order.getPricePerKg(), order.getPurchaseType()));
+            snapshot.add(new ReplicationFrame(cutSequence, snapshotMillis, Arrays.copyOf(scratch.array(), scratch.position())));
+        });
+        return new ReplicationStream(log, cutSequence, snapshot);
+    }
+
+    /**
+     * @return how many events have been published
+     */
+    public long publishedSequence() {
+        return log.publishedSequence();
+    }
+}
@@ -0,0 +1,53 @@
+package com.fadams.silver.bars.replication;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * One register or cancel event from a primary, encoded by {@link com.fadams.silver.bars.journal.OrderEventCodec},
+ * with its place in the primary's stream and the time the primary published it.
+ * On the wire a frame is [length][sequence][published millis][event].
+ */
+public final class ReplicationFrame {
+    private final long sequence;
+    private final long publishedMillis;
+    private final byte[] event;
+
+    ReplicationFrame(long sequence, long publishedMillis, byte[] event) {
+        this.sequence = sequence;
+        this.publishedMillis = publishedMillis;
+        this.event = event;
+    }
+
+    /**
+     * @return the primary's count of events up to and including this one, frames of the snapshot a stream starts
+     * with all carry the count at the moment it was cut
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getPublishedMillis() {
+        return publishedMillis;
+    }
+
+    byte[] event() {
+        return event;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(event.length);
+        out.writeLong(sequence);
+        out.writeLong(publishedMillis);
+        out.write(event);
+    }
+
+    static ReplicationFrame readFrom(DataInputStream in) throws IOException {
+        byte[] event = new byte[in.readInt()];
+        long sequence = in.readLong();
+        long publishedMillis = in.readLong();
+        in.readFully(event);
+        return new ReplicationFrame(sequence, publishedMillis, event);
+    }
+}
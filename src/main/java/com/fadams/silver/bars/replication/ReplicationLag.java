@@ -0,0 +1,44 @@
+package com.fadams.silver.bars.replication;
+
+/**
+ * How far behind its primary a replica is, as of the last event it applied
+ */
+public final class ReplicationLag {
+    private final long appliedSequence;
+    private final long publishedMillis;
+    private final long appliedMillis;
+
+    public ReplicationLag(long appliedSequence, long publishedMillis, long appliedMillis) {
+        this.appliedSequence = appliedSequence;
+        this.publishedMillis = publishedMillis;
+        this.appliedMillis = appliedMillis;
+    }
+
+    /**
+     * @return the primary's sequence number of the last event applied, see {@link ReplicationFrame#getSequence()}
+     */
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    /**
+     * @return how long after the primary published it the last event was applied, which relies on the two clocks
+     * agreeing when primary and replica are on different machines
+     */
+    public long getLagMillis() {
+        return Math.max(0, appliedMillis - publishedMillis);
+    }
+
+    public long getAppliedMillis() {
+        return appliedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicationLag{" +
+                "appliedSequence=" + appliedSequence +
+                ", lagMillis=" + getLagMillis() +
+                ", appliedMillis=" + appliedMillis +
+                '}';
+    }
+}
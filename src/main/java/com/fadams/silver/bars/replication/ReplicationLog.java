@@ -0,0 +1,97 @@
+package com.fadams.silver.bars.replication;
+
+import com.fadams.silver.bars.journal.OrderEventCodec;
+import com.fadams.silver.bars.journal.OrderEventHandler;
+import com.fadams.silver.bars.model.OrderRequest;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The primary's most recent events, in a ring that holds a fixed number of them. Each event is encoded once, and
+ * every stream reads the ring from its own position, so publishing costs the same however many replicas there are.
+ * A stream that falls further behind than the ring holds has been overrun: the events it needed are gone, so it is
+ * handed the oldest event still held and its replica, seeing the gap, stops following it.
+ */
+final class ReplicationLog implements OrderEventHandler {
+    // comfortably more than the largest event the codec can write
+    private static final int MAX_EVENT_BYTES = 64 * 1024;
+
+    private final AtomicReferenceArray<ReplicationFrame> frames;
+    // written only while holding this, read without it
+    private volatile long publishedSequence;
+
+    // guarded by this
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_EVENT_BYTES);
+
+    /**
+     * @param capacity how many events a stream may fall behind before it is overrun
+     */
+    ReplicationLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, not " + capacity);
+        }
+        this.frames = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public synchronized void onRegister(long orderId, OrderRequest orderRequest) {
+        scratch.clear();
+        OrderEventCodec.encodeRegister(scratch, orderId, orderRequest);
+        append();
+    }
+
+    @Override
+    public synchronized void onCancel(long orderId) {
+        scratch.clear();
+        OrderEventCodec.encodeCancel(scratch, orderId);
+        append();
+    }
+
+    long publishedSequence() {
+        return publishedSequence;
+    }
+
+    /**
+     * @return the event following the given sequence, the oldest event still held if that one has been overwritten,
+     * or null if none was published in time
+     */
+    ReplicationFrame awaitNext(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        if (publishedSequence <= sequence && !await(sequence, timeout, unit)) {
+            return null;
+        }
+        ReplicationFrame frame = frames.get(index(sequence + 1));
+        if (frame.getSequence() == sequence + 1) {
+            return frame;
+        }
+        synchronized (this) {
+            return frames.get(index(Math.max(1, publishedSequence - frames.length() + 1)));
+        }
+    }
+
+    private synchronized boolean await(long sequence, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (publishedSequence <= sequence) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remainingNanos);
+        }
+        return true;
+    }
+
+    private void append() {
+        long sequence = publishedSequence + 1;
+        byte[] event = Arrays.copyOf(scratch.array(), scratch.position());
+        frames.set(index(sequence), new ReplicationFrame(sequence, System.currentTimeMillis(), event));
+        publishedSequence = sequence;
+        notifyAll();
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % frames.length());
+    }
+}
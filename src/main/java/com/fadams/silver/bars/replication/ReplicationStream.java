@@ -0,0 +1,40 @@
+package com.fadams.silver.bars.replication;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A primary's events for one replica: a snapshot of the orders live when the stream was opened, as register events,
+ * followed by every event published from then on. Events published while the snapshot was being taken may be in
+ * both, which is harmless as restoring a live order does nothing and cancelling a missing one is ignored.
+ * The snapshot is preceded by an empty frame carrying the sequence it was cut at, so that a replica can tell from its
+ * very first event whether any were missed. Only one thread should poll a stream.
+ */
+public final class ReplicationStream {
+    private final ReplicationLog log;
+    private final Iterator<ReplicationFrame> snapshot;
+    private long position;
+
+    ReplicationStream(ReplicationLog log, long cut, List<ReplicationFrame> snapshot) {
+        this.log = log;
+        this.position = cut;
+        this.snapshot = snapshot.iterator();
+    }
+
+    /**
+     * @return the next frame, or null if there was none within the timeout. Once the stream has been overrun (see
+     * {@link ReplicationLog}) the frame is a later one than the next, which the replica rejects as missed frames.
+     */
+    public ReplicationFrame poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (snapshot.hasNext()) {
+            return snapshot.next();
+        }
+        ReplicationFrame next = log.awaitNext(position, timeout, unit);
+        if (next == null) {
+            return null;
+        }
+        position = next.getSequence();
+        return next;
+    }
+}
@@ -0,0 +1,18 @@
+package com.fadams.silver.bars.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Carries a primary's {@link ReplicationStream} to a replica, delivering its frames to
+ * {@link ReplicaLiveOrderSystem#apply} on one thread in the order they were published
+ */
+public interface ReplicationTransport {
+
+    /**
+     * Starts feeding a new replica from a snapshot of the primary onwards
+     *
+     * @return stops the feed when closed
+     */
+    Closeable connect(ReplicaLiveOrderSystem replica) throws IOException;
+}
@@ -0,0 +1,80 @@
+package com.fadams.silver.bars.replication;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves a primary's stream over TCP, a new stream for every connection, for {@link SocketTransport} to read.
+ * Each connection is written by a daemon thread of its own, which flushes whenever it catches up with the primary.
+ */
+public class SocketReplicationServer implements Closeable {
+    private static final long POLL_MILLIS = 100;
+
+    private final ReplicatingLiveOrderSystem primary;
+    private final ServerSocket serverSocket;
+
+    public SocketReplicationServer(ReplicatingLiveOrderSystem primary, InetSocketAddress address) throws IOException {
+        this.primary = primary;
+        this.serverSocket = new ServerSocket();
+        this.serverSocket.bind(address);
+        Thread acceptor = new Thread(this::accept, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread sender = new Thread(() -> send(socket), "replication-sender-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                // closed, or a connection that failed before it was accepted
+            }
+        }
+    }
+
+    private void send(Socket socket) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            ReplicationStream stream = primary.openStream();
+            while (!serverSocket.isClosed()) {
+                ReplicationFrame frame = stream.poll(0, TimeUnit.MILLISECONDS);
+                if (frame == null) {
+                    out.flush();
+                    frame = stream.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (frame != null) {
+                    frame.writeTo(out);
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // the replica went away, or the server is closing, either way the stream ends here
+        } finally {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // nothing more to send on it anyway
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.fadams.silver.bars.replication;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Feeds a replica from a {@link SocketReplicationServer}, reading frames on a daemon thread until either end closes
+ * or the replica finds it has missed frames, when the socket is closed
+ */
+public class SocketTransport implements ReplicationTransport {
+    private final InetSocketAddress primaryAddress;
+
+    public SocketTransport(InetSocketAddress primaryAddress) {
+        this.primaryAddress = primaryAddress;
+    }
+
+    @Override
+    public Closeable connect(ReplicaLiveOrderSystem replica) throws IOException {
+        Socket socket = new Socket();
+        socket.connect(primaryAddress);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        Thread receiver = new Thread(() -> {
+            try {
+                while (true) {
+                    replica.apply(ReplicationFrame.readFrom(in));
+                }
+            } catch (IOException e) {
+                // the primary went away or the transport was closed
+            } catch (RuntimeException e) {
+                // frames were missed or one could not be applied, the replica can no longer follow this stream and
+                // has to be replaced
+                replica.failed(e);
+            } finally {
+                closeQuietly(socket);
+            }
+        }, "replication-receiver");
+        receiver.setDaemon(true);
+        receiver.start();
+        return () -> {
+            socket.close();
+            try {
+                receiver.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // the stream has ended either way
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package com.fadams.silver.bars.sharded;
+
+import com.fadams.silver.bars.OrderRequestValidator;
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.CompactionReport;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+import com.fadams.silver.bars.model.Subscription;
+import com.fadams.silver.bars.summary.PriceLevelPublisher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spreads orders over independent shards by user, so registers and cancels for different users never touch the
+ * same order index or price level maps. Each shard hands out order ids starting at {@link #firstOrderNumber(int)},
+ * so an id says which shard holds it and lookups and cancels go straight there. Summaries are a merge of the
+ * shards' already sorted levels, cached until one of the shards changes.
+ */
+public class ShardedLiveOrderSystem implements RestorableLiveOrderSystem {
+    /**
+     * Order ids carry their shard above this bit, leaving room for about a trillion orders per shard
+     */
+    public static final int SHARD_ID_SHIFT = 40;
+    private static final int MAX_SHARDS = 1 << (Long.SIZE - 1 - SHARD_ID_SHIFT);
+
+    private final RestorableLiveOrderSystem[] shards;
+    private final OrderRequestValidator orderRequestValidator;
+    private final AtomicReference<OrdersSummary> buySummary = new AtomicReference<>();
+    private final AtomicReference<OrdersSummary> sellSummary = new AtomicReference<>();
+
+    // only listening to the shards while someone is subscribed, see listenToShards
+    private final PriceLevelPublisher priceLevelPublisher = new PriceLevelPublisher();
+    // both guarded by this
+    private ShardListening shardListening;
+    private int subscribers;
+
+    /**
+     * @param shards shard n must number its orders from {@link #firstOrderNumber(int) firstOrderNumber(n)}
+     */
+    public ShardedLiveOrderSystem(List<? extends RestorableLiveOrderSystem> shards, OrderRequestValidator orderRequestValidator) {
+        if (shards.isEmpty() || shards.size() > MAX_SHARDS) {
+            throw new IllegalArgumentException("between 1 and " + MAX_SHARDS + " shards are supported, not " + shards.size());
+        }
+        this.shards = shards.toArray(new RestorableLiveOrderSystem[0]);
+        this.orderRequestValidator = orderRequestValidator;
+    }
+
+    public static long firstOrderNumber(int shard) {
+        return (long) shard << SHARD_ID_SHIFT;
+    }
+
+    @Override
+    public long registerOrderId(OrderRequest orderRequest) {
+        // the user id is needed to pick a shard, so it has to be checked here rather than left to the shard
+        orderRequestValidator.validate(orderRequest);
+        return shards[shardFor(orderRequest)].registerOrderId(orderRequest);
+    }
+
+    @Override
+    public void restoreOrder(long orderId, OrderRequest orderRequest) {
+        int shard = shardOf(orderId);
+        if (shard < 0) {
+            throw new IllegalArgumentException(orderId + " does not belong to any of " + shards.length + " shards");
+        }
+        shards[shard].restoreOrder(orderId, orderRequest);
+    }
+
+    @Override
+    public void forEachOrder(Consumer<OrderDetails> action) {
+        for (RestorableLiveOrderSystem shard : shards) {
+            shard.forEachOrder(action);
+        }
+    }
+
+    @Override
+    public OrderDetails orderDetails(long orderId) throws OrderNotFoundException {
+        return shardHolding(orderId).orderDetails(orderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> findOrder(long orderId) {
+        int shard = shardOf(orderId);
+        return shard < 0 ? Optional.empty() : shards[shard].findOrder(orderId);
+    }
+
+    @Override
+    public OrderDetails cancelOrder(long orderId) throws OrderNotFoundException {
+        return shardHolding(orderId).cancelOrder(orderId);
+    }
+
+    @Override
+    public Optional<OrderDetails> tryCancel(long orderId) {
+        int shard = shardOf(orderId);
+        return shard < 0 ? Optional.empty() : shards[shard].tryCancel(orderId);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType) {
+        List<OrdersSummary> shardSummaries = shardSummaries(shard -> shard.orderSummary(purchaseType));
+        AtomicReference<OrdersSummary> summary = PurchaseType.SELL.equals(purchaseType) ? sellSummary : buySummary;
+        OrdersSummary cached = summary.get();
+        // shard versions only ever go up, so the same sum means every shard is unchanged
+        if (cached != null && cached.getVersion() == versionOf(shardSummaries)) {
+            return cached;
+        }
+        OrdersSummary merged = merge(purchaseType, shardSummaries, Integer.MAX_VALUE);
+        summary.set(merged);
+        return merged;
+    }
+
+    @Override
+    public long liveOrderCount() {
+        long liveOrderCount = 0;
+        for (RestorableLiveOrderSystem shard : shards) {
+            liveOrderCount += shard.liveOrderCount();
+        }
+        return liveOrderCount;
+    }
+
+    /**
+     * The best of each shard's cached best level, summed where shards share the best price. Shards are read one
+     * after the other, so like the summaries this may mix states of different shards.
+     */
+    @Override
+    public Optional<PriceLevel> bestLevel(PurchaseType purchaseType) {
+        Comparator<BigDecimal> priceOrder = OrdersSummary.priceOrder(purchaseType);
+        BigDecimal bestPrice = null;
+        BigDecimal totalInKg = null;
+        for (RestorableLiveOrderSystem shard : shards) {
+            Optional<PriceLevel> shardBest = shard.bestLevel(purchaseType);
+            if (!shardBest.isPresent()) {
+                continue;
+            }
+            PriceLevel level = shardBest.get();
+            int comparison = bestPrice == null ? -1 : priceOrder.compare(level.getPricePerKg(), bestPrice);
+            if (comparison < 0) {
+                bestPrice = level.getPricePerKg();
+                totalInKg = level.getTotalInKg();
+            } else if (comparison == 0) {
+                totalInKg = totalInKg.add(level.getTotalInKg());
+            }
+        }
+        return bestPrice == null ? Optional.empty() : Optional.of(new PriceLevel(purchaseType, bestPrice, totalInKg));
+    }
+
+    /**
+     * Shards can each hold the same price, so live levels here count a price once per shard holding it
+     */
+    @Override
+    public CompactionReport compactionReport() {
+        long buyLiveLevels = 0;
+        long buyRemovedLevels = 0;
+        long sellLiveLevels = 0;
+        long sellRemovedLevels = 0;
+        for (RestorableLiveOrderSystem shard : shards) {
+            CompactionReport shardReport = shard.compactionReport();
+            buyLiveLevels += shardReport.getLiveLevels(PurchaseType.BUY);
+            buyRemovedLevels += shardReport.getRemovedLevels(PurchaseType.BUY);
+            sellLiveLevels += shardReport.getLiveLevels(PurchaseType.SELL);
+            sellRemovedLevels += shardReport.getRemovedLevels(PurchaseType.SELL);
+        }
+        return new CompactionReport(buyLiveLevels, buyRemovedLevels, sellLiveLevels, sellRemovedLevels);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, int depth) {
+        // the top levels overall can only come from the top levels of each shard
+        return merge(purchaseType, shardSummaries(shard -> shard.orderSummary(purchaseType, depth)), depth);
+    }
+
+    @Override
+    public OrdersSummary orderSummary(PurchaseType purchaseType, BigDecimal from, BigDecimal to) {
+        return merge(purchaseType, shardSummaries(shard -> shard.orderSummary(purchaseType, from, to)), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener) {
+        listenToShards();
+        return stopListeningOnCancel(priceLevelPublisher.subscribe(listener));
+    }
+
+    @Override
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        listenToShards();
+        return stopListeningOnCancel(priceLevelPublisher.subscribe(listener, conflationInterval, unit));
+    }
+
+    @Override
+    public List<String> registerOrders(List<OrderRequest> orderRequests) {
+        orderRequests.forEach(orderRequestValidator::validate);
+        // each request goes to its user's shard, every shard's part of the batch applied in one go
+        int[] shardOfRequest = new int[orderRequests.size()];
+        List<List<OrderRequest>> requestsByShard = emptyListPerShard();
+        for (int i = 0; i < orderRequests.size(); i++) {
+            shardOfRequest[i] = shardFor(orderRequests.get(i));
+            requestsByShard.get(shardOfRequest[i]).add(orderRequests.get(i));
+        }
+        List<List<String>> orderIdsByShard = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<OrderRequest> shardRequests = requestsByShard.get(shard);
+            orderIdsByShard.add(shardRequests.isEmpty() ? null : shards[shard].registerOrders(shardRequests));
+        }
+        int[] nextOfShard = new int[shards.length];
+        List<String> orderIds = new ArrayList<>(orderRequests.size());
+        for (int shard : shardOfRequest) {
+            orderIds.add(orderIdsByShard.get(shard).get(nextOfShard[shard]++));
+        }
+        return orderIds;
+    }
+
+    @Override
+    public List<CancelResult> cancelOrders(Collection<String> orderIds) {
+        int[] shardOfOrder = new int[orderIds.size()];
+        List<List<String>> orderIdsByShard = emptyListPerShard();
+        int i = 0;
+        for (String orderId : orderIds) {
+            shardOfOrder[i] = shardOf(OrderIds.parse(orderId));
+            if (shardOfOrder[i] >= 0) {
+                orderIdsByShard.get(shardOfOrder[i]).add(orderId);
+            }
+            i++;
+        }
+        List<List<CancelResult>> resultsByShard = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<String> shardOrderIds = orderIdsByShard.get(shard);
+            resultsByShard.add(shardOrderIds.isEmpty() ? null : shards[shard].cancelOrders(shardOrderIds));
+        }
+        int[] nextOfShard = new int[shards.length];
+        List<CancelResult> results = new ArrayList<>(orderIds.size());
+        i = 0;
+        for (String orderId : orderIds) {
+            int shard = shardOfOrder[i++];
+            results.add(shard < 0 ? CancelResult.notFound(orderId) : resultsByShard.get(shard).get(nextOfShard[shard]++));
+        }
+        return results;
+    }
+
+    /**
+     * Every one of a user's orders is on the user's own shard, so only that shard is asked
+     */
+    @Override
+    public List<OrderDetails> ordersForUser(String userId) {
+        return shards[shardFor(userId)].ordersForUser(userId);
+    }
+
+    @Override
+    public List<OrderDetails> cancelAllForUser(String userId) {
+        return shards[shardFor(userId)].cancelAllForUser(userId);
+    }
+
+    private int shardFor(OrderRequest orderRequest) {
+        return shardFor(orderRequest.getUserId());
+    }
+
+    private int shardFor(String userId) {
+        int hash = userId.hashCode();
+        // String hashes differ mostly in their low bits only for short, similar ids, so mix the high bits in too
+        hash ^= hash >>> 16;
+        return (hash & Integer.MAX_VALUE) % shards.length;
+    }
+
+    /**
+     * @return the shard an order id was handed out by, or -1 when none of the shards could have
+     */
+    private int shardOf(long orderId) {
+        if (orderId < 0) {
+            return -1;
+        }
+        long shard = orderId >>> SHARD_ID_SHIFT;
+        return shard < shards.length ? (int) shard : -1;
+    }
+
+    private RestorableLiveOrderSystem shardHolding(long orderId) throws OrderNotFoundException {
+        int shard = shardOf(orderId);
+        if (shard < 0) {
+            throw new OrderNotFoundException(orderId + " not found");
+        }
+        return shards[shard];
+    }
+
+    private <T> List<List<T>> emptyListPerShard() {
+        List<List<T>> lists = new ArrayList<>(shards.length);
+        for (int shard = 0; shard < shards.length; shard++) {
+            lists.add(new ArrayList<>());
+        }
+        return lists;
+    }
+
+    private List<OrdersSummary> shardSummaries(Function<RestorableLiveOrderSystem, OrdersSummary> summary) {
+        List<OrdersSummary> shardSummaries = new ArrayList<>(shards.length);
+        for (RestorableLiveOrderSystem shard : shards) {
+            shardSummaries.add(summary.apply(shard));
+        }
+        return shardSummaries;
+    }
+
+    private static long versionOf(List<OrdersSummary> shardSummaries) {
+        long version = 0;
+        for (OrdersSummary shardSummary : shardSummaries) {
+            version += shardSummary.getVersion();
+        }
+        return version;
+    }
+
+    /**
+     * k-way merge of the shards' levels, which are already in display order, adding together any price more than
+     * one shard has and stopping once maxLevels have been collected
+     */
+    private static OrdersSummary merge(PurchaseType purchaseType, List<OrdersSummary> shardSummaries, int maxLevels) {
+        Comparator<BigDecimal> priceOrder = OrdersSummary.priceOrder(purchaseType);
+        PriorityQueue<LevelCursor> cursors = new PriorityQueue<>(shardSummaries.size(),
+                (left, right) -> priceOrder.compare(left.price, right.price));
+        for (OrdersSummary shardSummary : shardSummaries) {
+            LevelCursor cursor = new LevelCursor(shardSummary.getAmountsInKgByPrice().entrySet().iterator());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+        OrdersSummary.Builder summary = OrdersSummary.builder(purchaseType).version(versionOf(shardSummaries));
+        int levels = 0;
+        while (!cursors.isEmpty() && levels < maxLevels) {
+            LevelCursor first = cursors.poll();
+            BigDecimal price = first.price;
+            BigDecimal totalInKg = first.amountInKg;
+            requeue(first, cursors);
+            while (!cursors.isEmpty() && cursors.peek().price.compareTo(price) == 0) {
+                LevelCursor same = cursors.poll();
+                totalInKg = totalInKg.add(same.amountInKg);
+                requeue(same, cursors);
+            }
+            summary.level(price, totalInKg);
+            levels++;
+        }
+        return summary.build();
+    }
+
+    private static void requeue(LevelCursor cursor, PriorityQueue<LevelCursor> cursors) {
+        if (cursor.advance()) {
+            cursors.add(cursor);
+        }
+    }
+
+    /**
+     * Shard listeners are only added while there is someone to pass changes on to, so an unwatched sharded system
+     * costs its writers nothing. Levels are seeded from the shards' summaries after listening starts, and only where
+     * no change has been heard yet, as a change is always at least as new as the summary.
+     */
+    private synchronized void listenToShards() {
+        subscribers++;
+        if (shardListening != null) {
+            return;
+        }
+        // each period of listening has its own totals, so a change still in flight from an earlier one cannot leak in
+        ShardListening listening = new ShardListening();
+        for (int shard = 0; shard < shards.length; shard++) {
+            int listeningShard = shard;
+            listening.subscriptions.add(shards[shard].subscribe(priceLevel -> onShardPriceLevelChanged(listening, listeningShard, priceLevel)));
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            for (PurchaseType purchaseType : PurchaseType.values()) {
+                for (Map.Entry<BigDecimal, BigDecimal> level : shards[shard].orderSummary(purchaseType).getAmountsInKgByPrice().entrySet()) {
+                    int seededShard = shard;
+                    listening.totalsByShard(purchaseType).compute(level.getKey().stripTrailingZeros(), (price, totals) -> {
+                        BigDecimal[] shardTotals = totals == null ? new BigDecimal[shards.length] : totals;
+                        if (shardTotals[seededShard] == null) {
+                            shardTotals[seededShard] = level.getValue();
+                        }
+                        return shardTotals;
+                    });
+                }
+            }
+        }
+        listening.seeded = true;
+        shardListening = listening;
+    }
+
+    private Subscription stopListeningOnCancel(Subscription subscription) {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        return () -> {
+            if (cancelled.compareAndSet(false, true)) {
+                subscription.cancel();
+                stopListeningToShards();
+            }
+        };
+    }
+
+    private synchronized void stopListeningToShards() {
+        if (--subscribers == 0) {
+            shardListening.subscriptions.forEach(Subscription::cancel);
+            shardListening = null;
+        }
+    }
+
+    private void onShardPriceLevelChanged(ShardListening listening, int shard, PriceLevel priceLevel) {
+        PurchaseType purchaseType = priceLevel.getPurchaseType();
+        // prices with different scales are the same level, so the key is normalised
+        listening.totalsByShard(purchaseType).compute(priceLevel.getPricePerKg().stripTrailingZeros(), (price, totals) -> {
+            BigDecimal[] shardTotals = totals == null ? new BigDecimal[shards.length] : totals;
+            shardTotals[shard] = priceLevel.getTotalInKg();
+            BigDecimal totalInKg = sum(shardTotals);
+            // published while the level is held so two shards changing the same price are seen in order
+            priceLevelPublisher.publish(purchaseType, priceLevel.getPricePerKg(), totalInKg);
+            // a level every shard has emptied is dropped here too, as it is in the shards, but only once seeding is
+            // done, until then it is kept (at zero) so that a summary read before it emptied cannot bring it back
+            return totalInKg.signum() == 0 && listening.seeded ? null : shardTotals;
+        });
+    }
+
+    private static BigDecimal sum(BigDecimal[] shardTotals) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal shardTotal : shardTotals) {
+            if (shardTotal != null) {
+                total = total.add(shardTotal);
+            }
+        }
+        return total;
+    }
+
+    private static final class ShardListening {
+        private final List<Subscription> subscriptions = new ArrayList<>();
+        private final Map<BigDecimal, BigDecimal[]> buyTotalsByShard = new ConcurrentHashMap<>();
+        private final Map<BigDecimal, BigDecimal[]> sellTotalsByShard = new ConcurrentHashMap<>();
+        private volatile boolean seeded;
+
+        private Map<BigDecimal, BigDecimal[]> totalsByShard(PurchaseType purchaseType) {
+            return PurchaseType.SELL.equals(purchaseType) ? sellTotalsByShard : buyTotalsByShard;
+        }
+    }
+
+    private static final class LevelCursor {
+        private final Iterator<Map.Entry<BigDecimal, BigDecimal>> levels;
+        private BigDecimal price;
+        private BigDecimal amountInKg;
+
+        private LevelCursor(Iterator<Map.Entry<BigDecimal, BigDecimal>> levels) {
+            this.levels = levels;
+        }
+
+        private boolean advance() {
+            if (!levels.hasNext()) {
+                return false;
+            }
+            Map.Entry<BigDecimal, BigDecimal> level = levels.next();
+            price = level.getKey();
+            amountInKg = level.getValue();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.fadams.silver.bars.summary;
+
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps only the latest change per level until the next flush, so a writer never waits on a slow consumer and
+ * a consumer never has more to catch up on than the number of levels that changed.
+ */
+class ConflatingPriceLevelListener implements PriceLevelListener {
+    // keyed with compareTo, like the book itself, so 306 and 306.0 are the same level
+    private final ConcurrentSkipListMap<BigDecimal, PriceLevel> pendingBuys = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<BigDecimal, PriceLevel> pendingSells = new ConcurrentSkipListMap<>();
+    private final PriceLevelListener delegate;
+
+    ConflatingPriceLevelListener(PriceLevelListener delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onPriceLevelChanged(PriceLevel priceLevel) {
+        pending(priceLevel.getPurchaseType()).put(priceLevel.getPricePerKg(), priceLevel);
+    }
+
+    void flush() {
+        flush(pendingBuys);
+        flush(pendingSells);
+    }
+
+    private void flush(ConcurrentSkipListMap<BigDecimal, PriceLevel> pending) {
+        Map.Entry<BigDecimal, PriceLevel> next;
+        while ((next = pending.pollFirstEntry()) != null) {
+            try {
+                delegate.onPriceLevelChanged(next.getValue());
+            } catch (RuntimeException e) {
+                // a failing listener must not stop the scheduled flushes, which would silently end the subscription
+            }
+        }
+    }
+
+    private ConcurrentSkipListMap<BigDecimal, PriceLevel> pending(PurchaseType purchaseType) {
+        return PurchaseType.SELL.equals(purchaseType) ? pendingSells : pendingBuys;
+    }
+}
@@ -0,0 +1,65 @@
+package com.fadams.silver.bars.summary;
+
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PriceLevelListener;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.Subscription;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fans price level changes out from a live order system to its subscribers.
+ * Direct listeners are called on the thread that changed the level, so they must be quick. Conflating listeners
+ * are called from a scheduler thread with only the latest total for each level changed since their last delivery.
+ */
+public class PriceLevelPublisher {
+    private final List<PriceLevelListener> listeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService conflationScheduler;
+
+    /**
+     * Lets writers skip building a {@link PriceLevel} when nobody is listening
+     */
+    public boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    public void publish(PurchaseType purchaseType, BigDecimal pricePerKg, BigDecimal totalInKg) {
+        PriceLevel priceLevel = new PriceLevel(purchaseType, pricePerKg, totalInKg);
+        for (PriceLevelListener listener : listeners) {
+            listener.onPriceLevelChanged(priceLevel);
+        }
+    }
+
+    public Subscription subscribe(PriceLevelListener listener) {
+        listeners.add(listener);
+        return () -> listeners.remove(listener);
+    }
+
+    public Subscription subscribe(PriceLevelListener listener, long conflationInterval, TimeUnit unit) {
+        ConflatingPriceLevelListener conflatingListener = new ConflatingPriceLevelListener(listener);
+        ScheduledFuture<?> flushes = conflationScheduler().scheduleAtFixedRate(conflatingListener::flush,
+                conflationInterval, conflationInterval, unit);
+        listeners.add(conflatingListener);
+        return () -> {
+            listeners.remove(conflatingListener);
+            flushes.cancel(false);
+        };
+    }
+
+    private synchronized ScheduledExecutorService conflationScheduler() {
+        if (conflationScheduler == null) {
+            conflationScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "price-level-conflation");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return conflationScheduler;
+    }
+}
@@ -0,0 +1,64 @@
+package com.fadams.silver.bars.summary;
+
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Caches the best level of one side of the board, for sides many threads change at once, so reading it is a
+ * volatile read rather than a lookup in the side. Writers call {@link #changed(BigDecimal)} after every change to a
+ * level, never before it. Only a change at or ahead of the cached best price throws the cache away, changes deeper
+ * in the side leave it alone.
+ */
+public class TopOfBookCache {
+    private final Comparator<BigDecimal> priceOrder;
+    private final AtomicReference<Top> top = new AtomicReference<>(new Top(null));
+
+    public TopOfBookCache(PurchaseType purchaseType) {
+        this.priceOrder = OrdersSummary.priceOrder(purchaseType);
+    }
+
+    public void changed(BigDecimal pricePerKg) {
+        while (true) {
+            Top current = top.get();
+            if (current.best != null && current.best.isPresent()
+                    && priceOrder.compare(pricePerKg, current.best.get().getPricePerKg()) > 0) {
+                return;
+            }
+            // always a new instance, even over a stale one, so a reader that looked up the old top cannot cache it
+            if (top.compareAndSet(current, new Top(null))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param lookup reads the best level from the live side, only called when the cache is stale
+     * @return the best level, no older than the side was when this was called
+     */
+    public Optional<PriceLevel> best(Supplier<Optional<PriceLevel>> lookup) {
+        Top current = top.get();
+        if (current.best != null) {
+            return current.best;
+        }
+        Optional<PriceLevel> best = lookup.get();
+        // fails if a writer touched the top during the lookup, the next reader looks it up again
+        top.compareAndSet(current, new Top(best));
+        return best;
+    }
+
+    private static final class Top {
+        // null while stale, empty when the side has no levels
+        private final Optional<PriceLevel> best;
+
+        private Top(Optional<PriceLevel> best) {
+            this.best = best;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.fadams.silver.bars.summary;
+
+import com.fadams.silver.bars.model.OrdersSummary;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Caches the last summary built for one side of the board against the side's version, so reading a side that
+ * has not changed costs a volatile read rather than a copy of every level.
+ * Writers call {@link #changed()} after every change to the side, never before it.
+ */
+public class VersionedSummaryCache {
+    private final AtomicLong version = new AtomicLong();
+    private volatile OrdersSummary cached;
+
+    public void changed() {
+        version.incrementAndGet();
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * @return the cached summary if the side has not changed since it was built, otherwise null
+     */
+    public OrdersSummary currentOrNull() {
+        OrdersSummary current = cached;
+        return current != null && current.getVersion() == version.get() ? current : null;
+    }
+
+    /**
+     * @param builder builds a summary from the live side, passed the version it should carry. The version is
+     *                read before building, so a summary that raced a writer carries an older version than the
+     *                levels in it and is simply rebuilt by the next reader.
+     * @return a shared summary no older than the side was when this was called
+     */
+    public OrdersSummary summary(LongFunction<OrdersSummary> builder) {
+        OrdersSummary current = currentOrNull();
+        if (current != null) {
+            return current;
+        }
+        // readers that find the cache stale together wait for one of them to build it rather than all copying
+        synchronized (this) {
+            current = currentOrNull();
+            if (current == null) {
+                current = builder.apply(version.get());
+                cached = current;
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.fadams.silver.bars;
+
+import com.fadams.silver.bars.model.CancelResult;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+@RunWith(Parameterized.class)
+public class LiveOrderSystemBatchTest {
+
+    @Rule
+    public final LiveOrderSystemCloser closer = new LiveOrderSystemCloser();
+
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation;
+
+    public LiveOrderSystemBatchTest(String name, Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation) {
+        this.implementation = closer.closing(implementation);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        return LiveOrderSystemImplementations.all();
+    }
+
+    @Test
+    public void itRegistersABatchWithContiguousIdsAndNetsTheSummary() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+
+        List<String> orderIds = liveOrderSystem.registerOrders(Arrays.asList(
+                orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306"), userId("user1")),
+                orderRequest(purchaseType(PurchaseType.SELL), quantity("1.2"), pricePerKilo("310"), userId("user1")),
+                orderRequest(purchaseType(PurchaseType.SELL), quantity("2.0"), pricePerKilo("306"), userId("user1"))
+        ));
+
+        // one user's batch, as a sharded board splits a batch over its users' shards
+        assertThat(orderIds.size(), is(equalTo(3)));
+        long firstOrderId = Long.parseLong(orderIds.get(0));
+        assertThat(orderIds.get(2), is(equalTo(String.valueOf(firstOrderId + 2))));
+        assertThat(liveOrderSystem.orderDetails(orderIds.get(1)).getOrderQuantity(), is(equalTo(new BigDecimal("1.2"))));
+
+        Map<BigDecimal, BigDecimal> amounts = liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice();
+        assertThat(amounts.get(new BigDecimal("306")), is(equalTo(new BigDecimal("5.5"))));
+        assertThat(amounts.get(new BigDecimal("310")), is(equalTo(new BigDecimal("1.2"))));
+    }
+
+    @Test
+    public void itRegistersNothingWhenAnyRequestInTheBatchIsInvalid() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+
+        try {
+            liveOrderSystem.registerOrders(Arrays.asList(
+                    orderRequest(purchaseType(PurchaseType.BUY), quantity("3.5"), pricePerKilo("306")),
+                    orderRequest(userId(null))
+            ));
+            fail("expected the batch to be rejected");
+        } catch (NullPointerException expected) {
+            assertThat(liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void itReportsEachCancellationSeparately() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        List<String> orderIds = liveOrderSystem.registerOrders(Arrays.asList(
+                orderRequest(purchaseType(PurchaseType.BUY), quantity("3.5"), pricePerKilo("306")),
+                orderRequest(purchaseType(PurchaseType.BUY), quantity("2.5"), pricePerKilo("306"))
+        ));
+
+        List<CancelResult> results = liveOrderSystem.cancelOrders(Arrays.asList(orderIds.get(0), "unknownOrder", orderIds.get(0)));
+
+        assertThat(results.get(0).getStatus(), is(equalTo(CancelResult.Status.CANCELLED)));
+        assertThat(results.get(0).getCancelledOrder().get().getOrderQuantity(), is(equalTo(new BigDecimal("3.5"))));
+        assertThat(results.get(1).getStatus(), is(equalTo(CancelResult.Status.NOT_FOUND)));
+        assertThat(results.get(1).getOrderId(), is(equalTo("unknownOrder")));
+        assertThat(results.get(2).getStatus(), is(equalTo(CancelResult.Status.NOT_FOUND)));
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("306")),
+                is(equalTo(new BigDecimal("2.5"))));
+    }
+}
@@ -0,0 +1,36 @@
+package com.fadams.silver.bars;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import org.junit.rules.ExternalResource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Closes every closeable system a test built once it has finished, so event loop writers do not pile up
+ */
+class LiveOrderSystemCloser extends ExternalResource {
+    private final List<AutoCloseable> closeables = new ArrayList<>();
+
+    Function<LiverOrderSystemBootstrapper, LiveOrderSystem> closing(Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation) {
+        return bootstrapper -> {
+            LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+            if (liveOrderSystem instanceof AutoCloseable) {
+                closeables.add((AutoCloseable) liveOrderSystem);
+            }
+            return liveOrderSystem;
+        };
+    }
+
+    @Override
+    protected void after() {
+        try {
+            for (AutoCloseable closeable : closeables) {
+                closeable.close();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.fadams.silver.bars;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(Parameterized.class)
+public class LiveOrderSystemConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 2_000;
+
+    @Rule
+    public final LiveOrderSystemCloser closer = new LiveOrderSystemCloser();
+
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation;
+
+    public LiveOrderSystemConcurrencyTest(String name, Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation) {
+        this.implementation = closer.closing(implementation);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        return LiveOrderSystemImplementations.all();
+    }
+
+    @Test
+    public void itKeepsAHotPriceLevelConsistentWhenManyThreadsRegisterAndCancel() throws Exception {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        String kept = liveOrderSystem.registerOrder(orderRequest(
+                                purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("306")));
+                        String cancelled = liveOrderSystem.registerOrder(orderRequest(
+                                purchaseType(PurchaseType.SELL), quantity("2.0"), pricePerKilo("306")));
+                        liveOrderSystem.cancelOrder(cancelled);
+                        liveOrderSystem.orderDetails(kept);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        BigDecimal total = liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice().get(new BigDecimal("306"));
+        assertThat(total.compareTo(new BigDecimal("1.5").multiply(BigDecimal.valueOf(THREADS * ORDERS_PER_THREAD))), is(equalTo(0)));
+    }
+
+    @Test
+    public void itNeitherLosesNorResurrectsAPriceLevelThatKeepsEmptying() throws Exception {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                        String cancelled = liveOrderSystem.registerOrder(orderRequest(
+                                purchaseType(PurchaseType.SELL), quantity("2.0"), pricePerKilo("307")));
+                        liveOrderSystem.cancelOrder(cancelled);
+                    }
+                    return liveOrderSystem.registerOrder(orderRequest(
+                            purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("306")));
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        Map<BigDecimal, BigDecimal> sells = liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice();
+        assertThat(sells.containsKey(new BigDecimal("307")), is(false));
+        assertThat(sells.get(new BigDecimal("306")).compareTo(new BigDecimal("1.5").multiply(BigDecimal.valueOf(THREADS))), is(equalTo(0)));
+        assertThat(liveOrderSystem.compactionReport().getLiveLevels(PurchaseType.SELL), is(equalTo((long) sells.size())));
+        assertThat(liveOrderSystem.bestPrice(PurchaseType.SELL).get().compareTo(new BigDecimal("306")), is(equalTo(0)));
+    }
+}
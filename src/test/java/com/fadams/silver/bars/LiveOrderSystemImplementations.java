@@ -0,0 +1,27 @@
+package com.fadams.silver.bars;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Every implementation the bootstrapper can build, so the behaviour tests run against all of them
+ */
+class LiveOrderSystemImplementations {
+
+    static Collection<Object[]> all() {
+        return Arrays.asList(
+                implementation("inMemory", LiverOrderSystemBootstrapper::bootstrap),
+                implementation("fixedPoint", LiverOrderSystemBootstrapper::bootstrapFixedPoint),
+                implementation("arena", LiverOrderSystemBootstrapper::bootstrapArena),
+                implementation("eventLoop", LiverOrderSystemBootstrapper::bootstrapEventLoop),
+                implementation("sharded", bootstrapper -> bootstrapper.bootstrapSharded(4))
+        );
+    }
+
+    private static Object[] implementation(String name, Function<LiverOrderSystemBootstrapper, LiveOrderSystem> bootstrap) {
+        return new Object[]{name, bootstrap};
+    }
+}
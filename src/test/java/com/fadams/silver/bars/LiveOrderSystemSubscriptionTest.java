@@ -0,0 +1,131 @@
+package com.fadams.silver.bars;
+
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.Subscription;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+@RunWith(Parameterized.class)
+public class LiveOrderSystemSubscriptionTest {
+
+    @Rule
+    public final LiveOrderSystemCloser closer = new LiveOrderSystemCloser();
+
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation;
+
+    public LiveOrderSystemSubscriptionTest(String name, Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation) {
+        this.implementation = closer.closing(implementation);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        return LiveOrderSystemImplementations.all();
+    }
+
+    @Test
+    public void itPublishesEveryPriceLevelChangeToADirectListener() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        List<PriceLevel> changes = new CopyOnWriteArrayList<>();
+        Subscription subscription = liveOrderSystem.subscribe(changes::add);
+
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+        String orderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("2.5"), pricePerKilo("306")));
+        liveOrderSystem.cancelOrder(orderId);
+
+        assertThat(changes.size(), is(equalTo(3)));
+        assertThat(changes.get(1).getPurchaseType(), is(equalTo(PurchaseType.SELL)));
+        assertThat(changes.get(1).getPricePerKg().compareTo(new BigDecimal("306")), is(equalTo(0)));
+        assertThat(changes.get(1).getTotalInKg().compareTo(new BigDecimal("6")), is(equalTo(0)));
+        assertThat(changes.get(2).getTotalInKg().compareTo(new BigDecimal("3.5")), is(equalTo(0)));
+
+        subscription.cancel();
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY)));
+        assertThat(changes.size(), is(equalTo(3)));
+    }
+
+    @Test
+    public void itPublishesEachLevelABatchChangesOnce() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        List<OrderRequest> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(orderRequest(quantity("1.5"), pricePerKilo(i % 2 == 0 ? "306" : "310")));
+        }
+        List<PriceLevel> changes = new CopyOnWriteArrayList<>();
+        liveOrderSystem.subscribe(changes::add);
+
+        List<String> orderIds = liveOrderSystem.registerOrders(batch);
+        liveOrderSystem.cancelOrders(orderIds.subList(0, 10));
+
+        assertThat(changes.size(), is(equalTo(4)));
+        BigDecimal total = liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("306"));
+        assertThat(total.compareTo(new BigDecimal("67.5")), is(equalTo(0)));
+    }
+
+    @Test
+    public void itPublishesTheTotalsOfALevelChangedFromManyThreadsInOrder() throws InterruptedException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        AtomicReference<PriceLevel> latest = new AtomicReference<>();
+        liveOrderSystem.subscribe(latest::set);
+        List<Thread> writers = new ArrayList<>();
+        for (int writer = 0; writer < 4; writer++) {
+            writers.add(new Thread(() -> {
+                for (int i = 0; i < 2_000; i++) {
+                    String orderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo("306")));
+                    if (i % 2 == 0) {
+                        liveOrderSystem.tryCancel(orderId);
+                    }
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        BigDecimal total = liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("306"));
+        assertThat(latest.get().getTotalInKg().compareTo(total), is(equalTo(0)));
+    }
+
+    @Test
+    public void itOnlyDeliversTheLatestTotalOfALevelToAConflatingListener() throws InterruptedException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        BlockingQueue<PriceLevel> changes = new LinkedBlockingQueue<>();
+        Subscription subscription = liveOrderSystem.subscribe(changes::add, 200, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo("306")));
+        }
+
+        PriceLevel delivered = changes.poll(5, TimeUnit.SECONDS);
+        assertThat(delivered.getTotalInKg().compareTo(new BigDecimal("15")), is(equalTo(0)));
+        assertThat(changes.poll(300, TimeUnit.MILLISECONDS), is(nullValue()));
+        subscription.cancel();
+    }
+}
@@ -1,17 +1,24 @@
 package com.fadams.silver.bars;
 
+import com.fadams.silver.bars.model.CompactionReport;
 import com.fadams.silver.bars.model.LiveOrderSystem;
 import com.fadams.silver.bars.model.OrderDetails;
 import com.fadams.silver.bars.model.OrderNotFoundException;
 import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
 import com.fadams.silver.bars.model.PurchaseType;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 
 import static com.fadams.silver.bars.model.OrderRequestMaker.orderQuantity;
 import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
@@ -23,18 +30,34 @@ import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+@RunWith(Parameterized.class)
 public class LiveOrderSystemTest {
     // would use assertThrows using junit 5
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public final LiveOrderSystemCloser closer = new LiveOrderSystemCloser();
+
     private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation;
+
+    public LiveOrderSystemTest(String name, Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation) {
+        this.implementation = closer.closing(implementation);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        return LiveOrderSystemImplementations.all();
+    }
 
     @Test
     public void itCanRegisterAndRetrieveAnOrder() throws OrderNotFoundException {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
         String inputUserId = "user1";
         BigDecimal inputOrderQuantity = new BigDecimal("3.5");
         BigDecimal inputPricePerKg = new BigDecimal("306");
@@ -54,9 +77,19 @@ public class LiveOrderSystemTest {
 
     }
 
+    @Test
+    public void itCanRetrieveAnOrderByItsNumericId() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        long orderId = liveOrderSystem.registerOrderId(orderRequest(userId("user1")));
+
+        OrderDetails order = liveOrderSystem.orderDetails(orderId);
+        assertThat(order.getOrderId(), is(equalTo(String.valueOf(orderId))));
+        assertThat(liveOrderSystem.orderDetails(String.valueOf(orderId)).getUserId(), is(equalTo("user1")));
+    }
+
     @Test
     public void itThrowsANotFoundExceptionWhenRetrievingAnUnknownOrder() throws OrderNotFoundException {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         String orderId = "unknownOrder";
         thrown.expect(OrderNotFoundException.class);
@@ -67,7 +100,7 @@ public class LiveOrderSystemTest {
 
     @Test
     public void itCanCancelARegisteredOrder() throws OrderNotFoundException {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
         String inputUserId = "user1";
         BigDecimal inputOrderQuantity = new BigDecimal("3.5");
         BigDecimal inputPricePerKg = new BigDecimal("306");
@@ -93,7 +126,7 @@ public class LiveOrderSystemTest {
 
     @Test
     public void itThrowsANotFoundExceptionWhenCancellingAnUnknownOrder() throws OrderNotFoundException {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         String orderId = "unknownOrder";
         thrown.expect(OrderNotFoundException.class);
@@ -104,7 +137,7 @@ public class LiveOrderSystemTest {
 
     @Test
     public void itShowsASummaryOfAllSellOrdersInLowestPriceFirst() {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         liveOrderSystem.registerOrder(orderRequest(
                 purchaseType(PurchaseType.SELL),
@@ -141,7 +174,7 @@ public class LiveOrderSystemTest {
 
     @Test
     public void itShowsASummaryOfAllBuyOrdersInHighestPriceFirst() {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         liveOrderSystem.registerOrder(orderRequest(
                 purchaseType(PurchaseType.BUY),
@@ -178,7 +211,7 @@ public class LiveOrderSystemTest {
 
     @Test
     public void itDeductsCancelledBuyOrdersFromTheBuySummary() throws OrderNotFoundException {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         liveOrderSystem.registerOrder(orderRequest(
                 purchaseType(PurchaseType.BUY),
@@ -228,7 +261,7 @@ public class LiveOrderSystemTest {
 
     @Test
     public void itDeductsCancelledSellOrdersFromTheSellSummary() throws OrderNotFoundException {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         liveOrderSystem.registerOrder(orderRequest(
                 purchaseType(PurchaseType.SELL),
@@ -276,4 +309,214 @@ public class LiveOrderSystemTest {
         assertThat(newAmounts.next().getValue(), is(equalTo(new BigDecimal("1.2"))));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void itSharesOneSummaryUntilTheSideChanges() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+
+        OrdersSummary summary = liveOrderSystem.orderSummary(PurchaseType.SELL);
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.SELL), is(sameInstance(summary)));
+
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo("306")));
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.SELL), is(sameInstance(summary)));
+
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("307")));
+        OrdersSummary newSummary = liveOrderSystem.orderSummary(PurchaseType.SELL);
+        assertThat(newSummary, is(not(sameInstance(summary))));
+        assertThat(newSummary.getVersion() > summary.getVersion(), is(true));
+        assertThat(summary.getAmountsInKgByPrice().size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void itDoesNotAllowASummaryToBeModified() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+
+        thrown.expect(UnsupportedOperationException.class);
+
+        liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice().clear();
+    }
+
+    @Test
+    public void itShowsOnlyTheBestLevelsUpToTheRequestedDepth() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        for (String price : new String[]{"306", "310", "307", "301"}) {
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo(price)));
+        }
+
+        Map<BigDecimal, BigDecimal> amountsInKgByPrice = liveOrderSystem.orderSummary(PurchaseType.BUY, 2).getAmountsInKgByPrice();
+
+        assertThat(amountsInKgByPrice.size(), is(equalTo(2)));
+        Iterator<BigDecimal> prices = amountsInKgByPrice.keySet().iterator();
+        assertThat(prices.next().compareTo(new BigDecimal("310")), is(equalTo(0)));
+        assertThat(prices.next().compareTo(new BigDecimal("307")), is(equalTo(0)));
+    }
+
+    @Test
+    public void itShowsOnlyTheLevelsWithinAPriceBand() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        for (String price : new String[]{"306", "310", "307", "301"}) {
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo(price)));
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo(price)));
+        }
+
+        Map<BigDecimal, BigDecimal> sells = liveOrderSystem.orderSummary(PurchaseType.SELL, new BigDecimal("306"), new BigDecimal("309.5")).getAmountsInKgByPrice();
+        Map<BigDecimal, BigDecimal> buys = liveOrderSystem.orderSummary(PurchaseType.BUY, new BigDecimal("310"), new BigDecimal("306.5")).getAmountsInKgByPrice();
+
+        Iterator<BigDecimal> sellPrices = sells.keySet().iterator();
+        assertThat(sells.size(), is(equalTo(2)));
+        assertThat(sellPrices.next().compareTo(new BigDecimal("306")), is(equalTo(0)));
+        assertThat(sellPrices.next().compareTo(new BigDecimal("307")), is(equalTo(0)));
+        Iterator<BigDecimal> buyPrices = buys.keySet().iterator();
+        assertThat(buys.size(), is(equalTo(2)));
+        assertThat(buyPrices.next().compareTo(new BigDecimal("310")), is(equalTo(0)));
+        assertThat(buyPrices.next().compareTo(new BigDecimal("307")), is(equalTo(0)));
+    }
+
+    @Test
+    public void itBucketsLevelsIntoBandsOfATickSize() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        for (String price : new String[]{"306", "310", "309.5", "301"}) {
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo(price)));
+        }
+
+        Map<BigDecimal, BigDecimal> buys = liveOrderSystem.orderSummary(PurchaseType.BUY, new BigDecimal("5")).getAmountsInKgByPrice();
+
+        Iterator<Map.Entry<BigDecimal, BigDecimal>> bands = buys.entrySet().iterator();
+        assertThat(buys.size(), is(equalTo(3)));
+        assertBand(bands.next(), "310", "1.5");
+        assertBand(bands.next(), "305", "3");
+        assertBand(bands.next(), "300", "1.5");
+    }
+
+    @Test
+    public void itCountsLiveOrders() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        String cancelledOrderId = liveOrderSystem.registerOrder(orderRequest());
+        liveOrderSystem.registerOrder(orderRequest());
+        liveOrderSystem.cancelOrder(cancelledOrderId);
+
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void itListsOnlyTheLiveOrdersOfAUser() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        String firstOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user1"), pricePerKilo("306")));
+        String cancelledOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user1"), pricePerKilo("307")));
+        liveOrderSystem.registerOrder(orderRequest(userId("user2"), pricePerKilo("306")));
+        liveOrderSystem.cancelOrder(cancelledOrderId);
+
+        List<OrderDetails> userOrders = liveOrderSystem.ordersForUser("user1");
+
+        assertThat(userOrders.size(), is(equalTo(1)));
+        assertThat(userOrders.get(0).getOrderId(), is(equalTo(firstOrderId)));
+        assertThat(liveOrderSystem.ordersForUser("unknownUser").isEmpty(), is(true));
+    }
+
+    @Test
+    public void itCancelsAllOfAUsersOrdersAndOnlyThose() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        liveOrderSystem.registerOrder(orderRequest(userId("user1"), purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(userId("user1"), purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(userId("user1"), purchaseType(PurchaseType.BUY), quantity("1.2"), pricePerKilo("300")));
+        liveOrderSystem.registerOrder(orderRequest(userId("user2"), purchaseType(PurchaseType.SELL), quantity("2.5"), pricePerKilo("306")));
+
+        List<OrderDetails> cancelled = liveOrderSystem.cancelAllForUser("user1");
+
+        assertThat(cancelled.size(), is(equalTo(3)));
+        assertThat(liveOrderSystem.ordersForUser("user1").isEmpty(), is(true));
+        assertThat(liveOrderSystem.ordersForUser("user2").size(), is(equalTo(1)));
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice().get(new BigDecimal("306")),
+                is(equalTo(new BigDecimal("2.5"))));
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(1L)));
+        assertThat(liveOrderSystem.cancelAllForUser("user1").isEmpty(), is(true));
+    }
+
+    @Test
+    public void itRemovesAPriceLevelOnceItsLastOrderIsCancelled() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        String firstOrderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+        String secondOrderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("2.5"), pricePerKilo("307")));
+
+        liveOrderSystem.cancelOrder(firstOrderId);
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice().size(), is(equalTo(2)));
+
+        liveOrderSystem.cancelOrder(secondOrderId);
+        Map<BigDecimal, BigDecimal> sells = liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice();
+        assertThat(sells.size(), is(equalTo(1)));
+        assertThat(sells.containsKey(new BigDecimal("306")), is(false));
+    }
+
+    @Test
+    public void itReportsLiveAndRemovedPriceLevels() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        String cancelledOrderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), pricePerKilo("307")));
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), pricePerKilo("300")));
+        liveOrderSystem.cancelOrder(cancelledOrderId);
+
+        CompactionReport report = liveOrderSystem.compactionReport();
+
+        assertThat(report.getLiveLevels(PurchaseType.SELL), is(equalTo(1L)));
+        assertThat(report.getRemovedLevels(PurchaseType.SELL), is(equalTo(1L)));
+        assertThat(report.getLiveLevels(PurchaseType.BUY), is(equalTo(1L)));
+        assertThat(report.getRemovedLevels(PurchaseType.BUY), is(equalTo(0L)));
+    }
+
+    @Test
+    public void itServesTheBestLevelOfEachSideAndTheSpread() throws OrderNotFoundException {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        assertThat(liveOrderSystem.bestLevel(PurchaseType.SELL).isPresent(), is(false));
+        assertThat(liveOrderSystem.spread().isPresent(), is(false));
+
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1.5"), pricePerKilo("300")));
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("2.5"), pricePerKilo("305")));
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.2"), pricePerKilo("310")));
+        String firstBestSellId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("308")));
+        String secondBestSellId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("308")));
+
+        PriceLevel bestBuy = liveOrderSystem.bestLevel(PurchaseType.BUY).get();
+        assertThat(bestBuy.getPricePerKg().compareTo(new BigDecimal("305")), is(equalTo(0)));
+        assertThat(bestBuy.getTotalInKg().compareTo(new BigDecimal("2.5")), is(equalTo(0)));
+        assertThat(liveOrderSystem.bestLevel(PurchaseType.SELL).get().getTotalInKg().compareTo(new BigDecimal("5")), is(equalTo(0)));
+        assertThat(liveOrderSystem.bestPrice(PurchaseType.SELL).get().compareTo(new BigDecimal("308")), is(equalTo(0)));
+        assertThat(liveOrderSystem.spread().get().compareTo(new BigDecimal("3")), is(equalTo(0)));
+
+        liveOrderSystem.cancelOrder(firstBestSellId);
+        liveOrderSystem.cancelOrder(secondBestSellId);
+
+        assertThat(liveOrderSystem.bestPrice(PurchaseType.SELL).get().compareTo(new BigDecimal("310")), is(equalTo(0)));
+        assertThat(liveOrderSystem.spread().get().compareTo(new BigDecimal("5")), is(equalTo(0)));
+    }
+
+    @Test
+    public void itFindsAnOrderWithoutThrowingWhenItIsMissing() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        String orderId = liveOrderSystem.registerOrder(orderRequest(userId("user1")));
+
+        assertThat(liveOrderSystem.findOrder(orderId).get().getUserId(), is(equalTo("user1")));
+        assertThat(liveOrderSystem.findOrder("unknownOrder").isPresent(), is(false));
+        assertThat(liveOrderSystem.findOrder(Long.parseLong(orderId) + 1).isPresent(), is(false));
+    }
+
+    @Test
+    public void itCancelsWithoutThrowingWhenTheOrderIsAlreadyGone() {
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
+        String orderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("306")));
+
+        assertThat(liveOrderSystem.tryCancel(orderId).get().getOrderId(), is(equalTo(orderId)));
+        assertThat(liveOrderSystem.tryCancel(orderId).isPresent(), is(false));
+        assertThat(liveOrderSystem.tryCancel("unknownOrder").isPresent(), is(false));
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice().get(new BigDecimal("306")).compareTo(new BigDecimal("1.5")),
+                is(equalTo(0)));
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(1L)));
+    }
+
+    private static void assertBand(Map.Entry<BigDecimal, BigDecimal> band, String lowestPrice, String amountInKg) {
+        assertThat(band.getKey().compareTo(new BigDecimal(lowestPrice)), is(equalTo(0)));
+        assertThat(band.getValue().compareTo(new BigDecimal(amountInKg)), is(equalTo(0)));
+    }
+}
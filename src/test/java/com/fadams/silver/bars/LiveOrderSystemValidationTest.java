@@ -4,6 +4,11 @@ import com.fadams.silver.bars.model.LiveOrderSystem;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Collection;
+import java.util.function.Function;
 
 import static com.fadams.silver.bars.model.OrderRequestMaker.orderQuantity;
 import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
@@ -12,16 +17,30 @@ import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
 import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
 import static org.hamcrest.CoreMatchers.containsString;
 
+@RunWith(Parameterized.class)
 public class LiveOrderSystemValidationTest {
     // would use assertThrows using junit 5
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public final LiveOrderSystemCloser closer = new LiveOrderSystemCloser();
+
     private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation;
+
+    public LiveOrderSystemValidationTest(String name, Function<LiverOrderSystemBootstrapper, LiveOrderSystem> implementation) {
+        this.implementation = closer.closing(implementation);
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> implementations() {
+        return LiveOrderSystemImplementations.all();
+    }
 
     @Test
     public void itThrowsAValidationExceptionWhenRequestHasNoUser() {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         thrown.expect(NullPointerException.class);
         thrown.expectMessage(containsString("userId"));
@@ -31,7 +50,7 @@ public class LiveOrderSystemValidationTest {
 
     @Test
     public void itThrowsAValidationExceptionWhenRequestHasNoOrderQuantity() {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         thrown.expect(NullPointerException.class);
         thrown.expectMessage(containsString("orderQuantity"));
@@ -41,7 +60,7 @@ public class LiveOrderSystemValidationTest {
 
     @Test
     public void itThrowsAValidationExceptionWhenRequestHasNoPricePerKg() {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         thrown.expect(NullPointerException.class);
         thrown.expectMessage(containsString("pricePerKg"));
@@ -51,7 +70,7 @@ public class LiveOrderSystemValidationTest {
 
     @Test
     public void itThrowsAValidationExceptionWhenRequestHasNoPurchaseType() {
-        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        LiveOrderSystem liveOrderSystem = implementation.apply(bootstrapper);
 
         thrown.expect(NullPointerException.class);
         thrown.expectMessage(containsString("purchaseType"));
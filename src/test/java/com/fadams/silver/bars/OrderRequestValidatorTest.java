@@ -0,0 +1,26 @@
+package com.fadams.silver.bars;
+
+import org.junit.Test;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderQuantity;
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKg;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class OrderRequestValidatorTest {
+    private final OrderRequestValidator validator = new OrderRequestValidator();
+
+    @Test
+    public void itReportsTheFirstMissingFieldWithoutThrowing() {
+        assertThat(validator.check(orderRequest()), is(equalTo(ValidationResult.VALID)));
+        assertThat(validator.check(orderRequest(userId(null))), is(equalTo(ValidationResult.MISSING_USER_ID)));
+        assertThat(validator.check(orderRequest(orderQuantity(null))), is(equalTo(ValidationResult.MISSING_ORDER_QUANTITY)));
+        assertThat(validator.check(orderRequest(pricePerKg(null))), is(equalTo(ValidationResult.MISSING_PRICE_PER_KG)));
+        assertThat(validator.check(orderRequest(purchaseType(null))), is(equalTo(ValidationResult.MISSING_PURCHASE_TYPE)));
+        assertThat(validator.check(orderRequest(userId(null), purchaseType(null))), is(equalTo(ValidationResult.MISSING_USER_ID)));
+    }
+}
@@ -0,0 +1,79 @@
+package com.fadams.silver.bars;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class StripedOrderNumberSequenceTest {
+
+    @Test
+    public void itHandsOutContiguousNumbersFromAThreadsBlock() {
+        OrderNumberSequence sequence = new StripedOrderNumberSequence(1L << 40, 8);
+
+        assertThat(sequence.next(), is(equalTo((1L << 40))));
+        assertThat(sequence.reserve(3), is(equalTo((1L << 40) + 1)));
+        assertThat(sequence.next(), is(equalTo((1L << 40) + 4)));
+        // too many for what is left of the block, so it starts a new one
+        assertThat(sequence.reserve(5), is(equalTo((1L << 40) + 8)));
+        // a block or more comes straight from the shared counter
+        assertThat(sequence.reserve(20), is(equalTo((1L << 40) + 16)));
+    }
+
+    @Test
+    public void itNeverHandsOutARestoredNumber() {
+        OrderNumberSequence sequence = new StripedOrderNumberSequence(0, 8);
+        assertThat(sequence.next(), is(equalTo(0L)));
+
+        sequence.advancePast(5);
+
+        assertThat(sequence.next(), is(equalTo(6L)));
+        assertThat(sequence.next(), is(equalTo(7L)));
+    }
+
+    @Test
+    public void itHandsOutUniqueNumbersAcrossThreads() throws InterruptedException {
+        OrderNumberSequence sequence = new StripedOrderNumberSequence(0, 16);
+        int threadCount = 8;
+        int perThread = 10_000;
+        List<List<Long>> numbers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threadCount; t++) {
+            List<Long> threadNumbers = new ArrayList<>(perThread);
+            numbers.add(threadNumbers);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < perThread; i++) {
+                    threadNumbers.add(i % 10 == 0 ? sequence.reserve(3) : sequence.next());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Set<Long> unique = new HashSet<>();
+        for (List<Long> threadNumbers : numbers) {
+            for (int i = 0; i < threadNumbers.size(); i++) {
+                long first = threadNumbers.get(i);
+                for (long number = first; number < first + (i % 10 == 0 ? 3 : 1); number++) {
+                    assertThat("number " + number + " handed out twice", unique.add(number), is(true));
+                }
+            }
+        }
+    }
+}
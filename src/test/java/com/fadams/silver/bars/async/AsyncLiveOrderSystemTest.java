@@ -0,0 +1,76 @@
+package com.fadams.silver.bars.async;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncLiveOrderSystemTest {
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+
+    @Test
+    public void itAnswersEveryCallThroughAFuture() throws Exception {
+        AsyncLiveOrderSystem async = bootstrapper.async(liveOrderSystem, 4, 16);
+
+        String orderId = async.registerOrder(orderRequest(pricePerKilo("300"), purchaseType(PurchaseType.SELL))).get();
+
+        assertThat(async.orderDetails(orderId).get().getOrderId(), is(equalTo(orderId)));
+        assertThat(async.orderSummary(PurchaseType.SELL).get().getAmountsInKgByPrice().containsKey(new BigDecimal("300")), is(true));
+        assertThat(async.cancelOrder(orderId).get().getOrderId(), is(equalTo(orderId)));
+        assertThat(async.tryCancel(orderId).get().isPresent(), is(false));
+        try {
+            async.orderDetails(orderId).get();
+            fail("expected the cancelled order to be missing");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(OrderNotFoundException.class)));
+        }
+    }
+
+    @Test
+    public void itQueuesABurstBeyondItsLimitAndRejectsBeyondItsQueue() throws Exception {
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        AsyncLiveOrderSystem async = new AsyncLiveOrderSystem(liveOrderSystem, tasks::add, 1, 1);
+
+        CompletableFuture<String> first = async.registerOrder(orderRequest());
+        CompletableFuture<String> second = async.registerOrder(orderRequest());
+        CompletableFuture<String> third = async.registerOrder(orderRequest());
+
+        assertThat(tasks.size(), is(equalTo(1)));
+        assertThat(async.pending(), is(equalTo(2)));
+        try {
+            third.join();
+            fail("expected the call beyond the queue to be rejected");
+        } catch (Exception e) {
+            assertThat(e.getCause(), is(instanceOf(RejectedExecutionException.class)));
+        }
+
+        tasks.poll().run();
+        assertThat(first.isDone(), is(true));
+        assertThat(second.isDone(), is(false));
+        assertThat(tasks.size(), is(equalTo(1)));
+
+        tasks.poll().run();
+        OrderDetails secondOrder = liveOrderSystem.findOrder(second.get()).get();
+        assertThat(secondOrder.getOrderId(), is(equalTo(second.get())));
+        assertThat(async.pending(), is(equalTo(0)));
+    }
+}
@@ -0,0 +1,124 @@
+package com.fadams.silver.bars.bulk;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.codec.OrderRequestFlyweight;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OrderFileReaderTest {
+    private static final String ORDERS_CSV = "userId,purchaseType,orderQuantity,pricePerKg\r\n"
+            + "user1,BUY,1.5,300\r\n"
+            + "user2,BUY,2,300.00\r\n"
+            + "\r\n"
+            + "user1,SELL,0.25,310.5\r\n"
+            + "user3,BUY,1,299";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void itLoadsACsvFileIntoAReadySystem() throws IOException {
+        Path file = write(ORDERS_CSV.getBytes(StandardCharsets.US_ASCII));
+
+        LiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapFixedPoint(OrderFileReader.readCsv(file));
+
+        assertLoaded(liveOrderSystem);
+    }
+
+    @Test
+    public void itGivesTheSameResultWhateverTheWindowSize() throws IOException {
+        Path file = write(ORDERS_CSV.getBytes(StandardCharsets.US_ASCII));
+
+        for (long windowBytes : new long[]{48, 53, 64}) {
+            assertLoaded(new LiverOrderSystemBootstrapper().bootstrapFixedPoint(OrderFileReader.readCsv(file, windowBytes)));
+        }
+    }
+
+    @Test
+    public void itLoadsABinaryFileOfOrderRequestRecords() throws IOException {
+        List<OrderRequest> orderRequests = Arrays.asList(
+                new OrderRequest("user1", new BigDecimal("1.5"), new BigDecimal("300"), PurchaseType.BUY),
+                new OrderRequest("user2", new BigDecimal("2"), new BigDecimal("300.00"), PurchaseType.BUY),
+                new OrderRequest("user1", new BigDecimal("0.25"), new BigDecimal("310.5"), PurchaseType.SELL),
+                new OrderRequest("user3", new BigDecimal("1"), new BigDecimal("299"), PurchaseType.BUY));
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        OrderRequestFlyweight flyweight = new OrderRequestFlyweight();
+        int length = 0;
+        for (OrderRequest orderRequest : orderRequests) {
+            length += flyweight.wrap(buffer, length).encode(orderRequest);
+        }
+        Path file = write(Arrays.copyOf(buffer.array(), length));
+
+        assertLoaded(new LiverOrderSystemBootstrapper().bootstrapFixedPoint(OrderFileReader.readBinary(file, 40)));
+    }
+
+    @Test
+    public void itRejectsATruncatedBinaryFile() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        int length = new OrderRequestFlyweight().wrap(buffer, 0)
+                .encode(new OrderRequest("user1", BigDecimal.ONE, BigDecimal.TEN, PurchaseType.BUY));
+        Path file = write(Arrays.copyOf(buffer.array(), length - 1));
+
+        try {
+            OrderFileReader.readBinary(file);
+            fail("expected the truncated record to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("record 1: truncated record"));
+        }
+    }
+
+    @Test
+    public void itNamesTheLineOfAnInvalidOrder() throws IOException {
+        Path file = write("user1,BUY,1,300\nuser2,BUY,1.5x,300\n".getBytes(StandardCharsets.US_ASCII));
+
+        try {
+            OrderFileReader.readCsv(file);
+            fail("expected the bad quantity to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("record 2: orderQuantity is not a decimal number"));
+        }
+    }
+
+    private void assertLoaded(LiveOrderSystem liveOrderSystem) {
+        OrdersSummary buys = liveOrderSystem.orderSummary(PurchaseType.BUY);
+        assertThat(buys.getAmountsInKgByPrice().keySet().toString(), is(equalTo("[300, 299]")));
+        assertThat(buys.getAmountsInKgByPrice().get(new BigDecimal("300")).compareTo(new BigDecimal("3.5")), is(equalTo(0)));
+        OrdersSummary sells = liveOrderSystem.orderSummary(PurchaseType.SELL);
+        assertThat(sells.getAmountsInKgByPrice().get(new BigDecimal("310.5")).compareTo(new BigDecimal("0.25")), is(equalTo(0)));
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(4L)));
+
+        List<OrderDetails> user1Orders = liveOrderSystem.ordersForUser("user1");
+        assertThat(user1Orders.size(), is(equalTo(2)));
+        String orderId = user1Orders.get(0).getOrderId();
+        assertThat(liveOrderSystem.findOrder(orderId).get().getUserId(), is(equalTo("user1")));
+        assertThat(liveOrderSystem.tryCancel(orderId).isPresent(), is(true));
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(3L)));
+    }
+
+    private Path write(byte[] content) throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        Files.write(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,108 @@
+package com.fadams.silver.bars.codec;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.fixedpoint.ArenaLiveOrderSystem;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderIds;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class BinaryOrderGatewayTest {
+    private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+    @Test
+    public void itRoundTripsAnOrderRequestExactly() {
+        OrderRequest original = new OrderRequest("user\u00e9", new BigDecimal("3.50"), new BigDecimal("306.125"), PurchaseType.SELL);
+
+        int length = new OrderRequestFlyweight().wrap(buffer, 7).encode(original);
+        OrderRequestFlyweight decoded = new OrderRequestFlyweight().wrap(buffer, 7);
+
+        assertThat(decoded.encodedLength(), is(equalTo(length)));
+        assertThat(decoded.orderQuantityMantissa(), is(equalTo(350L)));
+        assertThat(decoded.orderQuantityScale(), is(equalTo(2)));
+        OrderRequest copy = decoded.toOrderRequest();
+        assertThat(copy.getUserId(), is(equalTo("user\u00e9")));
+        assertThat(copy.getOrderQuantity(), is(equalTo(new BigDecimal("3.50"))));
+        assertThat(copy.getPricePerKg(), is(equalTo(new BigDecimal("306.125"))));
+        assertThat(copy.getPurchaseType(), is(equalTo(PurchaseType.SELL)));
+    }
+
+    @Test
+    public void itRegistersAnOrderStraightFromABufferAndWritesItBack() {
+        LiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrap();
+        BinaryOrderGateway gateway = new BinaryOrderGateway(liveOrderSystem);
+        new OrderRequestFlyweight().wrap(buffer, 0)
+                .purchaseType(PurchaseType.BUY)
+                .orderQuantity(12, 1)
+                .pricePerKg(300, 0)
+                .userId("user1");
+
+        long orderId = gateway.registerOrder(buffer, 0);
+
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("300")),
+                is(equalTo(new BigDecimal("1.2"))));
+        int length = gateway.encodeOrderDetails(orderId, buffer, 100);
+        OrderDetailsFlyweight orderDetails = new OrderDetailsFlyweight().wrap(buffer, 100);
+        assertThat(orderDetails.encodedLength(), is(equalTo(length)));
+        assertThat(orderDetails.orderId(), is(equalTo(orderId)));
+        OrderDetails copy = orderDetails.toOrderDetails();
+        assertThat(copy.getUserId(), is(equalTo("user1")));
+        assertThat(copy.getPricePerKg(), is(equalTo(new BigDecimal("300"))));
+        assertThat(gateway.encodeOrderDetails(orderId + 1, buffer, 100), is(equalTo(0)));
+    }
+
+    @Test
+    public void itRegistersOnAFixedPointBoardInPenceAndGramsKeepingTheScalesGiven() throws Exception {
+        ArenaLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapArena();
+        liveOrderSystem.registerOrder(new OrderRequest("user\u00e9", new BigDecimal("1"), new BigDecimal("300"), PurchaseType.BUY));
+        BinaryOrderGateway gateway = new BinaryOrderGateway(liveOrderSystem);
+        OrderRequestFlyweight request = new OrderRequestFlyweight().wrap(buffer, 0)
+                .purchaseType(PurchaseType.BUY)
+                .orderQuantity(1250, 3)
+                .pricePerKg(300, 0);
+        request.userId("user\u00e9");
+
+        long first = gateway.registerOrder(buffer, 0);
+        request.pricePerKg(30150, 2).userId("user2");
+        long second = gateway.registerOrder(buffer, 0);
+
+        OrderDetails firstDetails = liveOrderSystem.orderDetails(OrderIds.format(first));
+        assertThat(firstDetails.getUserId(), is(equalTo("user\u00e9")));
+        assertThat(firstDetails.getOrderQuantity(), is(equalTo(new BigDecimal("1.250"))));
+        assertThat(firstDetails.getPricePerKg(), is(equalTo(new BigDecimal("300"))));
+        assertThat(liveOrderSystem.orderDetails(OrderIds.format(second)).getPricePerKg(), is(equalTo(new BigDecimal("301.50"))));
+        assertThat(liveOrderSystem.ordersForUser("user\u00e9").size(), is(equalTo(2)));
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("300")),
+                is(equalTo(new BigDecimal("2.25"))));
+    }
+
+    @Test
+    public void itWritesASummaryAsFixedSizeLevelsInDisplayOrder() {
+        LiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrap();
+        liveOrderSystem.registerOrder(new OrderRequest("user1", new BigDecimal("1.5"), new BigDecimal("310"), PurchaseType.SELL));
+        liveOrderSystem.registerOrder(new OrderRequest("user2", new BigDecimal("2.5"), new BigDecimal("306"), PurchaseType.SELL));
+        liveOrderSystem.registerOrder(new OrderRequest("user3", new BigDecimal("1"), new BigDecimal("306"), PurchaseType.SELL));
+
+        int length = new BinaryOrderGateway(liveOrderSystem).encodeOrderSummary(PurchaseType.SELL, 10, buffer, 3);
+        OrdersSummaryFlyweight summary = new OrdersSummaryFlyweight().wrap(buffer, 3);
+
+        assertThat(length, is(equalTo(OrdersSummaryFlyweight.encodedLength(2))));
+        assertThat(summary.purchaseType(), is(equalTo(PurchaseType.SELL)));
+        assertThat(summary.levelCount(), is(equalTo(2)));
+        assertThat(summary.pricePerKg(0), is(equalTo(new BigDecimal("306"))));
+        assertThat(summary.totalInKg(0), is(equalTo(new BigDecimal("3.5"))));
+        assertThat(summary.pricePerKg(1), is(equalTo(new BigDecimal("310"))));
+        OrdersSummary copy = summary.toOrdersSummary();
+        assertThat(copy.getAmountsInKgByPrice(), is(equalTo(liveOrderSystem.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice())));
+    }
+}
@@ -0,0 +1,31 @@
+package com.fadams.silver.bars.collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ConcurrentLongHashIndexTest {
+
+    @Test(timeout = 5_000)
+    public void itVisitsEveryValueWithoutHoldingASegmentLockWhileTheConsumerRuns() {
+        ConcurrentLongHashIndex<String> index = new ConcurrentLongHashIndex<>(1);
+        for (long key = 0; key < 100; key++) {
+            index.put(key, "value" + key);
+        }
+        List<String> visited = new ArrayList<>();
+
+        // writing back into the only segment would deadlock if the consumer ran under its read lock
+        index.forEachValue(value -> {
+            visited.add(value);
+            index.remove(Long.parseLong(value.substring("value".length())));
+        });
+
+        assertThat(visited.size(), is(equalTo(100)));
+        assertThat(index.size(), is(equalTo(0L)));
+    }
+}
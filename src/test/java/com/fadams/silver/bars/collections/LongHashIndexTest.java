@@ -0,0 +1,67 @@
+package com.fadams.silver.bars.collections;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LongHashIndexTest {
+
+    @Test
+    public void itCanPutGetAndRemoveValues() {
+        LongHashIndex<String> index = new LongHashIndex<>();
+
+        assertThat(index.put(1L, "one"), is(nullValue()));
+        assertThat(index.put(1L, "uno"), is(equalTo("one")));
+
+        assertThat(index.get(1L), is(equalTo("uno")));
+        assertThat(index.remove(1L), is(equalTo("uno")));
+        assertThat(index.get(1L), is(nullValue()));
+        assertThat(index.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void itFindsEveryRemainingKeyAfterResizingAndRemovingHalfOfThem() {
+        LongHashIndex<Long> index = new LongHashIndex<>();
+        for (long key = 0; key < 10_000; key++) {
+            index.put(key, key);
+        }
+        for (long key = 0; key < 10_000; key += 2) {
+            assertThat(index.remove(key), is(equalTo(key)));
+        }
+
+        assertThat(index.size(), is(equalTo(5_000)));
+        for (long key = 0; key < 10_000; key++) {
+            assertThat(index.get(key), is(key % 2 == 0 ? nullValue() : equalTo(key)));
+        }
+    }
+
+    @Test
+    public void itAgreesWithConcurrentVersionForRandomOperations() {
+        LongHashIndex<Long> index = new LongHashIndex<>();
+        ConcurrentLongHashIndex<Long> concurrentIndex = new ConcurrentLongHashIndex<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(1_000);
+            if (random.nextBoolean()) {
+                assertThat(concurrentIndex.put(key, key), is(equalTo(index.put(key, key))));
+            } else {
+                assertThat(concurrentIndex.remove(key), is(equalTo(index.remove(key))));
+            }
+        }
+
+        assertThat(concurrentIndex.size(), is(equalTo((long) index.size())));
+        for (long key = 0; key < 1_000; key++) {
+            assertThat(concurrentIndex.get(key), is(equalTo(index.get(key))));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itRejectsAnExpectedSizeLargerThanItCanHold() {
+        new LongHashIndex<String>((1 << 29) + 1);
+    }
+}
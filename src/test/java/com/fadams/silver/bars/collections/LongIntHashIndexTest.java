@@ -0,0 +1,62 @@
+package com.fadams.silver.bars.collections;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LongIntHashIndexTest {
+
+    @Test
+    public void itCanPutGetAndRemoveValues() {
+        LongIntHashIndex index = new LongIntHashIndex();
+
+        assertThat(index.put(1L, 0), is(equalTo(LongIntHashIndex.MISSING)));
+        assertThat(index.put(1L, 7), is(equalTo(0)));
+
+        assertThat(index.get(1L), is(equalTo(7)));
+        assertThat(index.remove(1L), is(equalTo(7)));
+        assertThat(index.get(1L), is(equalTo(LongIntHashIndex.MISSING)));
+        assertThat(index.size(), is(equalTo(0)));
+    }
+
+    @Test
+    public void itAgreesWithTheObjectVersionForRandomOperations() {
+        LongIntHashIndex index = new LongIntHashIndex();
+        LongHashIndex<Integer> objectIndex = new LongHashIndex<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            long key = random.nextInt(1_000);
+            if (random.nextBoolean()) {
+                assertThat(index.put(key, i), is(equalTo(orMissing(objectIndex.put(key, i)))));
+            } else {
+                assertThat(index.remove(key), is(equalTo(orMissing(objectIndex.remove(key)))));
+            }
+        }
+
+        assertThat(index.size(), is(equalTo(objectIndex.size())));
+        for (long key = 0; key < 1_000; key++) {
+            assertThat(index.get(key), is(equalTo(orMissing(objectIndex.get(key)))));
+        }
+    }
+
+    @Test
+    public void itHoldsTheExpectedSizeWithoutLosingEntriesWhenItGrowsPastIt() {
+        LongIntHashIndex index = new LongIntHashIndex(1_000);
+        for (int i = 0; i < 5_000; i++) {
+            index.put(i * 31L, i);
+        }
+
+        assertThat(index.size(), is(equalTo(5_000)));
+        for (int i = 0; i < 5_000; i++) {
+            assertThat(index.get(i * 31L), is(equalTo(i)));
+        }
+    }
+
+    private static int orMissing(Integer value) {
+        return value == null ? LongIntHashIndex.MISSING : value;
+    }
+}
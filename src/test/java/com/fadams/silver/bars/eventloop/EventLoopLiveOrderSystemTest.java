@@ -0,0 +1,60 @@
+package com.fadams.silver.bars.eventloop;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class EventLoopLiveOrderSystemTest {
+    private static final int THREADS = 8;
+
+    @Test(timeout = 10_000)
+    public void itAnswersEveryCallerRacingWithClose() throws Exception {
+        EventLoopLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapEventLoop();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Long>> registered = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            registered.add(executor.submit(() -> {
+                long count = 0;
+                try {
+                    while (true) {
+                        liveOrderSystem.registerOrderId(orderRequest());
+                        count++;
+                    }
+                } catch (IllegalStateException closed) {
+                    return count;
+                }
+            }));
+        }
+        Thread.sleep(50);
+
+        liveOrderSystem.close();
+
+        long total = 0;
+        for (Future<Long> count : registered) {
+            total += count.get(5, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(total)));
+    }
+
+    @Test(timeout = 10_000)
+    public void itReturnsFromCloseWithTheInterruptStillSetWhenInterrupted() {
+        EventLoopLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapEventLoop();
+
+        Thread.currentThread().interrupt();
+        liveOrderSystem.close();
+
+        assertThat(Thread.interrupted(), is(true));
+    }
+}
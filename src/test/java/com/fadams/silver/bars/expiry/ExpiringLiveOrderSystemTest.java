@@ -0,0 +1,151 @@
+package com.fadams.silver.bars.expiry;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.expiresAtMillis;
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ExpiringLiveOrderSystemTest {
+    private static final long TICK_MILLIS = 10;
+    private static final int WHEEL_SIZE = 8;
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private final List<List<OrderDetails>> expiries = new ArrayList<>();
+    private final ExpiringLiveOrderSystem liveOrderSystem = new ExpiringLiveOrderSystem(
+            new LiverOrderSystemBootstrapper().bootstrap(), TICK_MILLIS, WHEEL_SIZE, expiries::add, clock::get);
+
+    @Test
+    public void itCancelsOrdersInTheTickTheyExpireAndNetsTheirLevels() {
+        String first = liveOrderSystem.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("300"), expiresAtMillis(1_025)));
+        String second = liveOrderSystem.registerOrder(orderRequest(quantity("2"), pricePerKilo("300"), expiresAtMillis(1_029)));
+        String kept = liveOrderSystem.registerOrder(orderRequest(quantity("3"), pricePerKilo("300"), expiresAtMillis(1_031)));
+
+        advanceTo(1_029);
+        assertThat(expiries.isEmpty(), is(true));
+
+        advanceTo(1_030);
+        assertThat(expiries.size(), is(equalTo(1)));
+        assertThat(orderIds(expiries.get(0)), is(equalTo(Arrays.asList(first, second))));
+        assertThat(liveOrderSystem.findOrder(kept).isPresent(), is(true));
+        Map<BigDecimal, BigDecimal> buys = liveOrderSystem.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice();
+        assertThat(buys.get(new BigDecimal("300")).compareTo(new BigDecimal("3")), is(equalTo(0)));
+
+        advanceTo(1_040);
+        assertThat(orderIds(expiries.get(1)), is(equalTo(Arrays.asList(kept))));
+        assertThat(liveOrderSystem.liveOrderCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void itLeavesOrdersDueOnALaterTurnOfTheWheelAlone() {
+        String later = liveOrderSystem.registerOrder(orderRequest(expiresAtMillis(1_000 + WHEEL_SIZE * TICK_MILLIS)));
+
+        advanceTo(1_005);
+        assertThat(liveOrderSystem.findOrder(later).isPresent(), is(true));
+
+        advanceTo(1_000 + WHEEL_SIZE * TICK_MILLIS);
+        assertThat(liveOrderSystem.findOrder(later).isPresent(), is(false));
+        assertThat(orderIds(expiries.get(0)), is(equalTo(Arrays.asList(later))));
+    }
+
+    @Test
+    public void itExpiresEverythingDueAfterFallingBehindByMoreThanAWholeTurn() {
+        String soon = liveOrderSystem.registerOrder(orderRequest(expiresAtMillis(1_010)));
+        String past = liveOrderSystem.registerOrder(orderRequest(expiresAtMillis(500)));
+        String forever = liveOrderSystem.registerOrder(orderRequest());
+
+        advanceTo(1_000 + 3 * WHEEL_SIZE * TICK_MILLIS);
+
+        assertThat(expiries.size(), is(equalTo(1)));
+        assertThat(orderIds(expiries.get(0)), is(equalTo(Arrays.asList(soon, past))));
+        assertThat(liveOrderSystem.findOrder(forever).isPresent(), is(true));
+    }
+
+    @Test
+    public void itIgnoresOrdersCancelledBeforeTheyExpire() {
+        String cancelled = liveOrderSystem.registerOrder(orderRequest(expiresAtMillis(1_010)));
+        String expiring = liveOrderSystem.registerOrder(orderRequest(expiresAtMillis(1_010)));
+        liveOrderSystem.tryCancel(cancelled);
+
+        advanceTo(1_010);
+
+        assertThat(orderIds(expiries.get(0)), is(equalTo(Arrays.asList(expiring))));
+    }
+
+    @Test
+    public void itSchedulesOrdersRegisteredInABatch() {
+        List<String> orderIds = liveOrderSystem.registerOrders(Arrays.asList(
+                orderRequest(expiresAtMillis(1_010)), orderRequest(), orderRequest(expiresAtMillis(1_020))));
+
+        advanceTo(1_020);
+
+        assertThat(orderIds(expiries.get(0)), is(equalTo(Arrays.asList(orderIds.get(0), orderIds.get(2)))));
+        assertThat(liveOrderSystem.findOrder(orderIds.get(1)).isPresent(), is(true));
+    }
+
+    @Test
+    public void itNeverCancelsAnOrderBeforeItsExpiryTime() {
+        String orderId = liveOrderSystem.registerOrder(orderRequest(expiresAtMillis(1_025)));
+
+        advanceTo(1_024);
+        assertThat(liveOrderSystem.findOrder(orderId).isPresent(), is(true));
+        advanceTo(1_029);
+        assertThat(liveOrderSystem.findOrder(orderId).isPresent(), is(true));
+
+        advanceTo(1_030);
+        assertThat(liveOrderSystem.findOrder(orderId).isPresent(), is(false));
+    }
+
+    @Test
+    public void itKeepsExpiringAfterTheListenerFails() {
+        List<List<OrderDetails>> heard = new ArrayList<>();
+        ExpiringLiveOrderSystem failingListener = new ExpiringLiveOrderSystem(new LiverOrderSystemBootstrapper().bootstrap(),
+                TICK_MILLIS, WHEEL_SIZE, expired -> {
+                    heard.add(expired);
+                    if (heard.size() == 1) {
+                        throw new IllegalStateException("listener failed");
+                    }
+                }, clock::get);
+        Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+        List<Throwable> reported = new ArrayList<>();
+        Thread.currentThread().setUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            failingListener.registerOrder(orderRequest(expiresAtMillis(1_010)));
+            String second = failingListener.registerOrder(orderRequest(expiresAtMillis(1_020)));
+
+            clock.set(1_010);
+            failingListener.expireDue();
+            clock.set(1_020);
+            failingListener.expireDue();
+
+            assertThat(reported.size(), is(equalTo(1)));
+            assertThat(orderIds(heard.get(1)), is(equalTo(Arrays.asList(second))));
+        } finally {
+            Thread.currentThread().setUncaughtExceptionHandler(handler);
+        }
+    }
+
+    private void advanceTo(long nowMillis) {
+        clock.set(nowMillis);
+        liveOrderSystem.expireDue();
+    }
+
+    private static List<String> orderIds(List<OrderDetails> orders) {
+        return orders.stream().map(OrderDetails::getOrderId).sorted().collect(Collectors.toList());
+    }
+}
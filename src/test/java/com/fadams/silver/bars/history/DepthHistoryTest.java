@@ -0,0 +1,160 @@
+package com.fadams.silver.bars.history;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.fixedpoint.FixedPointLiveOrderSystem;
+import com.fadams.silver.bars.inmemory.InMemoryLiveOrderSystem;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DepthHistoryTest {
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final AtomicLong clock = new AtomicLong(1_000);
+
+    @Test
+    public void itKeepsTheBestLevelsAndTotalOfEachSidePerSample() {
+        FixedPointLiveOrderSystem liveOrderSystem = bootstrapper.bootstrapFixedPoint();
+        DepthHistory history = new DepthHistory(liveOrderSystem, 4, 2, clock::get);
+        for (String price : new String[]{"306", "310", "307.5"}) {
+            liveOrderSystem.registerOrder(orderRequest(quantity("1.5"), pricePerKilo(price)));
+        }
+        liveOrderSystem.registerOrder(orderRequest(quantity("2"), pricePerKilo("312"), purchaseType(PurchaseType.SELL)));
+
+        history.sample();
+
+        List<DepthSample> buys = history.samples(PurchaseType.BUY, 0, Long.MAX_VALUE);
+        assertThat(buys.size(), is(equalTo(1)));
+        assertThat(buys.get(0).getSampledAtMillis(), is(equalTo(1_000L)));
+        assertThat(buys.get(0).getTotalInKg().toPlainString(), is(equalTo("4.5")));
+        assertThat(levels(buys.get(0)), is(equalTo("310=1.5, 307.5=1.5")));
+        DepthSample sells = history.samples(PurchaseType.SELL, 0, Long.MAX_VALUE).get(0);
+        assertThat(sells.getTotalInKg().toPlainString(), is(equalTo("2")));
+        assertThat(levels(sells), is(equalTo("312=2")));
+    }
+
+    @Test
+    public void itAnswersATimeWindowFromTheSamplesStillHeld() {
+        FixedPointLiveOrderSystem liveOrderSystem = bootstrapper.bootstrapFixedPoint();
+        DepthHistory history = new DepthHistory(liveOrderSystem, 3, 1, clock::get);
+        for (int sample = 0; sample < 5; sample++) {
+            liveOrderSystem.registerOrder(orderRequest(quantity("1"), pricePerKilo("300")));
+            clock.set(1_000 + sample * 100);
+            history.sample();
+        }
+
+        assertThat(history.size(), is(equalTo(3)));
+        assertThat(totals(history.samples(PurchaseType.BUY, 0, Long.MAX_VALUE)), is(equalTo("1200=3, 1300=4, 1400=5")));
+        assertThat(totals(history.samples(PurchaseType.BUY, 1_250, 1_300)), is(equalTo("1300=4")));
+        assertThat(totals(history.samples(PurchaseType.BUY, 1_000, 1_150)), is(equalTo("")));
+        assertThat(totals(history.samples(PurchaseType.SELL, 1_400, 1_400)), is(equalTo("1400=0")));
+    }
+
+    @Test
+    public void itNeverLetsSampleTimesGoBackwards() {
+        DepthHistory history = new DepthHistory(bootstrapper.bootstrapArena(), 4, 1, clock::get);
+        history.sample();
+        clock.set(900);
+        history.sample();
+
+        assertThat(totals(history.samples(PurchaseType.BUY, 1_000, 1_000)), is(equalTo("1000=0, 1000=0")));
+    }
+
+    @Test
+    public void itSamplesOtherSystemsThroughTheirSummaries() {
+        LiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        DepthHistory history = new DepthHistory(DepthSource.ofSummaries(liveOrderSystem), 2, 1, clock::get);
+        liveOrderSystem.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(quantity("2"), pricePerKilo("305")));
+
+        history.sample();
+
+        DepthSample buys = history.samples(PurchaseType.BUY, 0, Long.MAX_VALUE).get(0);
+        assertThat(buys.getTotalInKg().toPlainString(), is(equalTo("3.5")));
+        assertThat(levels(buys), is(equalTo("306=1.5")));
+    }
+
+    @Test
+    public void itSamplesTheInMemorySystemFromItsRunningTotalAndBestLevels() {
+        InMemoryLiveOrderSystem liveOrderSystem = bootstrapper.bootstrap();
+        DepthHistory history = new DepthHistory(liveOrderSystem, 2, 1, clock::get);
+        liveOrderSystem.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+        liveOrderSystem.registerOrder(orderRequest(quantity("2"), pricePerKilo("305")));
+        List<String> fineOrders = liveOrderSystem.registerOrders(Arrays.asList(
+                orderRequest(quantity("0.0005"), pricePerKilo("304")), orderRequest(quantity("0.0005"), pricePerKilo("304"))));
+        for (String orderId : fineOrders) {
+            liveOrderSystem.tryCancel(orderId);
+        }
+
+        history.sample();
+
+        DepthSample buys = history.samples(PurchaseType.BUY, 0, Long.MAX_VALUE).get(0);
+        assertThat(buys.getTotalInKg().toPlainString(), is(equalTo("3.5")));
+        assertThat(levels(buys), is(equalTo("306=1.5")));
+    }
+
+    @Test
+    public void itCarriesOnSamplingAfterTheSourceFails() {
+        FixedPointLiveOrderSystem liveOrderSystem = bootstrapper.bootstrapFixedPoint();
+        AtomicBoolean failing = new AtomicBoolean();
+        DepthHistory history = new DepthHistory((purchaseType, maxLevels, sink) -> {
+            if (failing.get() && PurchaseType.SELL.equals(purchaseType)) {
+                throw new IllegalStateException("source failed");
+            }
+            liveOrderSystem.sampleDepth(purchaseType, maxLevels, sink);
+        }, 2, 1, clock::get);
+        Thread.UncaughtExceptionHandler handler = Thread.currentThread().getUncaughtExceptionHandler();
+        List<Throwable> reported = new ArrayList<>();
+        Thread.currentThread().setUncaughtExceptionHandler((thread, e) -> reported.add(e));
+        try {
+            for (int sample = 0; sample < 2; sample++) {
+                liveOrderSystem.registerOrder(orderRequest(quantity("1"), pricePerKilo("300")));
+                clock.set(1_000 + sample * 100);
+                history.sample();
+            }
+            failing.set(true);
+            clock.set(1_200);
+            history.sample();
+            assertThat(reported.size(), is(equalTo(1)));
+            assertThat(totals(history.samples(PurchaseType.BUY, 0, Long.MAX_VALUE)), is(equalTo("1100=2")));
+
+            failing.set(false);
+            clock.set(1_300);
+            history.sample();
+            assertThat(totals(history.samples(PurchaseType.BUY, 0, Long.MAX_VALUE)), is(equalTo("1100=2, 1300=2")));
+        } finally {
+            Thread.currentThread().setUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void itKnowsItsFootprintUpFront() {
+        assertThat(DepthHistory.footprintBytes(10, 5), is(equalTo(10L * (8 + 2 * (12 + 5 * 16)))));
+    }
+
+    private static String levels(DepthSample sample) {
+        return sample.getLevels().stream()
+                .map(level -> level.getPricePerKg().toPlainString() + "=" + level.getTotalInKg().toPlainString())
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String totals(List<DepthSample> samples) {
+        return samples.stream()
+                .map(sample -> sample.getSampledAtMillis() + "=" + sample.getTotalInKg().toPlainString())
+                .collect(Collectors.joining(", "));
+    }
+}
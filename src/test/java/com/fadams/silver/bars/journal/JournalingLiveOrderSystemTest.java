@@ -0,0 +1,252 @@
+package com.fadams.silver.bars.journal;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.OrderDetails;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.RestorableLiveOrderSystem;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class JournalingLiveOrderSystemTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void itRebuildsOrdersAndSummariesFromTheJournalOnRestart() throws IOException, OrderNotFoundException {
+        Path journalDirectory = folder.getRoot().toPath();
+        String keptOrderId;
+        String cancelledOrderId;
+        try (JournalingLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            keptOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user1"), purchaseType(PurchaseType.SELL), quantity("3.50"), pricePerKilo("306")));
+            cancelledOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user2"), purchaseType(PurchaseType.SELL), quantity("1.2"), pricePerKilo("310")));
+            List<String> batch = liveOrderSystem.registerOrders(Arrays.asList(
+                    orderRequest(userId("user3"), purchaseType(PurchaseType.BUY), quantity("2.0"), pricePerKilo("300")),
+                    orderRequest(userId("user4"), purchaseType(PurchaseType.SELL), quantity("2.0"), pricePerKilo("306"))));
+            liveOrderSystem.cancelOrder(cancelledOrderId);
+            liveOrderSystem.cancelOrders(Arrays.asList(batch.get(0), "unknownOrder"));
+        }
+
+        try (JournalingLiveOrderSystem restarted = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            OrderDetails kept = restarted.orderDetails(keptOrderId);
+            assertThat(kept.getUserId(), is(equalTo("user1")));
+            assertThat(kept.getOrderQuantity(), is(equalTo(new BigDecimal("3.50"))));
+
+            OrdersSummary sells = restarted.orderSummary(PurchaseType.SELL);
+            assertThat(sells.getAmountsInKgByPrice().get(new BigDecimal("306")), is(equalTo(new BigDecimal("5.50"))));
+            assertThat(restarted.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().containsKey(new BigDecimal("300")), is(false));
+
+            String newOrderId = restarted.registerOrder(orderRequest());
+            assertThat(Long.parseLong(newOrderId) > Long.parseLong(cancelledOrderId), is(true));
+            assertThat(newOrderId, is(not(equalTo(keptOrderId))));
+
+            thrown.expect(OrderNotFoundException.class);
+            thrown.expectMessage(containsString(cancelledOrderId));
+            restarted.orderDetails(cancelledOrderId);
+        }
+    }
+
+    @Test
+    public void itGrowsTheMappingWhenTheJournalFills() throws IOException, OrderNotFoundException {
+        Path journalDirectory = folder.getRoot().toPath();
+        String lastOrderId = null;
+        try (JournalingLiveOrderSystem liveOrderSystem = JournalingLiveOrderSystem.open(
+                new LiverOrderSystemBootstrapper().bootstrap(), SegmentedJournal.open(journalDirectory, 64, 0, 0))) {
+            for (int i = 0; i < 1_000; i++) {
+                lastOrderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1"), pricePerKilo("306")));
+            }
+        }
+
+        try (JournalingLiveOrderSystem restarted = JournalingLiveOrderSystem.open(
+                new LiverOrderSystemBootstrapper().bootstrap(), SegmentedJournal.open(journalDirectory, 64, 0, 0))) {
+            assertThat(restarted.orderDetails(lastOrderId).getOrderId(), is(equalTo(lastOrderId)));
+            assertThat(restarted.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("306")),
+                    is(equalTo(new BigDecimal("1000"))));
+        }
+    }
+
+    @Test
+    public void itRollsOverToANewSegmentWhenOneIsAsLargeAsItCanBe() throws IOException, OrderNotFoundException {
+        Path journalDirectory = folder.getRoot().toPath();
+        String firstOrderId;
+        try (JournalingLiveOrderSystem liveOrderSystem = JournalingLiveOrderSystem.open(
+                new LiverOrderSystemBootstrapper().bootstrap(), SegmentedJournal.open(journalDirectory, 64, 0, 0, 1024))) {
+            firstOrderId = liveOrderSystem.registerOrder(orderRequest(quantity("2"), pricePerKilo("300")));
+            for (int i = 0; i < 199; i++) {
+                String orderId = liveOrderSystem.registerOrder(orderRequest(quantity("1"), pricePerKilo("306")));
+                if (i % 2 == 0) {
+                    liveOrderSystem.cancelOrder(orderId);
+                }
+            }
+        }
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            assertThat(files.count() > 1, is(true));
+        }
+
+        try (JournalingLiveOrderSystem restarted = JournalingLiveOrderSystem.open(
+                new LiverOrderSystemBootstrapper().bootstrap(), SegmentedJournal.open(journalDirectory, 64, 0, 0, 1024))) {
+            assertThat(restarted.orderDetails(firstOrderId).getOrderQuantity(), is(equalTo(new BigDecimal("2"))));
+            assertThat(restarted.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("306")),
+                    is(equalTo(new BigDecimal("99"))));
+        }
+    }
+
+    @Test
+    public void itRestoresFromASnapshotPlusTheJournalWrittenSince() throws IOException, OrderNotFoundException {
+        Path journalDirectory = folder.getRoot().toPath();
+        String snapshottedOrderId;
+        String cancelledAfterSnapshotOrderId;
+        String registeredAfterSnapshotOrderId;
+        try (JournalingLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            snapshottedOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user1"), purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+            cancelledAfterSnapshotOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user2"), purchaseType(PurchaseType.SELL), quantity("1.2"), pricePerKilo("306")));
+            liveOrderSystem.cancelOrder(liveOrderSystem.registerOrder(orderRequest(userId("user3"))));
+
+            liveOrderSystem.snapshot();
+
+            liveOrderSystem.cancelOrder(cancelledAfterSnapshotOrderId);
+            registeredAfterSnapshotOrderId = liveOrderSystem.registerOrder(orderRequest(userId("user4"), purchaseType(PurchaseType.SELL), quantity("2"), pricePerKilo("306")));
+        }
+
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            assertThat(files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList()),
+                    is(equalTo(Arrays.asList("journal-2.log", "snapshot-2.log"))));
+        }
+
+        try (JournalingLiveOrderSystem restarted = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            assertThat(restarted.orderDetails(snapshottedOrderId).getUserId(), is(equalTo("user1")));
+            assertThat(restarted.orderDetails(registeredAfterSnapshotOrderId).getUserId(), is(equalTo("user4")));
+            assertThat(restarted.orderSummary(PurchaseType.SELL).getAmountsInKgByPrice().get(new BigDecimal("306")),
+                    is(equalTo(new BigDecimal("5.5"))));
+
+            thrown.expect(OrderNotFoundException.class);
+            restarted.orderDetails(cancelledAfterSnapshotOrderId);
+        }
+    }
+
+    @Test
+    public void itTakesAConsistentSnapshotWhileOrdersAreBeingRegisteredAndCancelled() throws Exception {
+        Path journalDirectory = folder.getRoot().toPath();
+        OrdersSummary liveSummary;
+        try (JournalingLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            Thread writer = new Thread(() -> {
+                String previousOrderId = null;
+                while (running.get()) {
+                    String orderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.BUY), quantity("1"), pricePerKilo("300")));
+                    if (previousOrderId != null && Long.parseLong(orderId) % 3 == 0) {
+                        try {
+                            liveOrderSystem.cancelOrder(previousOrderId);
+                        } catch (OrderNotFoundException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                    previousOrderId = orderId;
+                }
+            });
+            writer.start();
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(10);
+                liveOrderSystem.snapshot();
+            }
+            running.set(false);
+            writer.join();
+            liveSummary = liveOrderSystem.orderSummary(PurchaseType.BUY);
+        }
+
+        try (JournalingLiveOrderSystem restarted = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            assertThat(restarted.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice(),
+                    is(equalTo(liveSummary.getAmountsInKgByPrice())));
+        }
+    }
+
+    @Test
+    public void itJournalsOnlyTheCancelsThatRemovedAnOrder() throws IOException {
+        Path journalDirectory = folder.getRoot().toPath();
+        String cancelledOrderId;
+        try (JournalingLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            cancelledOrderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("3.5"), pricePerKilo("306")));
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), quantity("1.5"), pricePerKilo("306")));
+            liveOrderSystem.tryCancel(cancelledOrderId);
+            liveOrderSystem.tryCancel(cancelledOrderId);
+            liveOrderSystem.tryCancel("unknownOrder");
+        }
+
+        try (JournalingLiveOrderSystem restarted = new LiverOrderSystemBootstrapper().bootstrapJournaled(journalDirectory)) {
+            assertThat(restarted.findOrder(cancelledOrderId).isPresent(), is(false));
+            assertThat(restarted.liveOrderCount(), is(equalTo(1L)));
+        }
+    }
+
+    @Test
+    public void itUndoesAChangeTheJournalFailedToRecord() {
+        RestorableLiveOrderSystem board = new LiverOrderSystemBootstrapper().bootstrapFixedPoint();
+        AtomicBoolean failing = new AtomicBoolean();
+        RecordingLiveOrderSystem liveOrderSystem = new RecordingLiveOrderSystem(board, new OrderEventHandler() {
+            @Override
+            public void onRegister(long orderId, OrderRequest orderRequest) {
+                failIf(failing);
+            }
+
+            @Override
+            public void onCancel(long orderId) {
+                failIf(failing);
+            }
+        }) {
+        };
+        String kept = liveOrderSystem.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+        failing.set(true);
+
+        for (Runnable write : Arrays.<Runnable>asList(
+                () -> liveOrderSystem.registerOrder(orderRequest(quantity("2"), pricePerKilo("310"))),
+                () -> liveOrderSystem.registerOrders(Arrays.asList(orderRequest(), orderRequest())),
+                () -> liveOrderSystem.tryCancel(kept),
+                () -> liveOrderSystem.cancelOrders(Arrays.asList(kept)),
+                () -> liveOrderSystem.cancelAllForUser("user1"))) {
+            try {
+                write.run();
+            } catch (IllegalStateException expected) {
+                // the journal is full
+            }
+        }
+
+        assertThat(board.liveOrderCount(), is(equalTo(1L)));
+        assertThat(board.findOrder(kept).isPresent(), is(true));
+        assertThat(board.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("306")).compareTo(new BigDecimal("1.5")),
+                is(equalTo(0)));
+    }
+
+    private static void failIf(AtomicBoolean failing) {
+        if (failing.get()) {
+            throw new IllegalStateException("journal full");
+        }
+    }
+}
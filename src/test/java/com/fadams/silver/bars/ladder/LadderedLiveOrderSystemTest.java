@@ -0,0 +1,99 @@
+package com.fadams.silver.bars.ladder;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.LiveOrderSystem;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LadderedLiveOrderSystemTest {
+    private static final BigDecimal ONE_POUND = new BigDecimal("1");
+    private static final BigDecimal FIVE_POUNDS = new BigDecimal("5");
+    private static final BigDecimal TEN_POUNDS = new BigDecimal("10");
+
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final LiveOrderSystem board = bootstrapper.bootstrap();
+
+    @Test
+    public void itKeepsEveryLadderInStepWithTheBoardThroughRegistersAndCancels() {
+        board.registerOrder(orderRequest(quantity("4"), pricePerKilo("299.5")));
+        LadderedLiveOrderSystem laddered = bootstrapper.laddered(board, ONE_POUND, FIVE_POUNDS, TEN_POUNDS);
+
+        String cancelled = laddered.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+        laddered.registerOrders(Arrays.asList(
+                orderRequest(quantity("2"), pricePerKilo("309.99"), userId("user2")),
+                orderRequest(quantity("2.5"), pricePerKilo("312"), userId("user2")),
+                orderRequest(quantity("3"), pricePerKilo("312"), purchaseType(PurchaseType.SELL))));
+        laddered.registerOrder(orderRequest(quantity("1"), pricePerKilo("300.25")));
+        laddered.tryCancel(cancelled);
+        laddered.cancelAllForUser("user2");
+        laddered.registerOrder(orderRequest(quantity("0.5"), pricePerKilo("318"), purchaseType(PurchaseType.SELL)));
+
+        for (BigDecimal tickSize : Arrays.asList(ONE_POUND, FIVE_POUNDS, TEN_POUNDS)) {
+            for (PurchaseType purchaseType : PurchaseType.values()) {
+                assertThat(bands(laddered, purchaseType, tickSize), is(equalTo(bands(board, purchaseType, tickSize))));
+            }
+        }
+        assertThat(bands(laddered, PurchaseType.BUY, TEN_POUNDS), is(equalTo(Arrays.asList("300=1", "290=4"))));
+        assertThat(bands(laddered, PurchaseType.SELL, TEN_POUNDS), is(equalTo(Arrays.asList("310=3.5"))));
+    }
+
+    @Test
+    public void itFollowsWritesMadeStraightToTheBoard() {
+        LadderedLiveOrderSystem laddered = bootstrapper.laddered(board, FIVE_POUNDS);
+
+        String cancelled = board.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+        laddered.registerOrder(orderRequest(quantity("2"), pricePerKilo("307.00")));
+        board.registerOrder(orderRequest(quantity("3"), pricePerKilo("301")));
+        board.tryCancel(cancelled);
+
+        assertThat(bands(laddered, PurchaseType.BUY, FIVE_POUNDS), is(equalTo(Arrays.asList("305=2", "300=3"))));
+    }
+
+    @Test
+    public void itStopsFollowingTheBoardOnceClosed() {
+        LadderedLiveOrderSystem laddered = bootstrapper.laddered(board, FIVE_POUNDS);
+        board.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+
+        laddered.close();
+        board.registerOrder(orderRequest(quantity("2"), pricePerKilo("307")));
+
+        assertThat(bands(laddered, PurchaseType.BUY, FIVE_POUNDS), is(equalTo(Arrays.asList("305=1.5"))));
+    }
+
+    @Test
+    public void itFindsALadderWhateverTheScaleOfTheTickSize() {
+        LadderedLiveOrderSystem laddered = bootstrapper.laddered(board, FIVE_POUNDS);
+        laddered.registerOrder(orderRequest(quantity("1.5"), pricePerKilo("306")));
+
+        assertThat(bands(laddered, PurchaseType.BUY, new BigDecimal("5.00")), is(equalTo(Arrays.asList("305=1.5"))));
+        assertThat(bands(laddered, PurchaseType.BUY, new BigDecimal("2")), is(equalTo(Arrays.asList("306=1.5"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itRejectsATickSizeThatIsNotPositive() {
+        bootstrapper.laddered(board, BigDecimal.ZERO);
+    }
+
+    /**
+     * Bands best first as lowest price=amount, ignoring scale
+     */
+    private static List<String> bands(LiveOrderSystem liveOrderSystem, PurchaseType purchaseType, BigDecimal tickSize) {
+        return liveOrderSystem.orderSummary(purchaseType, tickSize).getAmountsInKgByPrice().entrySet().stream()
+                .map(band -> band.getKey().stripTrailingZeros().toPlainString() + "=" + band.getValue().stripTrailingZeros().toPlainString())
+                .collect(Collectors.toList());
+    }
+}
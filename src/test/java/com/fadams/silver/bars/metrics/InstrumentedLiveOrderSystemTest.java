@@ -0,0 +1,72 @@
+package com.fadams.silver.bars.metrics;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class InstrumentedLiveOrderSystemTest {
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+
+    @Test
+    public void itUnregistersTheMBeanWhenClosed() throws Exception {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.fadams.silver.bars:type=LiveOrderSystem,name=\"closedTest\"");
+
+        bootstrapper.instrument(bootstrapper.bootstrap(), "closedTest").close();
+
+        assertThat(mBeanServer.isRegistered(name), is(false));
+    }
+
+    @Test(expected = ReflectionException.class)
+    public void itAnswersAnOperationWithTheExceptionForAnUnknownOne() throws Exception {
+        InstrumentedLiveOrderSystem liveOrderSystem = bootstrapper.instrument(bootstrapper.bootstrap(), "operationTest");
+        try {
+            ManagementFactory.getPlatformMBeanServer().invoke(
+                    new ObjectName("com.fadams.silver.bars:type=LiveOrderSystem,name=\"operationTest\""), "reset", null, null);
+        } finally {
+            liveOrderSystem.close();
+        }
+    }
+
+    @Test
+    public void itPublishesCountsGaugesAndLatenciesOverJmx() throws Exception {
+        try (InstrumentedLiveOrderSystem liveOrderSystem = bootstrapper.instrument(bootstrapper.bootstrap(), "instrumentedTest")) {
+            String cancelledOrderId = liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), pricePerKilo("306")));
+            liveOrderSystem.registerOrder(orderRequest(purchaseType(PurchaseType.SELL), pricePerKilo("310")));
+            liveOrderSystem.registerOrders(Arrays.asList(orderRequest(purchaseType(PurchaseType.BUY), pricePerKilo("300"))));
+            liveOrderSystem.cancelOrder(cancelledOrderId);
+            liveOrderSystem.cancelOrders(Arrays.asList(cancelledOrderId, "unknownOrder"));
+            try {
+                liveOrderSystem.orderDetails(cancelledOrderId);
+            } catch (OrderNotFoundException expected) {
+                // counted as not found
+            }
+            liveOrderSystem.orderSummary(PurchaseType.SELL);
+
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.fadams.silver.bars:type=LiveOrderSystem,name=\"instrumentedTest\"");
+            assertThat(mBeanServer.getAttribute(name, "registers"), is(equalTo(3L)));
+            assertThat(mBeanServer.getAttribute(name, "cancels"), is(equalTo(1L)));
+            assertThat(mBeanServer.getAttribute(name, "notFound"), is(equalTo(3L)));
+            assertThat(mBeanServer.getAttribute(name, "liveOrders"), is(equalTo(2L)));
+            assertThat(mBeanServer.getAttribute(name, "buyPriceLevels"), is(equalTo(1L)));
+            assertThat(mBeanServer.getAttribute(name, "registerOrder.count"), is(equalTo(2L)));
+            assertThat(mBeanServer.getAttribute(name, "orderSummary.count"), is(equalTo(1L)));
+            assertThat((Long) mBeanServer.getAttribute(name, "cancelOrder.max") > 0, is(true));
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.fadams.silver.bars.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class LatencyHistogramTest {
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void itReportsPercentilesToWithinItsPrecision() {
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        assertThat(histogram.count(), is(equalTo(100_000L)));
+        assertWithinPrecision(histogram.valueAtPercentile(50), 50_000);
+        assertWithinPrecision(histogram.valueAtPercentile(99), 99_000);
+        assertWithinPrecision(histogram.max(), 100_000);
+        assertThat(histogram.valueAtPercentile(0), is(equalTo(1L)));
+    }
+
+    @Test
+    public void itKeepsSmallValuesExact() {
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(127);
+
+        assertThat(histogram.valueAtPercentile(50), is(equalTo(3L)));
+        assertThat(histogram.max(), is(equalTo(127L)));
+    }
+
+    @Test
+    public void itCountsValuesOutsideItsRangeAtTheEnds() {
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertThat(histogram.valueAtPercentile(50), is(equalTo(0L)));
+        assertThat(histogram.max() >= (1L << 39), is(true));
+        assertThat(new LatencyHistogram().valueAtPercentile(99), is(equalTo(0L)));
+    }
+
+    private static void assertWithinPrecision(long actual, long expected) {
+        assertThat(actual + " within 1.6% of " + expected, Math.abs(actual - expected) <= expected / 64, is(true));
+    }
+}
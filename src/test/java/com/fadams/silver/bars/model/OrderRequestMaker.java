@@ -20,12 +20,14 @@ public class OrderRequestMaker {
     private static final Property<OrderRequest, BigDecimal> ORDER_QUANTITY = newProperty();
     private static final Property<OrderRequest, BigDecimal> PRICE_PER_KG = newProperty();
     private static final Property<OrderRequest, PurchaseType> PURCHASE_TYPE = newProperty();
+    private static final Property<OrderRequest, Long> EXPIRES_AT_MILLIS = newProperty();
 
     private static final Instantiator<OrderRequest> ORDER_REQUEST = propertyLookup -> new OrderRequest(
             propertyLookup.valueOf(USER_ID, "user1"),
             propertyLookup.valueOf(ORDER_QUANTITY, BigDecimal.ONE),
             propertyLookup.valueOf(PRICE_PER_KG, BigDecimal.TEN),
-            propertyLookup.valueOf(PURCHASE_TYPE, PurchaseType.BUY)
+            propertyLookup.valueOf(PURCHASE_TYPE, PurchaseType.BUY),
+            propertyLookup.valueOf(EXPIRES_AT_MILLIS, OrderRequest.NEVER_EXPIRES)
     );
 
     @SafeVarargs
@@ -58,4 +60,8 @@ public class OrderRequestMaker {
         return pricePerKg(new BigDecimal(inputPricePerKg));
     }
 
+    public static PropertyValue<OrderRequest, Long> expiresAtMillis(long inputExpiresAtMillis) {
+        return with(EXPIRES_AT_MILLIS, inputExpiresAtMillis);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package com.fadams.silver.bars.replication;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.eventloop.EventLoopLiveOrderSystem;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.PurchaseType;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ReplicationTest {
+    private final LiverOrderSystemBootstrapper bootstrapper = new LiverOrderSystemBootstrapper();
+    private final ReplicatingLiveOrderSystem primary = bootstrapper.bootstrapPrimary();
+
+    @Test
+    public void itBringsAReplicaUpToDateFromASnapshotAndThenTheStream() throws IOException, OrderNotFoundException {
+        String beforeConnecting = primary.registerOrder(orderRequest(userId("user1"), quantity("1.5"), pricePerKilo("300")));
+        String cancelledBeforeConnecting = primary.registerOrder(orderRequest(userId("user2"), pricePerKilo("301")));
+        primary.cancelOrder(cancelledBeforeConnecting);
+        ReplicaLiveOrderSystem replica = bootstrapper.bootstrapReplica();
+
+        Closeable feed = new InProcessTransport(primary).connect(replica);
+        try {
+            String afterConnecting = primary.registerOrder(orderRequest(userId("user3"), quantity("2"), pricePerKilo("300")));
+            primary.cancelOrder(beforeConnecting);
+
+            awaitSequence(replica, primary.publishedSequence());
+            assertThat(replica.findOrder(beforeConnecting).isPresent(), is(false));
+            assertThat(replica.findOrder(cancelledBeforeConnecting).isPresent(), is(false));
+            assertThat(replica.orderDetails(afterConnecting).getUserId(), is(equalTo("user3")));
+            assertThat(replica.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice().get(new BigDecimal("300")),
+                    is(equalTo(new BigDecimal("2.0"))));
+            assertThat(replica.replicationLag().getAppliedSequence(), is(equalTo(primary.publishedSequence())));
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void itReplicatesOverALoopbackSocket() throws IOException {
+        try (SocketReplicationServer server = new SocketReplicationServer(primary, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            ReplicaLiveOrderSystem first = bootstrapper.bootstrapReplica();
+            ReplicaLiveOrderSystem second = bootstrapper.bootstrapReplica();
+            SocketTransport transport = new SocketTransport(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+            Closeable firstFeed = transport.connect(first);
+            Closeable secondFeed = transport.connect(second);
+            try {
+                for (int i = 0; i < 100; i++) {
+                    primary.registerOrder(orderRequest(userId("user" + i), pricePerKilo("300"), purchaseType(PurchaseType.SELL)));
+                }
+
+                awaitSequence(first, 100);
+                awaitSequence(second, 100);
+                assertThat(first.liveOrderCount(), is(equalTo(100L)));
+                assertThat(second.ordersForUser("user7").size(), is(equalTo(1)));
+            } finally {
+                firstFeed.close();
+                secondFeed.close();
+            }
+        }
+    }
+
+    @Test
+    public void itKeepsAReplicaInStepWithOrdersCancelledAsSoonAsTheyAreRegistered() throws Exception {
+        ReplicaLiveOrderSystem replica = bootstrapper.bootstrapReplica();
+        Closeable feed = new InProcessTransport(primary).connect(replica);
+        try {
+            AtomicBoolean running = new AtomicBoolean(true);
+            List<Thread> threads = new ArrayList<>();
+            for (int writer = 0; writer < 4; writer++) {
+                String user = "user" + (writer % 2);
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        primary.registerOrder(orderRequest(userId(user), pricePerKilo(String.valueOf(300 + i % 7))));
+                    }
+                }));
+                threads.add(new Thread(() -> {
+                    while (running.get()) {
+                        primary.cancelAllForUser(user);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (int i = 0; i < threads.size(); i += 2) {
+                threads.get(i).join();
+            }
+            running.set(false);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            awaitSequence(replica, primary.publishedSequence());
+            assertThat(replica.liveOrderCount(), is(equalTo(primary.liveOrderCount())));
+            assertThat(replica.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice(),
+                    is(equalTo(primary.orderSummary(PurchaseType.BUY).getAmountsInKgByPrice())));
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test
+    public void itStopsAReplicaFollowingAStreamThatFellFurtherBehindThanThePrimaryHolds() throws InterruptedException {
+        ReplicatingLiveOrderSystem primary = new ReplicatingLiveOrderSystem(bootstrapper.bootstrap(), 16);
+        ReplicaLiveOrderSystem replica = bootstrapper.bootstrapReplica();
+        ReplicationStream stream = primary.openStream();
+        for (int i = 0; i < 40; i++) {
+            primary.registerOrder(orderRequest(userId("user" + i)));
+        }
+
+        replica.apply(stream.poll(0, TimeUnit.MILLISECONDS));
+        try {
+            replica.apply(stream.poll(0, TimeUnit.MILLISECONDS));
+            throw new AssertionError("replica applied a frame after missing 24");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), is(equalTo("expected event 1 but got 25")));
+        }
+        assertThat(replica.replicationFailure().isPresent(), is(true));
+        assertThat(replica.liveOrderCount(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void itRecordsAFailureToApplyAnEventOnTheReplicaAndStopsFeedingIt() throws Exception {
+        EventLoopLiveOrderSystem closedBoard = bootstrapper.bootstrapEventLoop();
+        closedBoard.close();
+        ReplicaLiveOrderSystem replica = new ReplicaLiveOrderSystem(closedBoard);
+        Closeable feed = new InProcessTransport(primary).connect(replica);
+        try {
+            primary.registerOrder(orderRequest());
+
+            await(() -> replica.replicationFailure().isPresent());
+            assertThat(replica.replicationFailure().get().getMessage(), is(equalTo("live order system has been closed")));
+            assertThat(replica.replicationLag().getAppliedSequence(), is(equalTo(0L)));
+        } finally {
+            feed.close();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void itRejectsWritesToAReplica() {
+        bootstrapper.bootstrapReplica().registerOrder(orderRequest());
+    }
+
+    private static void awaitSequence(ReplicaLiveOrderSystem replica, long sequence) {
+        await(() -> replica.replicationLag().getAppliedSequence() >= sequence);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("replica did not catch up in time");
+            }
+            Thread.yield();
+        }
+    }
+}
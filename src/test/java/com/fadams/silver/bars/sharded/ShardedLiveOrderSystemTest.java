@@ -0,0 +1,104 @@
+package com.fadams.silver.bars.sharded;
+
+import com.fadams.silver.bars.LiverOrderSystemBootstrapper;
+import com.fadams.silver.bars.model.OrderNotFoundException;
+import com.fadams.silver.bars.model.OrderRequest;
+import com.fadams.silver.bars.model.OrdersSummary;
+import com.fadams.silver.bars.model.PriceLevel;
+import com.fadams.silver.bars.model.PurchaseType;
+import com.fadams.silver.bars.model.Subscription;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.fadams.silver.bars.model.OrderRequestMaker.orderRequest;
+import static com.fadams.silver.bars.model.OrderRequestMaker.pricePerKilo;
+import static com.fadams.silver.bars.model.OrderRequestMaker.purchaseType;
+import static com.fadams.silver.bars.model.OrderRequestMaker.quantity;
+import static com.fadams.silver.bars.model.OrderRequestMaker.userId;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class ShardedLiveOrderSystemTest {
+    private final ShardedLiveOrderSystem liveOrderSystem = new LiverOrderSystemBootstrapper().bootstrapSharded(4);
+
+    @Test
+    public void itSpreadsUsersOverShardsAndRoutesEveryOrderBackToItsShard() throws OrderNotFoundException {
+        Set<Long> shardsUsed = new HashSet<>();
+        List<String> orderIds = new ArrayList<>();
+        for (int user = 0; user < 32; user++) {
+            String orderId = liveOrderSystem.registerOrder(orderRequest(userId("user" + user)));
+            shardsUsed.add(Long.parseLong(orderId) >>> ShardedLiveOrderSystem.SHARD_ID_SHIFT);
+            orderIds.add(orderId);
+        }
+
+        assertThat(shardsUsed.size(), is(equalTo(4)));
+        for (int user = 0; user < 32; user++) {
+            assertThat(liveOrderSystem.orderDetails(orderIds.get(user)).getUserId(), is(equalTo("user" + user)));
+        }
+        assertThat(liveOrderSystem.cancelOrders(Arrays.asList(orderIds.get(3), "99999999999999")).get(1).isCancelled(), is(false));
+    }
+
+    @Test
+    public void itSplitsABatchOverItsUsersShardsAndKeepsTheIdsInRequestOrder() throws OrderNotFoundException {
+        List<OrderRequest> batch = new ArrayList<>();
+        for (int user = 0; user < 16; user++) {
+            batch.add(orderRequest(userId("user" + user)));
+        }
+        String single = liveOrderSystem.registerOrder(orderRequest(userId("user5")));
+
+        List<String> orderIds = liveOrderSystem.registerOrders(batch);
+
+        for (int user = 0; user < 16; user++) {
+            assertThat(liveOrderSystem.orderDetails(orderIds.get(user)).getUserId(), is(equalTo("user" + user)));
+        }
+        assertThat(Long.parseLong(orderIds.get(5)) >>> ShardedLiveOrderSystem.SHARD_ID_SHIFT,
+                is(equalTo(Long.parseLong(single) >>> ShardedLiveOrderSystem.SHARD_ID_SHIFT)));
+        assertThat(liveOrderSystem.cancelAllForUser("user5").size(), is(equalTo(2)));
+        assertThat(liveOrderSystem.ordersForUser("user9").size(), is(equalTo(1)));
+    }
+
+    @Test
+    public void itMergesTheSameLevelFromEveryShardInDisplayOrder() {
+        for (int user = 0; user < 16; user++) {
+            liveOrderSystem.registerOrder(orderRequest(userId("user" + user), purchaseType(PurchaseType.BUY), quantity("1"), pricePerKilo("300")));
+            liveOrderSystem.registerOrder(orderRequest(userId("user" + user), purchaseType(PurchaseType.BUY), quantity("1"), pricePerKilo(String.valueOf(301 + user))));
+        }
+
+        OrdersSummary summary = liveOrderSystem.orderSummary(PurchaseType.BUY);
+        List<BigDecimal> prices = new ArrayList<>(summary.getAmountsInKgByPrice().keySet());
+        assertThat(prices.get(0), is(equalTo(new BigDecimal("316"))));
+        assertThat(prices.get(prices.size() - 1), is(equalTo(new BigDecimal("300"))));
+        assertThat(summary.getAmountsInKgByPrice().get(new BigDecimal("300")), is(equalTo(new BigDecimal("16"))));
+        assertThat(liveOrderSystem.orderSummary(PurchaseType.BUY), is(summary));
+
+        OrdersSummary topThree = liveOrderSystem.orderSummary(PurchaseType.BUY, 3);
+        assertThat(new ArrayList<>(topThree.getAmountsInKgByPrice().keySet()),
+                is(equalTo(Arrays.asList(new BigDecimal("316"), new BigDecimal("315"), new BigDecimal("314")))));
+    }
+
+    @Test
+    public void itPublishesWholeBoardTotalsAgainAfterEverySubscriberHasGoneAndOneReturns() {
+        List<PriceLevel> changes = new ArrayList<>();
+        Subscription first = liveOrderSystem.subscribe(changes::add);
+        liveOrderSystem.registerOrder(orderRequest(userId("user1"), quantity("1"), pricePerKilo("306")));
+        first.cancel();
+        first.cancel();
+        for (int user = 0; user < 8; user++) {
+            liveOrderSystem.registerOrder(orderRequest(userId("user" + user), quantity("1"), pricePerKilo("306")));
+        }
+
+        Subscription second = liveOrderSystem.subscribe(changes::add);
+        liveOrderSystem.registerOrder(orderRequest(userId("user5"), quantity("0.5"), pricePerKilo("306")));
+        second.cancel();
+
+        assertThat(changes.size(), is(equalTo(2)));
+        assertThat(changes.get(1).getTotalInKg().compareTo(new BigDecimal("9.5")), is(equalTo(0)));
+    }
+}